@@ -0,0 +1,58 @@
+/*
+ * name.polhill.gary.ga: BatchCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+/**
+ * BatchCostFunction
+ *
+ * Interface for cost functions that evaluate many genes in one call, so that
+ * any setting up can be shared between them. The GA gives the population to
+ * a batch cost function in slices of at most {@link #batchSize()} genes; if
+ * the cost function is thread-safe and the GA has an executor, the slices are
+ * evaluated in parallel. Cost functions that evaluate one gene at a time can
+ * be used where a batch cost function is needed with
+ * {@link BatchCostFunctionAdapter}.
+ *
+ * @author Gary Polhill
+ *
+ */
+public interface BatchCostFunction extends CostFunction {
+
+  /**
+   * cost
+   *
+   * Function returning the costs of several genes
+   *
+   * @param genes The members of the population to compute the cost of
+   * @return The costs, in the same order as the genes
+   */
+  double[] cost(Gene[] genes);
+
+  /**
+   * batchSize
+   *
+   * @return The largest number of genes to pass to {@link #cost(Gene[])} in
+   *         one call, or 0 to pass the whole population
+   */
+  int batchSize();
+
+}
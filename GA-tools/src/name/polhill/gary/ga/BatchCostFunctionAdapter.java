@@ -0,0 +1,121 @@
+/*
+ * name.polhill.gary.ga: BatchCostFunctionAdapter.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+/**
+ * BatchCostFunctionAdapter
+ *
+ * A batch cost function evaluating each gene in turn with a cost function
+ * that does not evaluate batches. The batch size is 1, so a GA with an
+ * executor evaluates each gene in a separate task. Given a
+ * {@link BoundedCostFunction} and a threshold, the genes in batches are
+ * evaluated only as far as the threshold needs.
+ *
+ * @author Gary Polhill
+ *
+ */
+public class BatchCostFunctionAdapter implements BatchCostFunction,
+    ThreadSafeCostFunction {
+  /**
+   * The cost function evaluating each gene
+   */
+  final CostFunction costFunction;
+
+  /**
+   * The threshold to pass to a bounded cost function, or NaN to evaluate
+   * genes exactly
+   */
+  final double threshold;
+
+  /**
+   * True if higher cost is better
+   */
+  final boolean maximise;
+
+  /**
+   * Constructor
+   *
+   * @param costFunction The cost function evaluating each gene
+   */
+  public BatchCostFunctionAdapter(CostFunction costFunction) {
+    this.costFunction = costFunction;
+    this.threshold = Double.NaN;
+    this.maximise = false;
+  }
+
+  /**
+   * Constructor for batches evaluated only as far as a threshold needs
+   *
+   * @param costFunction The cost function evaluating each gene
+   * @param threshold The threshold (see
+   *          {@link BoundedCostFunction#cost(Gene, double, boolean)})
+   * @param maximise True if higher cost is better, false if lower cost is
+   *          better
+   */
+  public BatchCostFunctionAdapter(BoundedCostFunction costFunction, double threshold, boolean maximise) {
+    this.costFunction = costFunction;
+    this.threshold = threshold;
+    this.maximise = maximise;
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.BatchCostFunction#cost(name.polhill.gary.ga.Gene[])
+   */
+  public double[] cost(Gene[] genes) {
+    double[] costs = new double[genes.length];
+    for(int i = 0; i < genes.length; i++) {
+      costs[i] = Double.isNaN(threshold) ? costFunction.cost(genes[i])
+        : ((BoundedCostFunction)costFunction).cost(genes[i], threshold, maximise);
+    }
+    return costs;
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.CostFunction#cost(name.polhill.gary.ga.Gene)
+   */
+  public double cost(Gene gene) {
+    return costFunction.cost(gene);
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.BatchCostFunction#batchSize()
+   */
+  public int batchSize() {
+    return 1;
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.ThreadSafeCostFunction#threadSafe()
+   */
+  public boolean threadSafe() {
+    return GA.threadSafe(costFunction);
+  }
+
+  /**
+   * getCostFunction
+   *
+   * @return The cost function evaluating each gene
+   */
+  public CostFunction getCostFunction() {
+    return costFunction;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * name.polhill.gary.ga: BoundedCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+/**
+ * BoundedCostFunction
+ *
+ * Interface for cost functions that can stop evaluating a gene once it is
+ * clear the gene's cost cannot be as good as a threshold, returning a bound
+ * on the cost instead. The GA passes the cost that a gene must reach to be
+ * among the best of the population (see {@link GA#setEliteBound(int)}), so
+ * genes that could be among the best are always evaluated exactly.
+ *
+ * @author Gary Polhill
+ *
+ */
+public interface BoundedCostFunction extends CostFunction {
+
+  /**
+   * cost
+   *
+   * Function returning the cost of a gene if it is at least as good as a
+   * threshold, or otherwise a bound on the cost
+   *
+   * @param gene The member of the population to compute the cost of
+   * @param threshold The cost the gene must be at least as good as to be
+   *          evaluated exactly
+   * @param maximise True if higher cost is better, false if lower cost is
+   *          better
+   * @return The cost if it is at least as good as the threshold; otherwise a
+   *         cost worse than the threshold that the gene's cost is no better
+   *         than, which may be the cost itself
+   */
+  double cost(Gene gene, double threshold, boolean maximise);
+
+}
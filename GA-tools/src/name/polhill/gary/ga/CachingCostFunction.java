@@ -0,0 +1,222 @@
+/*
+ * name.polhill.gary.ga: CachingCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CachingCostFunction
+ *
+ * A cost function remembering the costs of the genes it has evaluated, so that
+ * duplicates (such as elites kept from one generation to the next) are not
+ * evaluated again. Genes are compared by content. The cache is bounded by
+ * number of entries and/or the number of bytes of genes stored; when it is
+ * full, the least recently used entry is removed.
+ *
+ * The cost function wrapped must always return the same cost for the same
+ * gene.
+ *
+ * @author Gary Polhill
+ *
+ */
+public class CachingCostFunction implements ThreadSafeCostFunction {
+  /**
+   * The cost function whose costs are cached
+   */
+  final CostFunction costFunction;
+
+  /**
+   * Maximum number of entries, or 0 for no limit
+   */
+  final int maxEntries;
+
+  /**
+   * Maximum number of bytes of genes stored, or 0 for no limit
+   */
+  final long maxBytes;
+
+  /**
+   * The cache, in order of access. Keys are copies of the genes evaluated.
+   */
+  final LinkedHashMap<Gene, Double> cache;
+
+  long bytes;
+  long hits;
+  long misses;
+
+  /**
+   * Constructor
+   *
+   * @param costFunction The cost function whose costs to cache
+   * @param maxEntries The maximum number of entries (0 for no limit)
+   * @param maxBytes The maximum number of bytes of genes to store (0 for no
+   *          limit)
+   */
+  public CachingCostFunction(CostFunction costFunction, int maxEntries, long maxBytes) {
+    this.costFunction = costFunction;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    cache = new LinkedHashMap<Gene, Double>(16, 0.75f, true);
+  }
+
+  /**
+   * Constructor for a cache bounded only by number of entries
+   *
+   * @param costFunction The cost function whose costs to cache
+   * @param maxEntries The maximum number of entries
+   */
+  public CachingCostFunction(CostFunction costFunction, int maxEntries) {
+    this(costFunction, maxEntries, 0L);
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.CostFunction#cost(name.polhill.gary.ga.Gene)
+   */
+  public double cost(Gene gene) {
+    synchronized(cache) {
+      Double cost = cache.get(gene);
+      if(cost != null) {
+        hits++;
+        return cost;
+      }
+      misses++;
+    }
+    double cost = costFunction.cost(gene);
+    Gene key = gene.clone();
+    synchronized(cache) {
+      if(!cache.containsKey(key)) {
+        bytes += byteSize(key);
+        cache.put(key, cost);
+        trim();
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * threadSafe
+   *
+   * The cache is thread-safe if the cost function it wraps is. (Two threads
+   * asking for the cost of the same gene at the same time may both evaluate
+   * it.)
+   *
+   * @see name.polhill.gary.ga.ThreadSafeCostFunction#threadSafe()
+   */
+  public boolean threadSafe() {
+    return GA.threadSafe(costFunction);
+  }
+
+  /**
+   * trim
+   *
+   * Remove the least recently used entries until the cache is within its
+   * bounds. The most recent entry is always kept.
+   */
+  private void trim() {
+    Iterator<Map.Entry<Gene, Double>> eldest = cache.entrySet().iterator();
+    while(cache.size() > 1
+      && ((maxEntries > 0 && cache.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes))) {
+      bytes -= byteSize(eldest.next().getKey());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * byteSize
+   *
+   * @param gene
+   * @return The number of bytes counted against the limit for the gene
+   */
+  private static long byteSize(Gene gene) {
+    return (gene.length + 7) / 8;
+  }
+
+  /**
+   * getHits
+   *
+   * @return The number of costs found in the cache
+   */
+  public long getHits() {
+    synchronized(cache) {
+      return hits;
+    }
+  }
+
+  /**
+   * getMisses
+   *
+   * @return The number of costs not found in the cache, and so evaluated
+   */
+  public long getMisses() {
+    synchronized(cache) {
+      return misses;
+    }
+  }
+
+  /**
+   * getHitRate
+   *
+   * @return The proportion of costs found in the cache
+   */
+  public double getHitRate() {
+    synchronized(cache) {
+      return hits + misses == 0 ? 0.0 : (double)hits / (double)(hits + misses);
+    }
+  }
+
+  /**
+   * size
+   *
+   * @return The number of entries in the cache
+   */
+  public int size() {
+    synchronized(cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * clear
+   *
+   * Empty the cache and reset the statistics
+   */
+  public void clear() {
+    synchronized(cache) {
+      cache.clear();
+      bytes = 0L;
+      hits = 0L;
+      misses = 0L;
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  public String toString() {
+    synchronized(cache) {
+      return "cache of " + cache.size() + " entries (" + bytes + " bytes): " + hits + " hits, " + misses
+        + " misses";
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * name.polhill.gary.ga: CachingCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * CachingCostFunctionTest
+ * @author Gary Polhill
+ *
+ */
+public class CachingCostFunctionTest extends TestCase {
+
+  /**
+   * Counter
+   *
+   * A cost function counting the genes it evaluates, whose cost is the
+   * gene's value
+   */
+  static class Counter implements CostFunction {
+    int calls = 0;
+
+    public double cost(Gene gene) {
+      calls++;
+      return gene.toLong();
+    }
+  }
+
+  /**
+   * @param name
+   */
+  public CachingCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.CachingCostFunction#cost(name.polhill.gary.ga.Gene)}:
+   * genes with the same content are evaluated once, with the same cost as
+   * the cost function wrapped gives.
+   */
+  public void testCost() {
+    Counter counter = new Counter();
+    CachingCostFunction cache = new CachingCostFunction(counter, 0);
+    Counter uncached = new Counter();
+    for(int i = 0; i < 100; i++) {
+      Gene gene = new Gene(5);
+      gene.randomise();
+      assertEquals(uncached.cost(gene), cache.cost(gene), 0.0);
+      assertEquals(uncached.cost(gene), cache.cost(gene.clone()), 0.0);
+    }
+    assertTrue(counter.calls <= 32);
+    assertEquals(cache.size(), counter.calls);
+    assertEquals(counter.calls, cache.getMisses());
+    assertEquals(200 - counter.calls, cache.getHits());
+    assertEquals((200.0 - counter.calls) / 200.0, cache.getHitRate(), 1.0e-12);
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHits());
+    assertEquals(0, cache.getMisses());
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.CachingCostFunction#cost(name.polhill.gary.ga.Gene)}:
+   * changing a gene after it has been evaluated does not change the entry
+   * cached for it.
+   */
+  public void testChangedGene() {
+    Counter counter = new Counter();
+    CachingCostFunction cache = new CachingCostFunction(counter, 0);
+    Gene gene = new Gene(8);
+    assertEquals(0.0, cache.cost(gene), 0.0);
+    gene.setBit(0, true);
+    assertEquals(1.0, cache.cost(gene), 0.0);
+    assertEquals(0.0, cache.cost(new Gene(8)), 0.0);
+    assertEquals(2, counter.calls);
+    assertEquals(1, cache.getHits());
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.CachingCostFunction#cost(name.polhill.gary.ga.Gene)}:
+   * when the cache is full, the least recently used entry is removed, whether
+   * the cache is bounded by entries or bytes.
+   */
+  public void testBounds() {
+    Counter counter = new Counter();
+    CachingCostFunction[] caches = {
+      new CachingCostFunction(counter, 3),
+      new CachingCostFunction(counter, 0, 3L * 2L)
+    };
+    for(CachingCostFunction cache: caches) {
+      Gene[] genes = new Gene[4];
+      for(int i = 0; i < genes.length; i++) {
+        genes[i] = new Gene(16, BigInteger.valueOf(i));
+      }
+      counter.calls = 0;
+      cache.cost(genes[0]);
+      cache.cost(genes[1]);
+      cache.cost(genes[2]);
+      cache.cost(genes[0]);
+      cache.cost(genes[3]);
+      assertEquals(3, cache.size());
+      assertEquals(4, counter.calls);
+
+      // genes[1] was the least recently used
+
+      cache.cost(genes[0]);
+      cache.cost(genes[2]);
+      cache.cost(genes[3]);
+      assertEquals(4, counter.calls);
+      cache.cost(genes[1]);
+      assertEquals(5, counter.calls);
+      assertEquals(3, cache.size());
+    }
+  }
+}
@@ -21,8 +21,19 @@
  */
 package name.polhill.gary.ga;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import name.polhill.gary.util.TimeLimit;
 
 /**
  * GA
@@ -61,10 +72,46 @@ public class GA {
   double bestCost;
 
   /**
-   * Map from current population members to costs
+   * Map from current population members to costs. Genes are compared by
+   * identity, since their contents may change after they are put in the
+   * map.
    */
   Map<Gene, Double> costs;
 
+  /**
+   * Costs of each member of the last generation, in population order
+   */
+  double[] populationCosts;
+
+  /**
+   * Executor to evaluate the population with, or <code>null</code> to
+   * evaluate it in the calling thread
+   */
+  ExecutorService executor;
+
+  /**
+   * Limits on the time taken to evaluate the population, or <code>null</code>
+   */
+  TimeLimit timeLimit;
+
+  /**
+   * The cost given to genes whose evaluation took too long
+   */
+  double penalty;
+
+  /**
+   * Numbers of genes given the penalty cost because their own evaluation, or
+   * that of the whole population, took too long
+   */
+  long evaluationTimeouts;
+  long generationTimeouts;
+
+  /**
+   * The number of best costs of the last generation that a bounded cost
+   * function is asked to evaluate exactly, or 0 to evaluate all genes exactly
+   */
+  int eliteBound;
+
   private GA(Breeder breeder, CostFunction costFunction) {
     this.breeder = breeder;
     this.costFunction = costFunction;
@@ -112,12 +159,13 @@ public class GA {
    * @return The best solution from the current generation (before breeding)
    */
   public double step(boolean maximise) {
-    costs = new HashMap<Gene, Double>();
-    double best_cost = costFunction.cost(population[0]);
+    costs = new IdentityHashMap<Gene, Double>();
+    populationCosts = evaluate(threshold(maximise), maximise);
+    double best_cost = populationCosts[0];
     Gene best_gene = population[0];
     costs.put(population[0], best_cost);
     for(int i = 1; i < population.length; i++) {
-      double this_cost = costFunction.cost(population[i]);
+      double this_cost = populationCosts[i];
       best_cost =
         maximise ? (this_cost > best_cost ? this_cost : best_cost)
                 : (this_cost < best_cost ? this_cost : best_cost);
@@ -132,6 +180,211 @@ public class GA {
     return best_cost;
   }
 
+  /**
+   * setExecutor
+   * 
+   * Evaluate the population using an executor (such as a
+   * {@link java.util.concurrent.ForkJoinPool}). Each member of the population
+   * (or each batch, for a {@link BatchCostFunction}) is evaluated in a
+   * separate task. The best solution is then found in
+   * population order, so the results do not depend on the number of threads.
+   * The population is evaluated in the calling thread unless the cost function
+   * is a {@link ThreadSafeCostFunction} that says it is thread-safe.
+   * 
+   * @param executor The executor, or <code>null</code> to evaluate the
+   *          population in the calling thread
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * setTimeLimits
+   * 
+   * Limit the time taken to evaluate the population. Evaluations (or batches,
+   * for a {@link BatchCostFunction}) that take too long are cancelled by
+   * interrupting them, and the genes evaluated are given the penalty cost.
+   * Time limits need an executor (see {@link #setExecutor(ExecutorService)});
+   * if the cost function is not thread-safe, the executor runs one evaluation
+   * at a time, and an evaluation that ignores the interrupt keeps the next one
+   * waiting until it stops.
+   * 
+   * @param evaluation Milliseconds each evaluation may take, or 0 for no limit
+   * @param generation Milliseconds the whole population may take, or 0 for no
+   *          limit
+   * @param penalty The cost to give genes whose evaluation took too long
+   */
+  public void setTimeLimits(long evaluation, long generation, double penalty) {
+    this.timeLimit = (evaluation > 0 || generation > 0)
+      ? new TimeLimit(evaluation, generation, TimeUnit.MILLISECONDS) : null;
+    this.penalty = penalty;
+  }
+
+  /**
+   * setEliteBound
+   * 
+   * If the cost function is a {@link BoundedCostFunction}, evaluate genes only
+   * as far as needed to show they cannot be as good as the given number of
+   * best costs of the last generation. Genes that are evaluated exactly are
+   * then all those that could be among that number of best genes in the next
+   * generation when the breeder keeps that many (as
+   * {@link KeepBestRankLotteryBreeder} does). Other genes have bounds for
+   * costs, which are all worse than those of the genes evaluated exactly, but
+   * may not be in the same order as their costs, and are included in
+   * {@link #getMeanCost()} and {@link #getCostVariance()}.
+   * 
+   * @param elites The number of best costs, or 0 to evaluate all genes
+   *          exactly
+   */
+  public void setEliteBound(int elites) {
+    if(elites < 0) throw new IllegalArgumentException("Negative number of elites: " + elites);
+    this.eliteBound = elites;
+  }
+
+  /**
+   * threshold
+   * 
+   * @param maximise True if better solutions have higher costs
+   * @return The threshold for a bounded cost function to evaluate genes
+   *         exactly, or NaN if all genes are to be evaluated exactly
+   */
+  private double threshold(boolean maximise) {
+    if(eliteBound == 0 || populationCosts == null || !(costFunction instanceof BoundedCostFunction)
+      || costFunction instanceof BatchCostFunction) {
+      return Double.NaN;
+    }
+    double[] sorted = populationCosts.clone();
+    Arrays.sort(sorted);
+    int rank = Math.min(eliteBound, sorted.length);
+    return maximise ? sorted[sorted.length - rank] : sorted[rank - 1];
+  }
+
+  /**
+   * getEvaluationTimeouts
+   * 
+   * @return The number of genes given the penalty cost because their
+   *         evaluation took too long
+   */
+  public long getEvaluationTimeouts() {
+    return evaluationTimeouts;
+  }
+
+  /**
+   * getGenerationTimeouts
+   * 
+   * @return The number of genes given the penalty cost because the
+   *         evaluation of the whole population took too long
+   */
+  public long getGenerationTimeouts() {
+    return generationTimeouts;
+  }
+
+  /**
+   * threadSafe
+   * 
+   * @param costFunction A cost function
+   * @return <code>true</code> if the cost function is a
+   *         {@link ThreadSafeCostFunction} that says it is thread-safe
+   */
+  static boolean threadSafe(CostFunction costFunction) {
+    return costFunction instanceof ThreadSafeCostFunction
+      && ((ThreadSafeCostFunction)costFunction).threadSafe();
+  }
+
+  /**
+   * evaluate
+   * 
+   * The population is given to the cost function in slices of its batch size
+   * if it is a {@link BatchCostFunction}, or one gene at a time otherwise.
+   * 
+   * @param threshold The threshold for a {@link BoundedCostFunction}, or NaN
+   *          to evaluate genes exactly
+   * @param maximise True if better solutions have higher costs
+   * @return The cost of each member of the population, in population order
+   */
+  private double[] evaluate(double threshold, boolean maximise) {
+    final BatchCostFunction batch = (costFunction instanceof BatchCostFunction)
+      ? (BatchCostFunction)costFunction
+      : Double.isNaN(threshold) ? new BatchCostFunctionAdapter(costFunction)
+      : new BatchCostFunctionAdapter((BoundedCostFunction)costFunction, threshold, maximise);
+    double[] result = new double[population.length];
+    int size = batch.batchSize();
+    if(size <= 0 || size > population.length) size = Math.max(population.length, 1);
+    if(timeLimit == null && (executor == null || !threadSafe(costFunction))) {
+      for(int from = 0; from < population.length; from += size) {
+        int to = Math.min(from + size, population.length);
+        System.arraycopy(evaluate(batch, from, to), 0, result, from, to - from);
+      }
+      return result;
+    }
+    if(executor == null) throw new IllegalStateException("Time limits need an executor");
+    List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>((population.length + size - 1) / size);
+    for(int i = 0; i < population.length; i += size) {
+      final int from = i;
+      final int to = Math.min(i + size, population.length);
+      tasks.add(new Callable<double[]>() {
+        public double[] call() {
+          return evaluate(batch, from, to);
+        }
+      });
+    }
+    try {
+      List<double[]> costs = new ArrayList<double[]>(tasks.size());
+      if(timeLimit == null) {
+        for(Future<double[]> future: executor.invokeAll(tasks)) {
+          costs.add(future.get());
+        }
+      }
+      else {
+        costs = timeLimit.invokeAll(executor, tasks, threadSafe(costFunction) ? null : new Semaphore(1));
+      }
+      for(int i = 0; i < costs.size(); i++) {
+        int from = i * size;
+        int to = Math.min(from + size, population.length);
+        if(costs.get(i) == null) {
+          Arrays.fill(result, from, to, penalty);
+          if(timeLimit.overran(i)) evaluationTimeouts += to - from;
+          else generationTimeouts += to - from;
+        }
+        else {
+          System.arraycopy(costs.get(i), 0, result, from, to - from);
+        }
+      }
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating the population", e);
+    }
+    catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    return result;
+  }
+
+  /**
+   * evaluate
+   * 
+   * Evaluate a slice of the population
+   * 
+   * @param batch The cost function
+   * @param from The first member of the slice
+   * @param to The member after the last in the slice
+   * @return The costs of the slice
+   */
+  private double[] evaluate(BatchCostFunction batch, int from, int to) {
+    Gene[] genes = new Gene[to - from];
+    System.arraycopy(population, from, genes, 0, genes.length);
+    double[] costs = batch.cost(genes);
+    if(costs.length != genes.length) {
+      throw new RuntimeException("Batch cost function returned " + costs.length + " costs for "
+        + genes.length + " genes");
+    }
+    return costs;
+  }
+
   /**
    * getBestSolution
    * 
@@ -157,10 +410,10 @@ public class GA {
    */
   public double getMeanCost() {
     double total = 0.0;
-    for(double cost: costs.values()) {
+    for(double cost: populationCosts) {
       total += cost;
     }
-    return total / (double)population.length;
+    return total / (double)populationCosts.length;
   }
 
   /**
@@ -171,10 +424,10 @@ public class GA {
   public double getCostVariance() {
     double mean = getMeanCost();
     double total = 0.0;
-    for(double cost: costs.values()) {
+    for(double cost: populationCosts) {
       total += (cost - mean) * (cost - mean);
     }
-    return total / (double)population.length;
+    return total / (double)populationCosts.length;
   }
 
   /**
@@ -0,0 +1,311 @@
+/*
+ * name.polhill.gary.ga: GATest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import name.polhill.gary.ga.gzga.GZipCostFunction;
+import name.polhill.gary.ga.gzga.GZipCostFunctionTest;
+
+/**
+ * GATest
+ * @author Gary Polhill
+ *
+ */
+public class GATest extends TestCase {
+  static final int POPULATION = 40;
+  static final int GENE_LENGTH = 12;
+
+  /**
+   * ONES
+   *
+   * A thread-safe cost function counting ones, which takes longer for some
+   * genes than others so that evaluations finish out of order
+   */
+  static final ThreadSafeCostFunction ONES = new ThreadSafeCostFunction() {
+    public double cost(Gene gene) {
+      try {
+        Thread.sleep(gene.fingerprint() & 3L);
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return gene.nOnes();
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  };
+
+  /**
+   * Batches
+   *
+   * A batch cost function counting ones, recording the sizes of the batches
+   * it is given
+   */
+  static class Batches implements BatchCostFunction, ThreadSafeCostFunction {
+    final int size;
+    final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    Batches(int size) {
+      this.size = size;
+    }
+
+    public double[] cost(Gene[] genes) {
+      sizes.add(genes.length);
+      double[] costs = new double[genes.length];
+      for(int i = 0; i < genes.length; i++) {
+        costs[i] = ONES.cost(genes[i]);
+      }
+      return costs;
+    }
+
+    public double cost(Gene gene) {
+      return cost(new Gene[] { gene })[0];
+    }
+
+    public int batchSize() {
+      return size;
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  }
+
+  /**
+   * crossover
+   *
+   * @return A breeder with no randomness: each gene is crossed over with its
+   *         neighbour at a point that moves along with each generation
+   */
+  static Breeder crossover() {
+    return crossover(GENE_LENGTH);
+  }
+
+  /**
+   * crossover
+   *
+   * @param length The length of the genes
+   * @return A breeder like {@link #crossover()} for genes of the given length
+   */
+  static Breeder crossover(final int length) {
+    return new Breeder() {
+      int generation = 0;
+
+      public Gene[] breed(Gene[] population, Map<Gene, Double> costs, boolean maximise) {
+        generation++;
+        Gene[] next = new Gene[population.length];
+        for(int i = 0; i < next.length; i++) {
+          next[i] = population[i].crossover(population[(i + 1) % next.length], (generation * 997) % length);
+        }
+        return next;
+      }
+    };
+  }
+
+  /**
+   * keepBest
+   *
+   * @param length The length of the genes
+   * @param elites The number of best genes to keep
+   * @return A breeder like {@link #crossover(int)}, but which replaces the
+   *         first offspring with the best genes of the population, as
+   *         {@link KeepBestRankLotteryBreeder} keeps them
+   */
+  static Breeder keepBest(final int length, final int elites) {
+    final Breeder crossover = crossover(length);
+    return new Breeder() {
+      public Gene[] breed(final Gene[] population, final Map<Gene, Double> costs, final boolean maximise) {
+        Gene[] next = crossover.breed(population, costs, maximise);
+        Gene[] order = population.clone();
+        Arrays.sort(order, new Comparator<Gene>() {
+          public int compare(Gene a, Gene b) {
+            return maximise ? Double.compare(costs.get(b), costs.get(a)) : Double.compare(costs.get(a), costs.get(b));
+          }
+        });
+        System.arraycopy(order, 0, next, 0, elites);
+        return next;
+      }
+    };
+  }
+
+  /**
+   * @param name
+   */
+  public GATest(String name) {
+    super(name);
+  }
+
+  /**
+   * population
+   *
+   * @return A random population
+   */
+  static Gene[] population() {
+    Gene[] population = new Gene[POPULATION];
+    for(int i = 0; i < population.length; i++) {
+      population[i] = new Gene(GENE_LENGTH);
+      population[i].randomise();
+    }
+    return population;
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.GA#setExecutor(ExecutorService)}:
+   * evaluating the population with several threads finds the same best gene
+   * and cost as evaluating it with one, even though many genes have the same
+   * cost.
+   */
+  public void testExecutor() throws Exception {
+    Gene[] population = population();
+    GA serial = new GA(crossover(), ONES, population.clone());
+    GA single = new GA(crossover(), ONES, population.clone());
+    GA parallel = new GA(crossover(), ONES, population.clone());
+    ExecutorService one = Executors.newSingleThreadExecutor();
+    ExecutorService four = Executors.newFixedThreadPool(4);
+    single.setExecutor(one);
+    parallel.setExecutor(four);
+    try {
+      for(int g = 0; g < 10; g++) {
+        double cost = serial.step(true);
+        assertEquals(cost, single.step(true), 0.0);
+        assertEquals(cost, parallel.step(true), 0.0);
+        assertEquals(serial.getBestSolutionCost(), single.getBestSolutionCost(), 0.0);
+        assertEquals(serial.getBestSolutionCost(), parallel.getBestSolutionCost(), 0.0);
+        assertEquals(serial.getBestSolution(), single.getBestSolution());
+        assertEquals(serial.getBestSolution(), parallel.getBestSolution());
+        assertEquals(serial.getMeanCost(), parallel.getMeanCost(), 0.0);
+      }
+    }
+    finally {
+      one.shutdown();
+      four.shutdown();
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.GA#step(boolean)} with a
+   * {@link name.polhill.gary.ga.BatchCostFunction}: the population is given
+   * to the cost function in slices of its batch size (or all at once if the
+   * batch size is 0), each gene getting its own cost, with or without an
+   * executor.
+   */
+  public void testBatch() throws Exception {
+    ExecutorService four = Executors.newFixedThreadPool(4);
+    try {
+      for(int size: new int[] { 7, 0, POPULATION, 1 }) {
+        for(ExecutorService executor: new ExecutorService[] { null, four }) {
+          Gene[] population = population();
+          Batches batches = new Batches(size);
+          GA ga = new GA(crossover(), batches, population.clone());
+          ga.setExecutor(executor);
+          ga.step(true);
+          int n = size == 0 ? POPULATION : size;
+          assertEquals((POPULATION + n - 1) / n, batches.sizes.size());
+          int total = 0;
+          for(int batch: batches.sizes) {
+            assertTrue(batch == n || batch == POPULATION % n);
+            total += batch;
+          }
+          assertEquals(POPULATION, total);
+          double mean = 0.0;
+          for(Gene gene: population) {
+            mean += gene.nOnes();
+          }
+          assertEquals(mean / POPULATION, ga.getMeanCost(), 1.0e-12);
+          assertEquals(population[5].nOnes(), ga.costs.get(population[5]), 0.0);
+        }
+      }
+    }
+    finally {
+      four.shutdown();
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.GA#step(boolean)} with a
+   * {@link name.polhill.gary.ga.BatchCostFunction} returning the wrong number
+   * of costs.
+   */
+  public void testBatchSize() {
+    GA ga = new GA(crossover(), new Batches(7) {
+      public double[] cost(Gene[] genes) {
+        return new double[genes.length - 1];
+      }
+    }, population());
+    try {
+      ga.step(true);
+      fail("Batch cost function with too few costs accepted");
+    }
+    catch(RuntimeException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.GA#setEliteBound(int)} with a
+   * bounded {@link name.polhill.gary.ga.gzga.GZipCostFunction}: when the
+   * breeder keeps the best genes, the best costs of each generation, and the
+   * best solution, are those found evaluating every gene exactly, though some
+   * genes are abandoned.
+   */
+  public void testEliteBound() {
+    int length = 8192;
+    int elites = 5;
+    Gene[] population = new Gene[POPULATION];
+    for(int i = 0; i < population.length; i++) {
+      population[i] = GZipCostFunctionTest.gene(length, 1 + i % 4);
+    }
+    for(boolean maximise: new boolean[] { true, false }) {
+      GZipCostFunction exactCost = new GZipCostFunction(64);
+      GZipCostFunction boundedCost = new GZipCostFunction(64);
+      GA exact = new GA(keepBest(length, elites), exactCost, population.clone());
+      GA bounded = new GA(keepBest(length, elites), boundedCost, population.clone());
+      bounded.setEliteBound(elites);
+      for(int g = 0; g < 10; g++) {
+        assertEquals(exact.step(maximise), bounded.step(maximise), 0.0);
+        double[] all = exact.populationCosts.clone();
+        double[] some = bounded.populationCosts.clone();
+        Arrays.sort(all);
+        Arrays.sort(some);
+        for(int i = 0; i < elites; i++) {
+          int rank = maximise ? all.length - 1 - i : i;
+          assertEquals(all[rank], some[rank], 0.0);
+        }
+        assertEquals(exact.getBestSolutionCost(), bounded.getBestSolutionCost(), 0.0);
+        assertEquals(exact.getBestSolution(), bounded.getBestSolution());
+      }
+      assertEquals(0L, exactCost.getAbandoned());
+      assertTrue(boundedCost.getAbandoned() > 0L);
+    }
+  }
+}
@@ -22,33 +22,46 @@
 package name.polhill.gary.ga;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Random;
 
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.GeometricMutator;
+import name.polhill.gary.util.GrayCode;
+import name.polhill.gary.util.Hamming;
+
 /**
  * Gene
  * 
- * A gene class using BigInteger to store the genome. A better implementation
- * would abstract the Gene class from the GA too (not all GAs encode solutions
- * using bitstrings).
+ * A gene class storing the genome as a fixed-length array of longs, so that
+ * the genetic operators work a word at a time rather than a bit at a time. A
+ * better implementation would abstract the Gene class from the GA too (not all
+ * GAs encode solutions using bitstrings).
  * 
  * @author Gary Polhill
  * 
  */
 public class Gene implements Cloneable {
-  public BigInteger gene;
+  /**
+   * The bits of the genome, packed 64 to a word (see {@link BitWords})
+   */
+  long[] bits;
   public int length;
   Random randomiser;
 
+  /**
+   * Cached fingerprint of the bits (see {@link BitWords#fingerprint(long[])}),
+   * kept up to date by the methods that change them
+   */
+  long fingerprint;
+
   /**
    * Constructor using a specified size. The gene will be initialised to zero.
    * 
    * @param size The size of the gene.
    */
   public Gene(int size) {
-    length = size;
-    randomiser = new Random();
-    gene = new BigInteger(size, randomiser);
-    gene = gene.multiply(BigInteger.ZERO);
+    this(size, new long[BitWords.nWords(size)], new Random());
   }
 
   /**
@@ -58,8 +71,7 @@ public class Gene implements Cloneable {
    * @param data The data to store in it
    */
   public Gene(int size, byte[] data) {
-    this(size);
-    gene = gene.or(new BigInteger(data));
+    this(size, BitWords.fromByteArray(data, size), new Random());
   }
 
   /**
@@ -69,8 +81,36 @@ public class Gene implements Cloneable {
    * @param data The data to store in it
    */
   public Gene(int size, BigInteger data) {
-    this(size);
-    gene = gene.or(data);
+    this(size, BitWords.fromBigInteger(data, size), new Random());
+  }
+
+  /**
+   * Constructor taking ownership of an array of words. Genes derived from
+   * another gene share its random number generator rather than creating a new
+   * one.
+   * 
+   * @param size The size of the gene
+   * @param bits The words to use as the gene's storage
+   * @param randomiser The random number generator
+   */
+  private Gene(int size, long[] bits, Random randomiser) {
+    this(size, bits, randomiser, BitWords.fingerprint(bits));
+  }
+
+  /**
+   * Constructor taking ownership of an array of words whose fingerprint is
+   * already known
+   * 
+   * @param size The size of the gene
+   * @param bits The words to use as the gene's storage
+   * @param randomiser The random number generator
+   * @param fingerprint The fingerprint of the words
+   */
+  private Gene(int size, long[] bits, Random randomiser, long fingerprint) {
+    length = size;
+    this.bits = bits;
+    this.randomiser = randomiser;
+    this.fingerprint = fingerprint;
   }
 
   /*
@@ -79,7 +119,7 @@ public class Gene implements Cloneable {
    * @see java.lang.Object#clone()
    */
   public Gene clone() {
-    return new Gene(length, gene);
+    return new Gene(length, bits.clone(), randomiser, fingerprint);
   }
 
   /**
@@ -89,7 +129,8 @@ public class Gene implements Cloneable {
    * set to 1 or 0.
    */
   public void randomise() {
-    gene = new BigInteger(length, randomiser);
+    BitWords.randomise(bits, length, randomiser);
+    fingerprint = BitWords.fingerprint(bits);
   }
 
   /**
@@ -103,13 +144,11 @@ public class Gene implements Cloneable {
    * @return The resulting gene
    */
   public Gene crossover(Gene other, int point) {
-    BigInteger crossover = new BigInteger(gene.toByteArray());
-    for(int i = point; i < other.length; i++) {
-      if(other.gene.testBit(i)) crossover = crossover.setBit(i);
-      else
-        crossover = crossover.clearBit(i);
-    }
-    return new Gene(length, crossover);
+    long[] crossover = bits.clone();
+    BitWords.splice(crossover, other.bits, point);
+    BitWords.clearUnused(crossover, length);
+    return new Gene(length, crossover, randomiser,
+      BitWords.fingerprint(fingerprint, bits, crossover, Math.max(point, 0) >>> 6));
   }
 
   /**
@@ -118,21 +157,18 @@ public class Gene implements Cloneable {
    * Return a gene that is a mutation of this one. Each bit has a pMutate
    * probability of being set to a <i>random</i> value. Thus the expected
    * number of bits that differ between this gene and the returned gene is
-   * pMutate * length / 2.
+   * pMutate * length / 2. The bits to mutate are chosen using a
+   * {@link GeometricMutator}, so the time taken depends on the number of bits
+   * mutated rather than the length of the gene.
    * 
    * @param pMutate The mutation probability of each bit
    * @return The result of the mutation
    */
   public Gene mutate(double pMutate) {
-    BigInteger mutation = new BigInteger(gene.toByteArray());
-    for(int i = 0; i < length; i++) {
-      if(randomiser.nextDouble() < pMutate) {
-        if(randomiser.nextBoolean()) mutation = mutation.setBit(i);
-        else
-          mutation = mutation.clearBit(i);
-      }
-    }
-    return new Gene(length, mutation);
+    GeometricMutator mutator = new GeometricMutator(pMutate, randomiser);
+    long[] mutation = bits.clone();
+    long mutationFingerprint = mutator.mutate(mutation, length, mutator.next(-1), fingerprint);
+    return new Gene(length, mutation, randomiser, mutationFingerprint);
   }
 
   /**
@@ -144,8 +180,7 @@ public class Gene implements Cloneable {
    * @return The bitwise AND of this gene with the argument
    */
   public Gene and(Gene other) {
-    BigInteger and = new BigInteger(gene.toByteArray());
-    return new Gene(length, and.and(other.gene));
+    return new Gene(length, BitWords.and(bits, other.bits), randomiser);
   }
 
   /**
@@ -157,8 +192,7 @@ public class Gene implements Cloneable {
    * @return The bitwise XOR of this gene with the argument
    */
   public Gene xor(Gene other) {
-    BigInteger xor = new BigInteger(gene.toByteArray());
-    return new Gene(length, xor.xor(other.gene));
+    return new Gene(length, BitWords.xor(bits, other.bits, length), randomiser);
   }
 
   /**
@@ -182,8 +216,7 @@ public class Gene implements Cloneable {
    * @return The resulting gene
    */
   public Gene rsh(int i) {
-    BigInteger rsh = new BigInteger(gene.toByteArray());
-    return new Gene(length, rsh.shiftRight(i));
+    return new Gene(length, BitWords.shiftRight(bits, i), randomiser);
   }
 
   /**
@@ -195,7 +228,7 @@ public class Gene implements Cloneable {
    * @return The result of Gray coding this gene
    */
   public Gene grayCode() {
-    return xor(rsh());
+    return new Gene(length, GrayCode.encode(bits), randomiser);
   }
   
   /**
@@ -207,26 +240,39 @@ public class Gene implements Cloneable {
    * @return The result of inverse-Gray coding this gene
    */
   public Gene inverseGrayCode() {
-    Gene decode = new Gene(length);
-    decode.setBit(length - 1, getBit(length - 1));
-    for(int i = length - 2; i >= 0; i--) {
-      decode.setBit(i, decode.getBit(i + 1) ^ getBit(i));
-    }
-    return decode;
+    return new Gene(length, GrayCode.decode(bits), randomiser);
+  }
+
+  /**
+   * inverseGrayCodeLong
+   * 
+   * Inverse-Gray code a gene of at most 64 bits without creating any objects
+   *
+   * @return The result of inverse-Gray coding this gene, as an unsigned long
+   */
+  public long inverseGrayCodeLong() {
+    return GrayCode.decode(toLong());
   }
 
   /**
    * setBit
    * 
-   * Set the specified bit of this gene to the value given
+   * Set the specified bit of this gene to the value given. As when the gene
+   * was stored in a BigInteger, a negative bit is an error; but bits at or
+   * beyond the length of the gene, which the BigInteger would have grown to
+   * hold, are now ignored.
    *
    * @param bit The bit to set (0..length - 1)
    * @param value The value to set it to (true == 1; false == 0)
+   * @throws ArithmeticException if the bit is negative
    */
   public void setBit(int bit, boolean value) {
-    if(value) gene = gene.setBit(bit);
-    else
-      gene = gene.clearBit(bit);
+    if(bit < 0) throw new ArithmeticException("Negative bit address");
+    if(bit >= length) return;
+    int w = bit >>> 6;
+    long word = bits[w];
+    BitWords.setBit(bits, bit, value);
+    fingerprint ^= BitWords.mix(word, w) ^ BitWords.mix(bits[w], w);
   }
   
   /**
@@ -236,7 +282,7 @@ public class Gene implements Cloneable {
    * @return The value of that bit
    */
   public boolean getBit(int bit) {
-    return gene.testBit(bit);
+    return bit >= 0 && bit < length && BitWords.getBit(bits, bit);
   }
 
   /**
@@ -245,11 +291,7 @@ public class Gene implements Cloneable {
    * @return The number of ones in this bitstring
    */
   public int nOnes() {
-    int ones = 0;
-    for(int i = 0; i < length; i++) {
-      if(gene.testBit(i)) ones++;
-    }
-    return ones;
+    return Hamming.weight(bits);
   }
 
   /**
@@ -258,21 +300,117 @@ public class Gene implements Cloneable {
    * @return The number of zeros in this bitstring
    */
   public long nZeros() {
-    int zeros = 0;
-    for(int i = 0; i < length; i++) {
-      if(!gene.testBit(i)) zeros++;
-    }
-    return zeros;
+    return length - nOnes();
   }
 
   /* (non-Javadoc)
    * @see java.lang.Object#toString()
    */
   public String toString() {
-    StringBuffer geneStr = new StringBuffer(gene.toString(2));
-    while(geneStr.length() < length) {
-      geneStr = (new StringBuffer("0")).append(geneStr);
+    return BitWords.toString(bits, length);
+  }
+
+  /**
+   * fingerprint
+   * 
+   * @return A 64-bit fingerprint of the contents of the gene. Genes with equal
+   *         contents have equal fingerprints.
+   */
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * equals
+   * 
+   * Genes are equal if they have the same length and contents. The
+   * fingerprints are compared first, so genes that differ are usually told
+   * apart without comparing the bits.
+   * 
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if(obj == this) return true;
+    if(obj == null || obj.getClass() != getClass()) return false;
+    Gene other = (Gene)obj;
+    return other.length == length && other.fingerprint == fingerprint && Arrays.equals(other.bits, bits);
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return (int)(fingerprint ^ (fingerprint >>> 32));
+  }
+
+  /**
+   * toByteArray
+   * 
+   * @return The gene as a byte array, in the format of
+   *         {@link BigInteger#toByteArray()}
+   */
+  public byte[] toByteArray() {
+    return BitWords.toByteArray(bits);
+  }
+
+  /**
+   * byteArrayLength
+   * 
+   * @return The number of bytes in {@link #toByteArray()}
+   */
+  public int byteArrayLength() {
+    return BitWords.byteArrayLength(bits);
+  }
+
+  /**
+   * writeByteArray
+   * 
+   * Write some of the bytes of {@link #toByteArray()} to an array, without
+   * creating the whole byte array
+   * 
+   * @param from The first byte
+   * @param to One more than the last byte, at most {@link #byteArrayLength()}
+   * @param bytes The array to write to
+   * @param off Where in the array to write the first byte
+   */
+  public void writeByteArray(int from, int to, byte[] bytes, int off) {
+    BitWords.writeByteArray(bits, from, to, bytes, off);
+  }
+
+  /**
+   * getGene
+   * 
+   * @return The gene as a non-negative BigInteger
+   * @deprecated The gene is no longer stored in the public BigInteger field
+   *             <code>gene</code>; use {@link #toBigInteger()}, which this
+   *             calls
+   */
+  @Deprecated
+  public BigInteger getGene() {
+    return toBigInteger();
+  }
+
+  /**
+   * toBigInteger
+   * 
+   * @return The gene as a non-negative BigInteger
+   */
+  public BigInteger toBigInteger() {
+    return BitWords.toBigInteger(bits);
+  }
+
+  /**
+   * toLong
+   * 
+   * @return The gene as an unsigned long
+   * @throws ArithmeticException if the gene has more than 64 bits
+   */
+  public long toLong() {
+    if(length > BitWords.WORD_SIZE) {
+      throw new ArithmeticException("Gene of length " + length + " does not fit in a long");
     }
-    return geneStr.toString();
+    return bits.length == 0 ? 0L : bits[0];
   }
 }
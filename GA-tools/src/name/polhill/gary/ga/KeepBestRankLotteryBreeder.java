@@ -24,10 +24,11 @@ package name.polhill.gary.ga;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import name.polhill.gary.util.RankSampler;
+
 /**
  * KeepBestRankLotteryBreeder
  * 
@@ -35,7 +36,8 @@ import java.util.Map;
  * generation. Tickets are issued in rank order of cost, with the best genes
  * getting more tickets. Further, a specified number of the very best genes are
  * guaranteed getting copied to the next generation without genetic operators
- * being applied.
+ * being applied. By default, tickets are drawn without replacement, so that
+ * each ticket is used at most once.
  * 
  * @author Gary Polhill
  * 
@@ -45,6 +47,7 @@ public class KeepBestRankLotteryBreeder implements Breeder {
   private double pCrossover;
   private double pMutate;
   private int nBestKept;
+  private boolean replacement;
 
   /**
    * Constructor passing in the crossover probability, mutation probability, and
@@ -62,6 +65,19 @@ public class KeepBestRankLotteryBreeder implements Breeder {
     this.nBestKept = nBestKept;
   }
 
+  /**
+   * setReplacement
+   * 
+   * Draw lottery tickets with or without replacement. With replacement, each
+   * draw takes constant time; without, it takes time logarithmic in the size
+   * of the population.
+   * 
+   * @param replacement True to draw tickets with replacement
+   */
+  public void setReplacement(boolean replacement) {
+    this.replacement = replacement;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -92,16 +108,10 @@ public class KeepBestRankLotteryBreeder implements Breeder {
     for(int i = 0; i < nBestKept; i++) {
       newpop[i] = sortedPop.get(sortedPop.size() - (i + 1)).clone();
     }
-    LinkedList<Integer> lottery = new LinkedList<Integer>();
-    for(int i = 0; i < population.length; i++) {
-      for(int j = 1; j <= i + 1; j++) {
-        lottery.add(i);
-      }
-    }
-    Collections.shuffle(lottery);
+    RankSampler lottery = new RankSampler(population.length, replacement);
     for(int i = nBestKept; i < population.length; i++) {
-      Gene mother = sortedPop.get(lottery.remove());
-      Gene father = sortedPop.get(lottery.remove());
+      Gene mother = sortedPop.get(lottery.next());
+      Gene father = sortedPop.get(lottery.next());
       Gene baby = mother.clone();
       if(Math.random() < pCrossover) {
         baby = baby.crossover(father, (int)(Math.random() * father.length));
@@ -0,0 +1,457 @@
+/*
+ * name.polhill.gary.ga: SteadyStateGA.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * SteadyStateGA
+ *
+ * An asynchronous steady-state GA. Rather than evaluating a whole generation
+ * before breeding the next, a number of evaluations are kept in progress on
+ * an executor. As soon as any finishes, the offspring evaluated replaces a
+ * member of the population (the loser of a tournament, or the worst member)
+ * if it is at least as good, and a new offspring is bred and submitted for
+ * evaluation. Workers are then not left idle waiting for the slowest
+ * evaluation in a generation.
+ *
+ * Parents are chosen by tournament from the members of the population that
+ * have been evaluated. All breeding and replacement is done in the thread
+ * calling {@link #run(long, boolean)}; only the cost function is called from
+ * the executor's threads. If there is no executor, or the cost function is
+ * not a thread-safe {@link ThreadSafeCostFunction}, each offspring is
+ * evaluated in the calling thread.
+ *
+ * @author Gary Polhill
+ *
+ */
+public class SteadyStateGA {
+  /**
+   * The cost function to use
+   */
+  final CostFunction costFunction;
+
+  /**
+   * Crossover probability
+   */
+  final double pCrossover;
+
+  /**
+   * Mutation probability
+   */
+  final double pMutate;
+
+  /**
+   * Number of members of the population in each tournament, to choose parents
+   * and the member to replace. If 1, parents are chosen at random and the
+   * worst member is replaced.
+   */
+  final int tournamentSize;
+
+  /**
+   * The current population
+   */
+  Gene[] population;
+
+  /**
+   * Costs of each member of the population that has been evaluated
+   */
+  double[] costs;
+
+  /**
+   * Indices of the members of the population that have been evaluated
+   */
+  int[] evaluated;
+
+  /**
+   * Number of entries in {@link #evaluated}
+   */
+  int nEvaluated;
+
+  /**
+   * Next member of the initial population to submit for evaluation
+   */
+  int nextInitial;
+
+  /**
+   * The best solution found
+   */
+  Gene best;
+
+  /**
+   * The cost of the best solution
+   */
+  double bestCost;
+
+  /**
+   * Executor to evaluate offspring with, or <code>null</code> to evaluate
+   * them in the calling thread
+   */
+  ExecutorService executor;
+
+  /**
+   * Number of evaluations to keep in progress on the executor
+   */
+  int nInProgress;
+
+  /**
+   * Number of evaluations completed
+   */
+  long evaluations;
+
+  /**
+   * Time spent in {@link #run(long, boolean)}, in nanoseconds
+   */
+  long elapsed;
+
+  /**
+   * Number of offspring that replaced a member of the population
+   */
+  long replacements;
+
+  /**
+   * True if better solutions have higher costs
+   */
+  boolean maximise;
+
+  /**
+   * Constructor
+   *
+   * @param costFunction The cost function to use
+   * @param population The initial population, which will be evaluated before
+   *          any offspring are bred from it
+   * @param pCrossover Crossover probability
+   * @param pMutate Mutation probability
+   * @param tournamentSize Number of members of the population in each
+   *          tournament (1 to choose parents at random and replace the worst)
+   */
+  public SteadyStateGA(CostFunction costFunction, Gene[] population,
+      double pCrossover, double pMutate, int tournamentSize) {
+    if(population.length == 0) throw new IllegalArgumentException("Empty population");
+    if(tournamentSize < 1) {
+      throw new IllegalArgumentException("Tournament size " + tournamentSize + " less than 1");
+    }
+    this.costFunction = costFunction;
+    this.population = population.clone();
+    this.pCrossover = pCrossover;
+    this.pMutate = pMutate;
+    this.tournamentSize = tournamentSize;
+    costs = new double[population.length];
+    evaluated = new int[population.length];
+    nEvaluated = 0;
+    nextInitial = 0;
+    nInProgress = 1;
+  }
+
+  /**
+   * setExecutor
+   *
+   * Evaluate offspring using an executor. The number of evaluations kept in
+   * progress should be at least the number of threads the executor has, so
+   * that none is ever idle.
+   *
+   * @param executor The executor, or <code>null</code> to evaluate offspring
+   *          in the calling thread
+   * @param nInProgress The number of evaluations to keep in progress
+   */
+  public void setExecutor(ExecutorService executor, int nInProgress) {
+    if(executor != null && nInProgress < 1) {
+      throw new IllegalArgumentException("Number of evaluations in progress " + nInProgress
+        + " less than 1");
+    }
+    this.executor = executor;
+    this.nInProgress = executor == null ? 1 : nInProgress;
+  }
+
+  /**
+   * run
+   *
+   * Run the GA for a number of evaluations. Members of the initial population
+   * not yet evaluated are evaluated first, and count towards the number.
+   *
+   * @param nEvaluations The number of evaluations to do
+   * @param maximise True if better solutions have higher costs, false
+   *          otherwise
+   * @return The cost of the best solution found so far
+   */
+  public double run(long nEvaluations, boolean maximise) {
+    this.maximise = maximise;
+    long start = System.nanoTime();
+    try {
+      if(executor == null || !GA.threadSafe(costFunction)) {
+        for(long i = 0; i < nEvaluations; i++) {
+          Evaluation evaluation = next();
+          if(evaluation == null) throw new IllegalStateException("Nothing to breed from");
+          evaluation.call();
+          insert(evaluation);
+        }
+      }
+      else {
+        runAsynchronously(nEvaluations);
+      }
+    }
+    finally {
+      elapsed += System.nanoTime() - start;
+    }
+    return bestCost;
+  }
+
+  /**
+   * runAsynchronously
+   *
+   * Keep {@link #nInProgress} evaluations on the executor until the required
+   * number have been submitted, inserting each result as it finishes
+   *
+   * @param nEvaluations The number of evaluations to do
+   */
+  private void runAsynchronously(long nEvaluations) {
+    CompletionService<Evaluation> completion = new ExecutorCompletionService<Evaluation>(executor);
+    List<Future<Evaluation>> inProgress = new ArrayList<Future<Evaluation>>(nInProgress);
+    long toSubmit = nEvaluations;
+    try {
+      while(true) {
+        while(toSubmit > 0 && inProgress.size() < nInProgress) {
+          Evaluation evaluation = next();
+          if(evaluation == null) break;
+          inProgress.add(completion.submit(evaluation));
+          toSubmit--;
+        }
+        if(inProgress.isEmpty()) {
+          if(toSubmit > 0) throw new IllegalStateException("Nothing to breed from");
+          break;
+        }
+        Future<Evaluation> done = completion.take();
+        inProgress.remove(done);
+        insert(done.get());
+      }
+    }
+    catch(InterruptedException e) {
+      cancel(inProgress);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating offspring", e);
+    }
+    catch(ExecutionException e) {
+      cancel(inProgress);
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    catch(RuntimeException e) {
+      cancel(inProgress);
+      throw e;
+    }
+  }
+
+  /**
+   * cancel
+   *
+   * @param inProgress Evaluations to cancel if they have not finished
+   */
+  private static void cancel(List<Future<Evaluation>> inProgress) {
+    for(Future<Evaluation> evaluation: inProgress) {
+      evaluation.cancel(true);
+    }
+  }
+
+  /**
+   * next
+   *
+   * @return The next gene to evaluate: a member of the initial population not
+   *         yet evaluated, or a new offspring. If there are no evaluated
+   *         members to breed from, <code>null</code>.
+   */
+  private Evaluation next() {
+    if(nextInitial < population.length) {
+      int member = nextInitial++;
+      return new Evaluation(population[member], member);
+    }
+    if(nEvaluated == 0) return null;
+    Gene mother = population[select(true)];
+    Gene father = population[select(true)];
+    Gene baby = mother;
+    if(Math.random() < pCrossover) {
+      baby = baby.crossover(father, (int)(Math.random() * father.length));
+    }
+    if(pMutate > 0.0) {
+      baby = baby.mutate(pMutate);
+    }
+    return new Evaluation(baby, -1);
+  }
+
+  /**
+   * select
+   *
+   * @param winner <code>true</code> to choose a parent, <code>false</code> to
+   *          choose a member of the population to replace
+   * @return The index of the winner or loser of a tournament among the
+   *         evaluated members of the population
+   */
+  private int select(boolean winner) {
+    if(tournamentSize == 1) {
+      if(winner) return evaluated[(int)(Math.random() * nEvaluated)];
+      int worst = evaluated[0];
+      for(int i = 1; i < nEvaluated; i++) {
+        if(better(costs[worst], costs[evaluated[i]])) worst = evaluated[i];
+      }
+      return worst;
+    }
+    int chosen = evaluated[(int)(Math.random() * nEvaluated)];
+    for(int i = 1; i < tournamentSize; i++) {
+      int other = evaluated[(int)(Math.random() * nEvaluated)];
+      if(winner == better(costs[other], costs[chosen])) chosen = other;
+    }
+    return chosen;
+  }
+
+  /**
+   * better
+   *
+   * @param a A cost
+   * @param b Another cost
+   * @return <code>true</code> if a is strictly better than b
+   */
+  private boolean better(double a, double b) {
+    return maximise ? a > b : a < b;
+  }
+
+  /**
+   * insert
+   *
+   * Put the result of an evaluation into the population
+   *
+   * @param evaluation The finished evaluation
+   */
+  private void insert(Evaluation evaluation) {
+    evaluations++;
+    if(evaluation.member >= 0) {
+      costs[evaluation.member] = evaluation.cost;
+      evaluated[nEvaluated++] = evaluation.member;
+    }
+    else {
+      int loser = select(false);
+      if(!better(costs[loser], evaluation.cost)) {
+        population[loser] = evaluation.gene;
+        costs[loser] = evaluation.cost;
+        replacements++;
+      }
+    }
+    if(best == null || better(evaluation.cost, bestCost)) {
+      best = evaluation.gene;
+      bestCost = evaluation.cost;
+    }
+  }
+
+  /**
+   * getBestSolution
+   *
+   * @return The best solution found
+   */
+  public Gene getBestSolution() {
+    return best;
+  }
+
+  /**
+   * getBestSolutionCost
+   *
+   * @return The cost of the best solution found
+   */
+  public double getBestSolutionCost() {
+    return bestCost;
+  }
+
+  /**
+   * getPopulation
+   *
+   * @return A copy of the current population
+   */
+  public Gene[] getPopulation() {
+    return population.clone();
+  }
+
+  /**
+   * getEvaluations
+   *
+   * @return The number of evaluations completed
+   */
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  /**
+   * getReplacements
+   *
+   * @return The number of offspring that have replaced a member of the
+   *         population
+   */
+  public long getReplacements() {
+    return replacements;
+  }
+
+  /**
+   * getEvaluationsPerSecond
+   *
+   * @return The number of evaluations completed per second spent running
+   */
+  public double getEvaluationsPerSecond() {
+    return elapsed == 0L ? 0.0 : (double)evaluations * 1.0e9 / (double)elapsed;
+  }
+
+  /**
+   * Evaluation
+   *
+   * A gene to evaluate, and (once evaluated) its cost
+   *
+   * @author Gary Polhill
+   *
+   */
+  private class Evaluation implements Callable<Evaluation> {
+    final Gene gene;
+
+    /**
+     * Index of the member of the initial population, or -1 for an offspring
+     */
+    final int member;
+
+    double cost;
+
+    Evaluation(Gene gene, int member) {
+      this.gene = gene;
+      this.member = member;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Callable#call()
+     */
+    public Evaluation call() {
+      cost = costFunction.cost(gene);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * name.polhill.gary.ga: SteadyStateGATest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * SteadyStateGATest
+ * @author Gary Polhill
+ *
+ */
+public class SteadyStateGATest extends TestCase {
+
+  /**
+   * COUNT
+   *
+   * A thread-safe cost function counting ones, without waiting
+   */
+  static final ThreadSafeCostFunction COUNT = new ThreadSafeCostFunction() {
+    public double cost(Gene gene) {
+      return gene.nOnes();
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  };
+
+  /**
+   * @param name
+   */
+  public SteadyStateGATest(String name) {
+    super(name);
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.SteadyStateGA#run(long, boolean)}:
+   * the initial population is evaluated first, the best solution is the best
+   * of those evaluated, and no member of the population is replaced by a
+   * worse offspring, whether the offspring are evaluated in the calling
+   * thread or on an executor.
+   */
+  public void testRun() {
+    ExecutorService four = Executors.newFixedThreadPool(4);
+    try {
+      for(ExecutorService executor: new ExecutorService[] { null, four }) {
+        Gene[] population = GATest.population();
+        SteadyStateGA ga = new SteadyStateGA(COUNT, population, 0.5, 0.05, 2);
+        ga.setExecutor(executor, 8);
+        double initialBest = 0.0;
+        double initialWorst = GATest.GENE_LENGTH;
+        for(Gene gene: population) {
+          initialBest = Math.max(initialBest, gene.nOnes());
+          initialWorst = Math.min(initialWorst, gene.nOnes());
+        }
+        assertEquals(initialBest, ga.run(population.length, true), 0.0);
+        assertEquals(population.length, ga.getEvaluations());
+        assertEquals(0, ga.getReplacements());
+
+        ga.run(3000, true);
+        assertEquals(population.length + 3000, ga.getEvaluations());
+        assertTrue(ga.getReplacements() > 0);
+        assertEquals(GATest.GENE_LENGTH, ga.getBestSolutionCost(), 0.0);
+        assertEquals(GATest.GENE_LENGTH, ga.getBestSolution().nOnes());
+        for(Gene gene: ga.getPopulation()) {
+          assertTrue(gene.nOnes() >= initialWorst);
+        }
+        assertTrue(ga.getEvaluationsPerSecond() > 0.0);
+      }
+    }
+    finally {
+      four.shutdown();
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.SteadyStateGA#run(long, boolean)}
+   * with a tournament size of 1: the worst member of the population is
+   * replaced, so the worst cost never gets worse.
+   */
+  public void testReplaceWorst() {
+    SteadyStateGA ga = new SteadyStateGA(COUNT, GATest.population(), 0.5, 0.1, 1);
+    ga.run(GATest.POPULATION, false);
+    int worst = 0;
+    for(int i = 0; i < 50; i++) {
+      ga.run(20, false);
+      int thisWorst = 0;
+      for(Gene gene: ga.getPopulation()) {
+        thisWorst = Math.max(thisWorst, gene.nOnes());
+      }
+      if(i > 0) assertTrue(thisWorst <= worst);
+      worst = thisWorst;
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.ga.SteadyStateGA#SteadyStateGA(CostFunction, Gene[], double, double, int)}.
+   */
+  public void testArguments() {
+    try {
+      new SteadyStateGA(COUNT, new Gene[0], 0.5, 0.1, 2);
+      fail("Empty population accepted");
+    }
+    catch(IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new SteadyStateGA(COUNT, GATest.population(), 0.5, 0.1, 0);
+      fail("Tournament size 0 accepted");
+    }
+    catch(IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
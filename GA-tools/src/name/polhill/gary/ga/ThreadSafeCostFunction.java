@@ -0,0 +1,49 @@
+/*
+ * name.polhill.gary.ga: ThreadSafeCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga;
+
+/**
+ * ThreadSafeCostFunction
+ *
+ * Interface for cost functions that may be evaluated in parallel. A GA given
+ * an executor evaluates the population in parallel only if its cost function
+ * implements this interface and {@link #threadSafe()} returns
+ * <code>true</code>; other cost functions are always called from one thread
+ * at a time.
+ *
+ * @author Gary Polhill
+ *
+ */
+public interface ThreadSafeCostFunction extends CostFunction {
+
+  /**
+   * threadSafe
+   * 
+   * Whether the cost function may be called on different genes at the same
+   * time from different threads. Cost functions wrapping another one return
+   * whether the one they wrap is thread-safe.
+   * 
+   * @return <code>true</code> if {@link #cost(Gene)} is thread-safe
+   */
+  boolean threadSafe();
+
+}
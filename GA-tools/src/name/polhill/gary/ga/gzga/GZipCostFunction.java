@@ -21,38 +21,128 @@
  */
 package name.polhill.gary.ga.gzga;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 
-import name.polhill.gary.ga.CostFunction;
+import name.polhill.gary.ga.BoundedCostFunction;
 import name.polhill.gary.ga.Gene;
+import name.polhill.gary.ga.ThreadSafeCostFunction;
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.CompressedLength;
 
 /**
  * GZipCostFunction
  * 
  * Cost function based on the number of bytes in a compression of the bitstring
- * using the gzip compression algorithm
+ * using the gzip compression algorithm. The length is that GZIPOutputStream
+ * would write, measured with a {@link CompressedLength} so that no compressor
+ * is created and no compressed data kept. The gene's bytes (as given by
+ * {@link Gene#toByteArray()}) are written a chunk at a time from its words,
+ * so no byte array of the gene is created either.
+ * 
+ * Given a block size, the compressor is flushed after each block, which
+ * costs a few bytes per block but means the length of what has been
+ * compressed so far is known. Evaluations with a threshold then stop once
+ * the blocks so far show the length cannot be as good as the threshold,
+ * using {@link CompressedLength#bound(long)} for the most the remaining
+ * blocks can add. Without a block size, genes are always compressed in full.
  * 
  * @author Gary Polhill
  *
  */
-public class GZipCostFunction implements CostFunction {
+public class GZipCostFunction implements BoundedCostFunction,
+    ThreadSafeCostFunction {
+  /**
+   * Bytes of gene compressed between flushes, or 0 to compress genes without
+   * flushing
+   */
+  final int blockSize;
+
+  /**
+   * Number of evaluations stopped before the whole gene was compressed
+   */
+  final AtomicLong abandoned = new AtomicLong();
+
+  /**
+   * Constructor for a cost function compressing genes without flushing
+   */
+  public GZipCostFunction() {
+    this(0);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param blockSize Bytes of gene to compress between flushes, or 0 to
+   *          compress genes without flushing
+   */
+  public GZipCostFunction(int blockSize) {
+    if(blockSize < 0) throw new IllegalArgumentException("Negative block size: " + blockSize);
+    this.blockSize = blockSize;
+  }
 
   /* (non-Javadoc)
    * @see name.polhill.gary.ga.CostFunction#cost(name.polhill.gary.ga.Gene)
    */
   public double cost(Gene gene) {
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    return cost(gene, Double.NaN, false);
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.BoundedCostFunction#cost(name.polhill.gary.ga.Gene, double, boolean)
+   */
+  public double cost(Gene gene, double threshold, boolean maximise) {
+    CompressedLength gzip = CompressedLength.start(Deflater.DEFAULT_COMPRESSION);
     try {
-      GZIPOutputStream zip = new GZIPOutputStream(output);
-      zip.write(gene.gene.toByteArray());
-      zip.close();
-      return (double)output.size();
+      int nBytes = gene.byteArrayLength();
+      int size = blockSize > 0 ? blockSize : nBytes;
+      byte[] chunk = BitWords.chunk();
+      for(int from = 0; from < nBytes; from += size) {
+        int to = Math.min(from + size, nBytes);
+        for(int off = from; off < to; off += chunk.length) {
+          int len = Math.min(chunk.length, to - off);
+          gene.writeByteArray(off, off + len, chunk, 0);
+          gzip.write(chunk, 0, len);
+        }
+        if(to == nBytes) break;
+        gzip.flush();
+        if(Double.isNaN(threshold)) continue;
+        long length = gzip.getBytesWritten() + CompressedLength.GZIP_OVERHEAD;
+        if(maximise) {
+          int remaining = nBytes - to;
+          length += (remaining / size) * CompressedLength.bound(size) + CompressedLength.bound(remaining % size);
+          if(length < threshold) {
+            abandoned.incrementAndGet();
+            return (double)length;
+          }
+        }
+        else if(length > threshold) {
+          abandoned.incrementAndGet();
+          return (double)length;
+        }
+      }
+      return (double)(gzip.finish() + CompressedLength.GZIP_OVERHEAD);
     }
-    catch(IOException e) {
-      throw new Error(e);
+    finally {
+      gzip.close();
     }
   }
 
+  /**
+   * getAbandoned
+   * 
+   * @return The number of evaluations stopped before the whole gene was
+   *         compressed
+   */
+  public long getAbandoned() {
+    return abandoned.get();
+  }
+
+  /* (non-Javadoc)
+   * @see name.polhill.gary.ga.ThreadSafeCostFunction#threadSafe()
+   */
+  public boolean threadSafe() {
+    return true;
+  }
+
 }
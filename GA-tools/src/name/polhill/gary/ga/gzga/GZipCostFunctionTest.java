@@ -0,0 +1,145 @@
+/*
+ * name.polhill.gary.ga.gzga: GZipCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.ga.gzga;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+import name.polhill.gary.ga.Gene;
+
+/**
+ * GZipCostFunctionTest
+ *
+ * Test for the GZipCostFunction class, against the lengths of gzips written
+ * by GZIPOutputStream
+ *
+ * @author Gary Polhill
+ *
+ */
+public class GZipCostFunctionTest extends TestCase {
+  private static final int[] LENGTHS = { 1, 8, 100, 4096, 8192, 20000 };
+  private static final int BLOCK_SIZE = 64;
+
+  /**
+   * @param name
+   */
+  public GZipCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * gene
+   *
+   * @param length The number of bits in the gene
+   * @param sparsity The number of random genes to and together
+   * @return A random gene, with fewer ones the higher the sparsity
+   */
+  public static Gene gene(int length, int sparsity) {
+    Gene gene = new Gene(length);
+    gene.randomise();
+    for(int i = 1; i < sparsity; i++) {
+      Gene other = new Gene(length);
+      other.randomise();
+      gene = gene.and(other);
+    }
+    return gene;
+  }
+
+  /**
+   * gzip
+   *
+   * @param bytes Data to compress
+   * @param blockSize Bytes to write between flushes, or 0 not to flush
+   * @return The length of the gzip GZIPOutputStream writes of the data
+   * @throws IOException
+   */
+  static long gzip(byte[] bytes, int blockSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(out, true);
+    int size = blockSize > 0 ? blockSize : bytes.length;
+    for(int from = 0; from < bytes.length; from += size) {
+      int to = Math.min(from + size, bytes.length);
+      gzip.write(bytes, from, to - from);
+      if(to < bytes.length) gzip.flush();
+    }
+    gzip.close();
+    return out.size();
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.ga.gzga.GZipCostFunction#cost(Gene)}:
+   * the cost is the length of a gzip of the gene's bytes, flushed after each
+   * block if there is a block size.
+   */
+  public void testCost() throws IOException {
+    GZipCostFunction whole = new GZipCostFunction();
+    GZipCostFunction blocks = new GZipCostFunction(BLOCK_SIZE);
+    for(int length: LENGTHS) {
+      for(int sparsity = 1; sparsity < 5; sparsity++) {
+        Gene gene = gene(length, sparsity);
+        byte[] bytes = gene.toByteArray();
+        assertEquals((double)gzip(bytes, 0), whole.cost(gene), 0.0);
+        assertEquals((double)gzip(bytes, BLOCK_SIZE), blocks.cost(gene), 0.0);
+      }
+    }
+    assertEquals(0L, whole.getAbandoned());
+    assertEquals(0L, blocks.getAbandoned());
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.ga.gzga.GZipCostFunction#cost(Gene, double, boolean)}:
+   * genes at least as good as the threshold get the exact cost, and others a
+   * cost worse than the threshold that is no better than the exact cost.
+   * Without a block size, no genes are abandoned.
+   */
+  public void testBound() {
+    GZipCostFunction whole = new GZipCostFunction();
+    GZipCostFunction blocks = new GZipCostFunction(BLOCK_SIZE);
+    for(boolean maximise: new boolean[] { true, false }) {
+      for(int sparsity = 1; sparsity < 5; sparsity++) {
+        Gene gene = gene(8192, sparsity);
+        double exact = blocks.cost(gene);
+        for(double threshold: new double[] { exact / 4.0, exact / 2.0, exact - 1.0, exact, exact + 1.0,
+          exact * 2.0, exact * 4.0 }) {
+          double bound = blocks.cost(gene, threshold, maximise);
+          if(maximise ? exact >= threshold : exact <= threshold) {
+            assertEquals(exact, bound, 0.0);
+          }
+          else if(maximise) {
+            assertTrue(bound < threshold);
+            assertTrue(bound >= exact);
+          }
+          else {
+            assertTrue(bound > threshold);
+            assertTrue(bound <= exact);
+          }
+          assertEquals(whole.cost(gene), whole.cost(gene, threshold, maximise), 0.0);
+        }
+      }
+    }
+    assertTrue(blocks.getAbandoned() > 0L);
+    assertEquals(0L, whole.getAbandoned());
+  }
+}
@@ -23,8 +23,8 @@ package name.polhill.gary.ga.intga;
 
 import java.math.BigInteger;
 
-import name.polhill.gary.ga.CostFunction;
 import name.polhill.gary.ga.Gene;
+import name.polhill.gary.ga.ThreadSafeCostFunction;
 
 /**
  * IntCostFunction
@@ -35,7 +35,7 @@ import name.polhill.gary.ga.Gene;
  * @author Gary Polhill
  * 
  */
-public class IntCostFunction implements CostFunction {
+public class IntCostFunction implements ThreadSafeCostFunction {
   public static boolean GRAY_CODE = true;
 
   public BigInteger value;
@@ -50,8 +50,22 @@ public class IntCostFunction implements CostFunction {
    * @see name.polhill.gary.ga.CostFunction#cost(name.polhill.gary.ga.Gene)
    */
   public double cost(Gene gene) {
+    if(gene.length < 64 && value.signum() >= 0 && value.bitLength() < 64) {
+      // Both fit in a non-negative long, so the difference is exact
+      long decode = GRAY_CODE ? gene.inverseGrayCodeLong() : gene.toLong();
+      return Math.abs((double)(decode - value.longValue()));
+    }
     Gene decode = GRAY_CODE ? gene.inverseGrayCode() : gene.clone();
-    return Math.abs(decode.gene.subtract(value).doubleValue());
+    return Math.abs(decode.toBigInteger().subtract(value).doubleValue());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see name.polhill.gary.ga.ThreadSafeCostFunction#threadSafe()
+   */
+  public boolean threadSafe() {
+    return true;
   }
   
   public static void main(String[] args) {
@@ -19,6 +19,10 @@
  */
 package name.polhill.gary.mcga;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
  * <!-- AbstractChromosome -->
  * 
@@ -51,6 +55,21 @@ public abstract class AbstractChromosome implements Chromosome {
    */
   protected Cost[] cost;
 
+  /**
+   * <!-- costFunction -->
+   * 
+   * The cost function used to compute the stored cost, or <code>null</code>
+   * if the Chromosome has changed since (or the cost was not computed)
+   */
+  protected CostFunction costFunction;
+
+  /**
+   * <!-- costFingerprint -->
+   * 
+   * The {@link #fingerprint()} of the Chromosome when its cost was stored
+   */
+  protected long costFingerprint;
+
   /**
    * <!-- AbstractChromosome constructor -->
    * 
@@ -94,9 +113,69 @@ public abstract class AbstractChromosome implements Chromosome {
   @Override
   public Cost[] calcCost(CostFunction func) {
     cost = func.cost(this);
+    costFunction = func;
+    costFingerprint = fingerprint();
     return cost;
   }
 
+  /**
+   * <!-- setCost -->
+   * 
+   * Set the <i>stored</i> cost of the Chromosome to a cost computed elsewhere
+   * using the specified function (for example, by a
+   * {@link BatchCostFunction} evaluating many Chromosomes at once)
+   * 
+   * @param cost
+   * @param func
+   */
+  public void setCost(Cost[] cost, CostFunction func) {
+    this.cost = cost;
+    costFunction = func;
+    costFingerprint = fingerprint();
+  }
+
+  /**
+   * <!-- costValid -->
+   * 
+   * Check whether the <i>stored</i> cost was computed using the specified
+   * function, and the Chromosome has not changed since. Copies of a Chromosome
+   * share the validity of its cost, so they need not be evaluated again. As
+   * well as the genetic operators, which invalidate the cost, the contents of
+   * a Chromosome may be changed through its genes (see {@link #geneAt(int)}),
+   * so the {@link #fingerprint()} must also be the same as when the cost was
+   * stored.
+   * 
+   * @param func
+   * @return <code>true</code> if the stored cost is the cost using func
+   */
+  public boolean costValid(CostFunction func) {
+    return cost != null && costFunction == func && costFingerprint == fingerprint();
+  }
+
+  /**
+   * <!-- fingerprint -->
+   * 
+   * Default implementation, for Chromosomes that cannot be changed other than
+   * by methods that invalidate the cost: 0L
+   * 
+   * @return A 64-bit fingerprint of the contents of the Chromosome, used to
+   *         check its stored cost is still valid. Chromosomes with equal
+   *         contents have equal fingerprints.
+   */
+  protected long fingerprint() {
+    return 0L;
+  }
+
+  /**
+   * <!-- invalidateCost -->
+   * 
+   * Record that the Chromosome has changed since its cost was computed. The
+   * stored cost is still available from {@link #getCost()}.
+   */
+  protected void invalidateCost() {
+    costFunction = null;
+  }
+
   /**
    * <!-- comparableWith -->
    * 
@@ -238,4 +317,46 @@ public abstract class AbstractChromosome implements Chromosome {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * <!-- byteSize -->
+   * 
+   * @return The number of bytes written by the writeTo methods: the sum of
+   *         the byteSize of each Gene (see {@link Chromosome.Tools#byteSize(Gene)})
+   */
+  public long byteSize() {
+    long size = 0;
+    for(int i = 0; i < nGenes(); i++) {
+      size += Tools.byteSize(geneAt(i));
+    }
+    return size;
+  }
+
+  /**
+   * <!-- writeTo -->
+   * 
+   * Write each Gene in turn to a buffer using
+   * {@link Chromosome.Tools#writeTo(Gene, ByteBuffer)}
+   * 
+   * @param buffer
+   */
+  public void writeTo(ByteBuffer buffer) {
+    for(int i = 0; i < nGenes(); i++) {
+      Tools.writeTo(geneAt(i), buffer);
+    }
+  }
+
+  /**
+   * <!-- writeTo -->
+   * 
+   * Write each Gene in turn to a stream using
+   * {@link Chromosome.Tools#writeTo(Gene, OutputStream)}
+   * 
+   * @param out
+   * @throws IOException
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    for(int i = 0; i < nGenes(); i++) {
+      Tools.writeTo(geneAt(i), out);
+    }
+  }
+}
@@ -20,6 +20,10 @@
  */
 package name.polhill.gary.mcga;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
  * <!-- AbstractGene -->
  *
@@ -46,4 +50,42 @@ public abstract class AbstractGene implements Gene {
   @Override
   public abstract AbstractGene clone();
 
+  /**
+   * <!-- byteSize -->
+   * 
+   * Subclasses whose {@link #toByteArray()} length depends on the data should
+   * override this and the writeTo methods.
+   * 
+   * @return The number of bytes written by the writeTo methods
+   */
+  public long byteSize() {
+    return toByteArray().length;
+  }
+
+  /**
+   * <!-- writeTo -->
+   * 
+   * Write the data in the gene to a buffer as exactly {@link #byteSize()}
+   * bytes. Subclasses may override this to write the data without creating
+   * an array.
+   * 
+   * @param buffer
+   */
+  public void writeTo(ByteBuffer buffer) {
+    buffer.put(toByteArray());
+  }
+
+  /**
+   * <!-- writeTo -->
+   * 
+   * Write the data in the gene to a stream, as for
+   * {@link #writeTo(ByteBuffer)}
+   * 
+   * @param out
+   * @throws IOException
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(toByteArray());
+  }
+
 }
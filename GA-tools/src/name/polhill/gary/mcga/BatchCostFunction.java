@@ -0,0 +1,57 @@
+/*
+ * name.polhill.gary.mcga: BatchCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+/**
+ * <!-- BatchCostFunction -->
+ *
+ * Interface for cost functions that evaluate many Chromosomes in one call, so
+ * that any setting up can be shared between them. The MCGA gives the members
+ * of the population needing evaluation to a batch cost function in slices of
+ * at most {@link #batchSize()} Chromosomes; if the cost function is
+ * thread-safe and the MCGA has an executor, the slices are evaluated
+ * concurrently. Cost functions that evaluate one Chromosome at a time can be
+ * used where a batch cost function is needed with
+ * {@link BatchCostFunctionAdapter}.
+ *
+ * @author Gary Polhill
+ */
+public interface BatchCostFunction extends CostFunction {
+
+  /**
+   * <!-- cost -->
+   *
+   * Function returning the costs of several Chromosomes. This should not
+   * change the stored costs of the Chromosomes.
+   *
+   * @param chromosomes The members of the population to compute the cost of
+   * @return The costs, in the same order as the Chromosomes
+   */
+  Cost[][] cost(Chromosome[] chromosomes);
+
+  /**
+   * <!-- batchSize -->
+   *
+   * @return The largest number of Chromosomes to pass to
+   *         {@link #cost(Chromosome[])} in one call, or 0 to pass them all
+   */
+  int batchSize();
+}
@@ -0,0 +1,102 @@
+/*
+ * name.polhill.gary.mcga: BatchCostFunctionAdapter.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+/**
+ * <!-- BatchCostFunctionAdapter -->
+ *
+ * A batch cost function evaluating each Chromosome in turn with a cost
+ * function that does not evaluate batches. The batch size is 1, so an MCGA
+ * with an executor evaluates each Chromosome in a separate task.
+ *
+ * @author Gary Polhill
+ */
+public class BatchCostFunctionAdapter implements BatchCostFunction,
+    ThreadSafeCostFunction {
+  /**
+   * <!-- costFunction -->
+   *
+   * The cost function evaluating each Chromosome
+   */
+  private final CostFunction costFunction;
+
+  /**
+   * <!-- BatchCostFunctionAdapter constructor -->
+   *
+   * @param costFunction The cost function evaluating each Chromosome
+   */
+  public BatchCostFunctionAdapter(CostFunction costFunction) {
+    this.costFunction = costFunction;
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#cost(name.polhill.gary.mcga.Chromosome[])
+   */
+  @Override
+  public Cost[][] cost(Chromosome[] chromosomes) {
+    Cost[][] costs = new Cost[chromosomes.length][];
+    for(int i = 0; i < chromosomes.length; i++) {
+      costs[i] = costFunction.cost(chromosomes[i]);
+    }
+    return costs;
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public Cost[] cost(Chromosome chromosome) {
+    return costFunction.cost(chromosome);
+  }
+
+  /**
+   * <!-- batchSize -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#batchSize()
+   */
+  @Override
+  public int batchSize() {
+    return 1;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return MCGA.threadSafe(costFunction);
+  }
+
+  /**
+   * <!-- getCostFunction -->
+   *
+   * @return The cost function evaluating each Chromosome
+   */
+  public CostFunction getCostFunction() {
+    return costFunction;
+  }
+}
@@ -22,10 +22,18 @@
  */
 package name.polhill.gary.mcga;
 
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.Hamming;
+
 /**
  * BitStringChromosome
  * 
- * A Chromosome containing an array of BitStringGenes
+ * A Chromosome containing an array of BitStringGenes. A Chromosome and its
+ * copies share the storage of their genes (see {@link BitStringGene#share()}),
+ * so the genetic operators only copy the words of the genes they change. A
+ * gene returned by {@link #geneAt(int)} copies its words before it is
+ * changed, so changing it does not affect other Chromosomes; it does make
+ * the stored cost of this one invalid, as the fingerprint changes.
  * 
  * @author Gary Polhill
  */
@@ -118,24 +126,49 @@ public class BitStringChromosome extends AbstractChromosome implements Chromosom
   /**
    * <!-- BitStringChromosome constructor -->
    * 
-   * Construct this Chromosome as a clone of the other
+   * Construct this Chromosome as a clone of the other. The genes share the
+   * storage of the other Chromosome's genes until either is changed.
    * 
    * @param other
    */
   public BitStringChromosome(BitStringChromosome other) {
     genes = new BitStringGene[other.genes.length];
-    long size = 0;
     for(int i = 0; i < genes.length; i++) {
-      size += other.genes[i].size();
-      genes[i] = other.genes[i].clone();
+      genes[i] = other.genes[i].share();
     }
-    this.size = size;
+    size = other.size;
+    copyCost(other);
+  }
+
+  /**
+   * <!-- BitStringChromosome constructor -->
+   * 
+   * Construct a Chromosome from genes derived from another's, with a copy of
+   * its cost
+   * 
+   * @param genes
+   * @param other
+   */
+  private BitStringChromosome(BitStringGene[] genes, BitStringChromosome other) {
+    this.genes = genes;
+    size = other.size;
+    copyCost(other);
+  }
+
+  /**
+   * <!-- copyCost -->
+   * 
+   * @param other Chromosome whose stored cost, and its validity, to copy
+   */
+  private void copyCost(BitStringChromosome other) {
     if(other.cost != null) {
       cost = new Cost[other.cost.length];
       for(int i = 0; i < cost.length; i++) {
 	cost[i] = other.cost[i].clone();
       }
     }
+    costFunction = other.costFunction;
+    costFingerprint = other.costFingerprint;
   }
 
   public boolean sameConfiguration(Chromosome other) {
@@ -174,25 +207,28 @@ public class BitStringChromosome extends AbstractChromosome implements Chromosom
     if(point <= 0) return other.clone();
     if(point >= size) return clone();
     
-    // Initialise crossover
-
-    BitStringChromosome bsother = (BitStringChromosome)other;
-    BitStringChromosome crossover = bsother.clone();
-    
-    // Find the crossover gene, filling in this chromosome from the left
+    // Find the crossover gene, filling in this chromosome's genes from the left
     
+    BitStringChromosome bsother = (BitStringChromosome)other;
+    BitStringGene[] children = new BitStringGene[genes.length];
     long pointfind = 0;
     int point_i;
     for(point_i = 0; point_i < genes.length; point_i++) {
       pointfind += genes[point_i].size();
       if(point <= pointfind) break;
-      else crossover.genes[point_i] = genes[point_i].clone(); 
+      else children[point_i] = genes[point_i].share();
     }
     
-    // Crossover within the crossover gene
+    // Crossover within the crossover gene, and share the other chromosome's
+    // genes after it
     
     pointfind -= genes[point_i].size();
-    crossover.genes[point_i] = crossover.genes[point_i].crossover(genes[point_i], (int)(point - pointfind));
+    children[point_i] = bsother.genes[point_i].crossover(genes[point_i], (int)(point - pointfind));
+    for(int i = point_i + 1; i < genes.length; i++) {
+      children[i] = bsother.genes[i].share();
+    }
+    BitStringChromosome crossover = new BitStringChromosome(children, bsother);
+    crossover.invalidateCost();
     
     return crossover;
   }
@@ -200,13 +236,21 @@ public class BitStringChromosome extends AbstractChromosome implements Chromosom
   /**
    * <!-- mutate -->
    * 
+   * Genes in which no bits are mutated share the storage of this
+   * Chromosome's genes. If no bits are mutated at all, the cost of this
+   * Chromosome remains valid for the mutation.
+   * 
    * @see name.polhill.gary.mcga.Chromosome#mutate(double)
    */
   public Chromosome mutate(double pMutate) {
-    BitStringChromosome chromosome = clone();
+    BitStringGene[] mutation = new BitStringGene[genes.length];
+    boolean mutated = false;
     for(int i = 0; i < genes.length; i++) {
-      chromosome.genes[i] = chromosome.genes[i].mutate(pMutate);
+      mutation[i] = genes[i].mutate(pMutate);
+      if(mutation[i].bits != genes[i].bits) mutated = true;
     }
+    BitStringChromosome chromosome = new BitStringChromosome(mutation, this);
+    if(mutated) chromosome.invalidateCost();
     return chromosome;
   }
 
@@ -219,6 +263,7 @@ public class BitStringChromosome extends AbstractChromosome implements Chromosom
     for(int i = 0; i < genes.length; i++) {
       genes[i].randomise();
     }
+    invalidateCost();
 
     return this;
   }
@@ -258,4 +303,117 @@ public class BitStringChromosome extends AbstractChromosome implements Chromosom
   public int nGenes() {
     return genes.length;
   }
+
+  /**
+   * <!-- difference -->
+   * 
+   * BitStringChromosomes with the same classes of gene are compared directly
+   * as the proportion of bits that differ, skipping shared genes.
+   * 
+   * @see name.polhill.gary.mcga.AbstractChromosome#difference(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public double difference(Chromosome other) {
+    if(!sameGeneClasses(other)) return super.difference(other);
+    BitStringChromosome bsother = (BitStringChromosome)other;
+    long diff = 0;
+    for(int i = 0; i < genes.length; i++) {
+      diff += Hamming.distance(genes[i].bits, bsother.genes[i].bits);
+    }
+    return (double)diff / (double)size;
+  }
+
+  /**
+   * <!-- sameGeneClasses -->
+   * 
+   * @param other
+   * @return <code>true</code> if the other Chromosome is of the same class and
+   *         configuration as this one, and its genes are of the same classes
+   */
+  boolean sameGeneClasses(Chromosome other) {
+    if(other.getClass() != getClass() || !sameConfiguration(other)) return false;
+    BitStringChromosome bsother = (BitStringChromosome)other;
+    for(int i = 0; i < genes.length; i++) {
+      if(bsother.genes[i].getClass() != genes[i].getClass()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * <!-- nWords -->
+   * 
+   * @return The number of words needed to store the genes end to end
+   */
+  int nWords() {
+    int nWords = 0;
+    for(int i = 0; i < genes.length; i++) {
+      nWords += genes[i].bits.length;
+    }
+    return nWords;
+  }
+
+  /**
+   * <!-- addTo -->
+   * 
+   * Add this Chromosome as a row to the column counts of a population
+   * 
+   * @param counter Counter with {@link #nWords()} words per row
+   */
+  void addTo(Hamming.ColumnCounter counter) {
+    int at = 0;
+    for(int i = 0; i < genes.length; i++) {
+      counter.add(genes[i].bits, at);
+      at += genes[i].bits.length;
+    }
+    counter.nextRow();
+  }
+
+  /**
+   * <!-- fingerprint -->
+   * 
+   * The fingerprint is combined from the fingerprints cached in the genes, so
+   * it costs one operation per gene rather than one per bit.
+   * 
+   * @see name.polhill.gary.mcga.AbstractChromosome#fingerprint()
+   */
+  @Override
+  public long fingerprint() {
+    long fingerprint = 0L;
+    for(int i = 0; i < genes.length; i++) {
+      fingerprint ^= BitWords.mix(genes[i].fingerprint(), i);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * <!-- equals -->
+   * 
+   * Chromosomes are equal if they are of the same class and have equal genes
+   * (regardless of their costs). Shared genes are compared by reference, and
+   * the others by fingerprint before their bits are compared.
+   * 
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if(obj == this) return true;
+    if(obj == null || obj.getClass() != getClass()) return false;
+    BitStringChromosome other = (BitStringChromosome)obj;
+    if(other.genes.length != genes.length || other.size != size) return false;
+    for(int i = 0; i < genes.length; i++) {
+      if(!genes[i].equals(other.genes[i])) return false;
+    }
+    return true;
+  }
+
+  /**
+   * <!-- hashCode -->
+   * 
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    long fingerprint = fingerprint();
+    return (int)(fingerprint ^ (fingerprint >>> 32));
+  }
 }
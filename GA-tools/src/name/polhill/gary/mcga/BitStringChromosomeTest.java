@@ -0,0 +1,142 @@
+/*
+ * name.polhill.gary.mcga: BitStringChromosomeTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- BitStringChromosomeTest -->
+ *
+ * Test for the BitStringChromosome class
+ *
+ * @author Gary Polhill
+ */
+public class BitStringChromosomeTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 100, 3, 64, 1000 };
+
+  /**
+   * <!-- ONES -->
+   *
+   * A cost function counting ones
+   */
+  private static final CostFunction ONES = new CostFunction() {
+    public Cost[] cost(Chromosome chromosome) {
+      int ones = 0;
+      for(int i = 0; i < chromosome.nGenes(); i++) {
+	ones += ((BitStringGene)chromosome.geneAt(i)).nOnes();
+      }
+      return new Cost[] { new DoubleCost(ones) };
+    }
+  };
+
+  /**
+   * @param name
+   */
+  public BitStringChromosomeTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.BitStringChromosome#mutate(double)}: genes
+   * with no bits mutated share their storage, and the cost stays valid only if
+   * no bits were mutated.
+   */
+  public void testMutate() {
+    BitStringChromosome chromosome = (BitStringChromosome)new BitStringChromosome(GENE_LENGTHS).randomise();
+    chromosome.calcCost(ONES);
+
+    BitStringChromosome same = (BitStringChromosome)chromosome.mutate(0.0);
+    assertEquals(chromosome, same);
+    assertTrue(same.costValid(ONES));
+    for(int i = 0; i < GENE_LENGTHS.length; i++) {
+      assertSame(chromosome.genes[i].bits, same.genes[i].bits);
+    }
+
+    int changed = 0;
+    for(int t = 0; t < 100; t++) {
+      BitStringChromosome mutation = (BitStringChromosome)chromosome.mutate(0.002);
+      boolean mutated = false;
+      for(int i = 0; i < GENE_LENGTHS.length; i++) {
+	if(mutation.genes[i].bits == chromosome.genes[i].bits) continue;
+	mutated = true;
+	changed++;
+      }
+      assertEquals(!mutated, mutation.costValid(ONES));
+      assertEquals(0, chromosome.getCost()[0].compareTo(mutation.getCost()[0]));
+    }
+    assertTrue(changed > 0 && changed < 100 * GENE_LENGTHS.length);
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.BitStringChromosome#crossover(Chromosome, long)}:
+   * genes either side of the point share the parents' storage.
+   */
+  public void testCrossover() {
+    BitStringChromosome mother = (BitStringChromosome)new BitStringChromosome(GENE_LENGTHS).randomise();
+    BitStringChromosome father = (BitStringChromosome)new BitStringChromosome(GENE_LENGTHS).randomise();
+    BitStringChromosome child = (BitStringChromosome)mother.crossover(father, 150);
+    assertSame(mother.genes[0].bits, child.genes[0].bits);
+    assertSame(mother.genes[1].bits, child.genes[1].bits);
+    assertNotSame(father.genes[2].bits, child.genes[2].bits);
+    assertSame(father.genes[3].bits, child.genes[3].bits);
+    for(int i = 0; i < 64; i++) {
+      assertEquals(i < 47 ? father.genes[2].getBit(i) : mother.genes[2].getBit(i), child.genes[2].getBit(i));
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.BitStringChromosome#geneAt(int)}:
+   * changing a gene of a Chromosome does not change a copy of it.
+   */
+  public void testCopyOnWrite() {
+    BitStringChromosome chromosome = new BitStringChromosome(GENE_LENGTHS);
+    BitStringChromosome copy = chromosome.clone();
+    ((BitStringGene)chromosome.geneAt(3)).setBit(10, true);
+    assertTrue(((BitStringGene)chromosome.geneAt(3)).getBit(10));
+    assertFalse(((BitStringGene)copy.geneAt(3)).getBit(10));
+    assertFalse(chromosome.equals(copy));
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.BitStringChromosome#equals(Object)}
+   * and {@link name.polhill.gary.mcga.BitStringChromosome#hashCode()}:
+   * Chromosomes are compared by content.
+   */
+  public void testEquals() {
+    BitStringChromosome chromosome = (BitStringChromosome)new BitStringChromosome(GENE_LENGTHS).randomise();
+    BitStringChromosome copy = new BitStringChromosome(GENE_LENGTHS);
+    for(int i = 0; i < GENE_LENGTHS.length; i++) {
+      for(int b = 0; b < GENE_LENGTHS[i]; b++) {
+	copy.genes[i].setBit(b, chromosome.genes[i].getBit(b));
+      }
+    }
+    assertEquals(chromosome, copy);
+    assertEquals(chromosome.hashCode(), copy.hashCode());
+    assertEquals(chromosome.fingerprint(), copy.fingerprint());
+
+    copy.genes[1].setBit(2, !copy.genes[1].getBit(2));
+    assertFalse(chromosome.equals(copy));
+    assertFalse(chromosome.fingerprint() == copy.fingerprint());
+  }
+}
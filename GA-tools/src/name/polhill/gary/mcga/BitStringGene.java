@@ -21,24 +21,58 @@
  */
 package name.polhill.gary.mcga;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.GeometricMutator;
+import name.polhill.gary.util.Hamming;
+
 /**
  * Gene
  * 
- * A gene class using BigInteger to store the genome. A better implementation
- * would abstract the Gene class from the GA too (not all GAs encode solutions
- * using bitstrings).
+ * A gene class storing the genome as a fixed-length array of longs, so that
+ * the genetic operators work a word at a time. A better implementation would
+ * abstract the Gene class from the GA too (not all GAs encode solutions using
+ * bitstrings).
  * 
  * @author Gary Polhill
  * 
  */
 public class BitStringGene extends AbstractGene implements Cloneable, Gene {
-  public BigInteger gene;
+  /**
+   * The bits of the genome, packed 64 to a word (see {@link BitWords})
+   */
+  long[] bits;
   public int length;
   Random randomiser;
-  public Cost cost[];
+  private Cost cost[];
+
+  /**
+   * Whether the words in {@link #bits} may also be the storage of another
+   * gene (see {@link #share()}). If so, the methods that change the bits copy
+   * them first.
+   */
+  boolean shared;
+
+  /**
+   * Cached fingerprint of the bits (see {@link BitWords#fingerprint(long[])}),
+   * kept up to date by the methods that change them
+   */
+  long fingerprint;
+
+  /**
+   * Cached fingerprints of the blocks of the bits (see
+   * {@link BitWords#blockFingerprints(long[])}), or <code>null</code> until
+   * they are first asked for; then kept up to date by the methods that change
+   * the bits, and shared and copied along with them
+   */
+  private volatile long[] blocks;
 
   /**
    * Constructor using a specified size. The gene will be initialised to zero.
@@ -46,10 +80,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @param size The size of the gene.
    */
   public BitStringGene(int size) {
-    length = size;
-    randomiser = new Random();
-    gene = new BigInteger(size, randomiser);
-    gene = gene.multiply(BigInteger.ZERO);
+    this(size, new long[BitWords.nWords(size)], new Random());
   }
 
   /**
@@ -59,8 +90,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @param data The data to store in it
    */
   public BitStringGene(int size, byte[] data) {
-    this(size);
-    gene = gene.or(new BigInteger(data));
+    this(size, BitWords.fromByteArray(data, size), new Random());
   }
 
   /**
@@ -70,8 +100,85 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @param data The data to store in it
    */
   public BitStringGene(int size, BigInteger data) {
-    this(size);
-    gene = gene.or(data);
+    this(size, BitWords.fromBigInteger(data, size), new Random());
+  }
+
+  /**
+   * <!-- BitStringGene constructor -->
+   * 
+   * Constructor taking ownership of an array of words. Genes derived from
+   * another gene share its random number generator rather than creating a new
+   * one.
+   * 
+   * @param size The size of the gene
+   * @param bits The words to use as the gene's storage
+   * @param randomiser The random number generator
+   */
+  protected BitStringGene(int size, long[] bits, Random randomiser) {
+    this(size, bits, randomiser, BitWords.fingerprint(bits));
+  }
+
+  /**
+   * <!-- BitStringGene constructor -->
+   * 
+   * Constructor taking ownership of an array of words whose fingerprint is
+   * already known
+   * 
+   * @param size The size of the gene
+   * @param bits The words to use as the gene's storage
+   * @param randomiser The random number generator
+   * @param fingerprint The fingerprint of the words
+   */
+  protected BitStringGene(int size, long[] bits, Random randomiser, long fingerprint) {
+    length = size;
+    this.bits = bits;
+    this.randomiser = randomiser;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * <!-- create -->
+   * 
+   * Create a gene of the same class as this one from an array of words.
+   * 
+   * @param bits The words to use as the new gene's storage
+   * @return The new gene
+   */
+  protected final BitStringGene create(long[] bits) {
+    return create(bits, BitWords.fingerprint(bits));
+  }
+
+  /**
+   * <!-- create -->
+   * 
+   * Create a gene of the same class as this one from an array of words whose
+   * fingerprint is known. This is used by the genetic operators so that
+   * subclasses get genes of their own class back from crossover and mutation.
+   * 
+   * @param bits The words to use as the new gene's storage
+   * @param fingerprint The fingerprint of the words
+   * @return The new gene
+   */
+  protected BitStringGene create(long[] bits, long fingerprint) {
+    return new BitStringGene(length, bits, randomiser, fingerprint);
+  }
+
+  /**
+   * <!-- share -->
+   * 
+   * Return a gene of the same class and contents as this one that shares its
+   * storage. Neither gene sees changes made to the other, since whichever is
+   * changed first copies the words before changing them, but no words are
+   * copied if neither is changed.
+   * 
+   * @return The copy
+   */
+  BitStringGene share() {
+    shared = true;
+    BitStringGene copy = create(bits, fingerprint);
+    copy.blocks = blocks;
+    copy.shared = true;
+    return copy;
   }
 
   /*
@@ -80,7 +187,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @see java.lang.Object#clone()
    */
   public BitStringGene clone() {
-    return new BitStringGene(length, gene);
+    return new BitStringGene(length, bits.clone(), randomiser, fingerprint);
   }
 
   /**
@@ -90,7 +197,13 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * set to 1 or 0.
    */
   public Gene randomise() {
-    gene = new BigInteger(length, randomiser);
+    if(shared) {
+      bits = new long[bits.length];
+      shared = false;
+    }
+    BitWords.randomise(bits, length, randomiser);
+    fingerprint = BitWords.fingerprint(bits);
+    blocks = null;
     return this;
   }
 
@@ -106,17 +219,26 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    */
   public BitStringGene crossover(Gene other, int point) {
     BitStringGene other2 = (BitStringGene)other;
-    BigInteger crossover = new BigInteger(gene.toByteArray());
-    for(int i = point; i < other2.length; i++) {
-      if(other2.gene.testBit(i)) crossover = crossover.setBit(i);
-      else
-        crossover = crossover.clearBit(i);
-    }
-    if(this instanceof GrayCodeBitStringGene) {
-      // There must be a more elegant way than this...
-      return new GrayCodeBitStringGene(length, crossover);
+    long[] crossover = bits.clone();
+    BitWords.splice(crossover, other2.bits, point);
+    BitWords.clearUnused(crossover, length);
+    int from = Math.max(point, 0) >>> 6;
+    BitStringGene child = create(crossover, BitWords.fingerprint(fingerprint, bits, crossover, from));
+    long[] mine = blocks;
+    long[] theirs = other2.blocks;
+    if(mine != null && theirs != null && mine.length == theirs.length) {
+      int b = Math.min(from / BitWords.BLOCK_WORDS, mine.length);
+      long[] prints = new long[mine.length];
+      System.arraycopy(mine, 0, prints, 0, b);
+      if(b < prints.length) {
+        prints[b] =
+          BitWords.fingerprint(crossover, b * BitWords.BLOCK_WORDS,
+                               Math.min((b + 1) * BitWords.BLOCK_WORDS, crossover.length));
+        System.arraycopy(theirs, b + 1, prints, b + 1, prints.length - b - 1);
+      }
+      child.blocks = prints;
     }
-    return new BitStringGene(length, crossover);
+    return child;
   }
 
   /**
@@ -125,25 +247,23 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * Return a gene that is a mutation of this one. Each bit has a pMutate
    * probability of being set to a <i>random</i> value. Thus the expected
    * number of bits that differ between this gene and the returned gene is
-   * pMutate * length / 2.
+   * pMutate * length / 2. If no bits are chosen for mutation, the result
+   * shares this gene's storage (see {@link #share()}). The bits to mutate are chosen using a
+   * {@link GeometricMutator}, so the time taken depends on the number of bits
+   * mutated rather than the length of the gene.
    * 
    * @param pMutate The mutation probability of each bit
    * @return The result of the mutation
    */
   public BitStringGene mutate(double pMutate) {
-    BigInteger mutation = new BigInteger(gene.toByteArray());
-    for(int i = 0; i < length; i++) {
-      if(randomiser.nextDouble() < pMutate) {
-        if(randomiser.nextBoolean()) mutation = mutation.setBit(i);
-        else
-          mutation = mutation.clearBit(i);
-      }
-    }
-    if(this instanceof GrayCodeBitStringGene) {
-      // There must be a more elegant way than this...
-      return new GrayCodeBitStringGene(length, mutation);
-    }
-    return new BitStringGene(length, mutation);
+    GeometricMutator mutator = new GeometricMutator(pMutate, randomiser);
+    long bit = mutator.next(-1);
+    if(bit >= length) return share();
+    long[] mutation = bits.clone();
+    long[] prints = blocks == null ? null : blocks.clone();
+    BitStringGene child = create(mutation, mutator.mutate(mutation, length, bit, fingerprint, prints));
+    child.blocks = prints;
+    return child;
   }
 
   /**
@@ -155,8 +275,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The bitwise AND of this gene with the argument
    */
   public BitStringGene and(BitStringGene other) {
-    BigInteger and = new BigInteger(gene.toByteArray());
-    return new BitStringGene(length, and.and(other.gene));
+    return new BitStringGene(length, BitWords.and(bits, other.bits), randomiser);
   }
 
   /**
@@ -168,8 +287,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The bitwise XOR of this gene with the argument
    */
   public BitStringGene xor(BitStringGene other) {
-    BigInteger xor = new BigInteger(gene.toByteArray());
-    return new BitStringGene(length, xor.xor(other.gene));
+    return new BitStringGene(length, BitWords.xor(bits, other.bits, length), randomiser);
   }
 
   /**
@@ -193,22 +311,36 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The resulting gene
    */
   public BitStringGene rsh(int i) {
-    BigInteger rsh = new BigInteger(gene.toByteArray());
-    return new BitStringGene(length, rsh.shiftRight(i));
+    return new BitStringGene(length, BitWords.shiftRight(bits, i), randomiser);
   }
 
   /**
    * setBit
    * 
-   * Set the specified bit of this gene to the value given
+   * Set the specified bit of this gene to the value given. As when the gene
+   * was stored in a BigInteger, a negative bit is an error; but bits at or
+   * beyond the length of the gene, which the BigInteger would have grown to
+   * hold, are now ignored.
    *
    * @param bit The bit to set (0..length - 1)
    * @param value The value to set it to (true == 1; false == 0)
+   * @throws ArithmeticException if the bit is negative
    */
   public void setBit(int bit, boolean value) {
-    if(value) gene = gene.setBit(bit);
-    else
-      gene = gene.clearBit(bit);
+    if(bit < 0) throw new ArithmeticException("Negative bit address");
+    if(bit >= length) return;
+    long[] prints = blocks;
+    if(shared) {
+      bits = bits.clone();
+      if(prints != null) blocks = prints = prints.clone();
+      shared = false;
+    }
+    int w = bit >>> 6;
+    long word = bits[w];
+    BitWords.setBit(bits, bit, value);
+    long change = BitWords.mix(word, w) ^ BitWords.mix(bits[w], w);
+    fingerprint ^= change;
+    if(prints != null) prints[w / BitWords.BLOCK_WORDS] ^= change;
   }
   
   /**
@@ -218,7 +350,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The value of that bit
    */
   public boolean getBit(int bit) {
-    return gene.testBit(bit);
+    return bit >= 0 && bit < length && BitWords.getBit(bits, bit);
   }
 
   /**
@@ -227,11 +359,7 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The number of ones in this bitstring
    */
   public int nOnes() {
-    int ones = 0;
-    for(int i = 0; i < length; i++) {
-      if(gene.testBit(i)) ones++;
-    }
-    return ones;
+    return Hamming.weight(bits);
   }
 
   /**
@@ -240,22 +368,14 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    * @return The number of zeros in this bitstring
    */
   public long nZeros() {
-    int zeros = 0;
-    for(int i = 0; i < length; i++) {
-      if(!gene.testBit(i)) zeros++;
-    }
-    return zeros;
+    return length - nOnes();
   }
 
   /* (non-Javadoc)
    * @see java.lang.Object#toString()
    */
   public String toString() {
-    StringBuffer geneStr = new StringBuffer(gene.toString(2));
-    while(geneStr.length() < length) {
-      geneStr = (new StringBuffer("0")).append(geneStr);
-    }
-    return geneStr.toString();
+    return BitWords.toString(bits, length);
   }
 
 
@@ -266,6 +386,72 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
     return length;
   }
 
+  /**
+   * <!-- fingerprint -->
+   *
+   * @return A 64-bit fingerprint of the contents of the gene. Genes with equal
+   *         contents have equal fingerprints.
+   */
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * <!-- fingerprint -->
+   *
+   * Fingerprint some of the words of the gene from the fingerprints of its
+   * blocks, which are computed when first asked for and then kept up to date
+   * as the gene is changed, so that the words themselves need not be read.
+   *
+   * @param from The first word, a multiple of {@link BitWords#BLOCK_WORDS}
+   * @param to One more than the last word, a multiple of
+   *          {@link BitWords#BLOCK_WORDS} or the number of words
+   * @return The fingerprint of the words (see
+   *         {@link BitWords#fingerprint(long[], int, int)})
+   */
+  public long fingerprint(int from, int to) {
+    if(from % BitWords.BLOCK_WORDS != 0 || (to % BitWords.BLOCK_WORDS != 0 && to != bits.length)) {
+      throw new IllegalArgumentException("Words " + from + " to " + to + " are not whole blocks");
+    }
+    long[] prints = blocks;
+    if(prints == null) {
+      prints = BitWords.blockFingerprints(bits);
+      blocks = prints;
+    }
+    long fingerprint = 0L;
+    for(int b = from / BitWords.BLOCK_WORDS; b * BitWords.BLOCK_WORDS < to; b++) {
+      fingerprint ^= prints[b];
+    }
+    return fingerprint;
+  }
+
+  /**
+   * <!-- equals -->
+   *
+   * Genes are equal if they are of the same class, and have the same length
+   * and contents. The fingerprints are compared first, so genes that differ
+   * are usually told apart without comparing the bits.
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if(obj == this) return true;
+    if(obj == null || obj.getClass() != getClass()) return false;
+    BitStringGene other = (BitStringGene)obj;
+    return other.length == length && other.fingerprint == fingerprint && Arrays.equals(other.bits, bits);
+  }
+
+  /**
+   * <!-- hashCode -->
+   *
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return (int)(fingerprint ^ (fingerprint >>> 32));
+  }
+
   /**
    * <!-- toByteArray -->
    *
@@ -273,7 +459,83 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
    */
   @Override
   public byte[] toByteArray() {
-    return gene.toByteArray();
+    return BitWords.toByteArray(bits);
+  }
+
+  /**
+   * <!-- byteSize -->
+   *
+   * @see name.polhill.gary.mcga.AbstractGene#byteSize()
+   */
+  @Override
+  public long byteSize() {
+    return BitWords.nBytes(length);
+  }
+
+  /**
+   * <!-- writeTo -->
+   *
+   * @see name.polhill.gary.mcga.AbstractGene#writeTo(java.nio.ByteBuffer)
+   */
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    BitWords.write(bits, length, buffer);
+  }
+
+  /**
+   * <!-- writeTo -->
+   *
+   * @see name.polhill.gary.mcga.AbstractGene#writeTo(java.io.OutputStream)
+   */
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    BitWords.write(bits, length, out);
+  }
+
+  /**
+   * <!-- asLongBuffer -->
+   *
+   * @return A read-only view of the words storing the gene, without copying
+   *         them. Bit <code>i</code> of the gene is bit <code>i % 64</code> of
+   *         word <code>i / 64</code>.
+   */
+  public LongBuffer asLongBuffer() {
+    return LongBuffer.wrap(bits).asReadOnlyBuffer();
+  }
+
+  /**
+   * <!-- getGene -->
+   *
+   * @return The gene as a non-negative BigInteger
+   * @deprecated The gene is no longer stored in the public BigInteger field
+   *             <code>gene</code>; use {@link #toBigInteger()}, which this
+   *             calls
+   */
+  @Deprecated
+  public BigInteger getGene() {
+    return toBigInteger();
+  }
+
+  /**
+   * <!-- toBigInteger -->
+   *
+   * @return The gene as a non-negative BigInteger
+   */
+  public BigInteger toBigInteger() {
+    return BitWords.toBigInteger(bits);
+  }
+
+  /**
+   * <!-- toLong -->
+   *
+   * @return The gene as an unsigned long
+   * @throws ArithmeticException if the gene has more than 64 bits
+   */
+  public long toLong() {
+    if(length > BitWords.WORD_SIZE) {
+      throw new ArithmeticException("Gene of length " + length + " does not fit in a long");
+    }
+    return bits.length == 0 ? 0L : bits[0];
   }
 
   /**
@@ -287,10 +549,6 @@ public class BitStringGene extends AbstractGene implements Cloneable, Gene {
     
     if(otherBSG.size() != size()) return 1.0;
     
-    double diff = 0.0;
-    for(int i = 0; i < length; i++) {
-      if(getBit(i) != otherBSG.getBit(i)) diff += 1.0;
-    }
-    return diff / (double)length;
+    return (double)Hamming.distance(bits, otherBSG.bits) / (double)length;
   }
 }
@@ -0,0 +1,313 @@
+/*
+ * name.polhill.gary.mcga: CachingCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <!-- CachingCostFunction -->
+ *
+ * A cost function remembering the costs of the Chromosomes it has evaluated,
+ * so that duplicates (such as elites kept from one generation to the next)
+ * are not evaluated again. Chromosomes are compared by content, so only
+ * {@link BitStringChromosome}s and rows of a {@link PopulationMatrix} are
+ * cached; other Chromosomes are always evaluated. The cache is bounded by
+ * number of entries and/or the number of bytes of genes stored; when it is
+ * full, the least recently used entry is removed.
+ *
+ * The cost function wrapped must always return the same cost for the same
+ * Chromosome.
+ *
+ * @author Gary Polhill
+ */
+public class CachingCostFunction implements ThreadSafeCostFunction {
+  /**
+   * <!-- costFunction -->
+   *
+   * The cost function whose costs are cached
+   */
+  private final CostFunction costFunction;
+
+  /**
+   * <!-- maxEntries -->
+   *
+   * Maximum number of entries, or 0 for no limit
+   */
+  private final int maxEntries;
+
+  /**
+   * <!-- maxBytes -->
+   *
+   * Maximum number of bytes of genes stored, or 0 for no limit
+   */
+  private final long maxBytes;
+
+  /**
+   * <!-- cache -->
+   *
+   * The cache, in order of access. Chromosomes are looked up as they are
+   * (rows through a {@link RowProbe}), and only copied when they are added.
+   * Keys are BitStringChromosomes, which share the storage of the genes of
+   * the Chromosomes evaluated until either is changed (see
+   * {@link BitStringGene#share()}).
+   */
+  private final LinkedHashMap<BitStringChromosome, Cost[]> cache;
+
+  private long bytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * <!-- CachingCostFunction constructor -->
+   *
+   * @param costFunction The cost function whose costs to cache
+   * @param maxEntries The maximum number of entries (0 for no limit)
+   * @param maxBytes The maximum number of bytes of genes to store (0 for no
+   *          limit)
+   */
+  public CachingCostFunction(CostFunction costFunction, int maxEntries, long maxBytes) {
+    this.costFunction = costFunction;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    cache = new LinkedHashMap<BitStringChromosome, Cost[]>(16, 0.75f, true);
+  }
+
+  /**
+   * <!-- CachingCostFunction constructor -->
+   *
+   * Constructor for a cache bounded only by number of entries
+   *
+   * @param costFunction The cost function whose costs to cache
+   * @param maxEntries The maximum number of entries
+   */
+  public CachingCostFunction(CostFunction costFunction, int maxEntries) {
+    this(costFunction, maxEntries, 0L);
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * The costs returned are copies, since Chromosomes keep the array they are
+   * given.
+   *
+   * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public Cost[] cost(Chromosome chromosome) {
+    Object probe = probe(chromosome);
+    if(probe == null) {
+      synchronized(cache) {
+	misses++;
+      }
+      return costFunction.cost(chromosome);
+    }
+    synchronized(cache) {
+      Cost[] cost = cache.get(probe);
+      if(cost != null) {
+	hits++;
+	return copy(cost);
+      }
+      misses++;
+    }
+    Cost[] cost = costFunction.cost(chromosome);
+    BitStringChromosome key = key(chromosome);
+    synchronized(cache) {
+      if(!cache.containsKey(key)) {
+	bytes += key.byteSize();
+	cache.put(key, copy(cost));
+	trim();
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * The cache is thread-safe if the cost function it wraps is. (Two threads
+   * asking for the cost of the same Chromosome at the same time may both
+   * evaluate it.)
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return MCGA.threadSafe(costFunction);
+  }
+
+  /**
+   * <!-- probe -->
+   *
+   * @param chromosome
+   * @return An object to look the Chromosome up in the cache with, or
+   *         <code>null</code> if it cannot be cached
+   */
+  private static Object probe(Chromosome chromosome) {
+    if(chromosome instanceof BitStringChromosome) return chromosome;
+    if(chromosome instanceof PopulationMatrix.Row) return new RowProbe((PopulationMatrix.Row)chromosome);
+    return null;
+  }
+
+  /**
+   * <!-- key -->
+   *
+   * @param chromosome
+   * @return A key for the Chromosome that will not change, or <code>null</code>
+   *         if it cannot be cached
+   */
+  private static BitStringChromosome key(Chromosome chromosome) {
+    if(chromosome instanceof BitStringChromosome) return ((BitStringChromosome)chromosome).clone();
+    if(chromosome instanceof PopulationMatrix.Row) return ((PopulationMatrix.Row)chromosome).detach();
+    return null;
+  }
+
+  /**
+   * <!-- copy -->
+   *
+   * @param cost
+   * @return A deep copy of the cost
+   */
+  private static Cost[] copy(Cost[] cost) {
+    if(cost == null) return null;
+    Cost[] copy = new Cost[cost.length];
+    for(int i = 0; i < cost.length; i++) {
+      copy[i] = cost[i].clone();
+    }
+    return copy;
+  }
+
+  /**
+   * <!-- trim -->
+   *
+   * Remove the least recently used entries until the cache is within its
+   * bounds. The most recent entry is always kept.
+   */
+  private void trim() {
+    Iterator<Map.Entry<BitStringChromosome, Cost[]>> eldest = cache.entrySet().iterator();
+    while(cache.size() > 1
+      && ((maxEntries > 0 && cache.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes))) {
+      bytes -= eldest.next().getKey().byteSize();
+      eldest.remove();
+    }
+  }
+
+  /**
+   * <!-- getHits -->
+   *
+   * @return The number of costs found in the cache
+   */
+  public long getHits() {
+    synchronized(cache) {
+      return hits;
+    }
+  }
+
+  /**
+   * <!-- getMisses -->
+   *
+   * @return The number of costs not found in the cache, and so evaluated
+   */
+  public long getMisses() {
+    synchronized(cache) {
+      return misses;
+    }
+  }
+
+  /**
+   * <!-- getHitRate -->
+   *
+   * @return The proportion of costs found in the cache
+   */
+  public double getHitRate() {
+    synchronized(cache) {
+      return hits + misses == 0 ? 0.0 : (double)hits / (double)(hits + misses);
+    }
+  }
+
+  /**
+   * <!-- size -->
+   *
+   * @return The number of entries in the cache
+   */
+  public int size() {
+    synchronized(cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * <!-- clear -->
+   *
+   * Empty the cache and reset the statistics
+   */
+  public void clear() {
+    synchronized(cache) {
+      cache.clear();
+      bytes = 0L;
+      hits = 0L;
+      misses = 0L;
+    }
+  }
+
+  /**
+   * <!-- toString -->
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    synchronized(cache) {
+      return "cache of " + cache.size() + " entries (" + bytes + " bytes): " + hits + " hits, " + misses
+	+ " misses";
+    }
+  }
+
+  /**
+   * <!-- RowProbe -->
+   *
+   * Stands in for a row of a PopulationMatrix when looking it up in the cache,
+   * comparing the row with the keys in the storage rather than copying it
+   *
+   * @author Gary Polhill
+   */
+  private static final class RowProbe {
+    private final PopulationMatrix.Row row;
+    private final int hash;
+
+    RowProbe(PopulationMatrix.Row row) {
+      this.row = row;
+      long fingerprint = row.fingerprint();
+      hash = (int)(fingerprint ^ (fingerprint >>> 32));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof BitStringChromosome && row.sameAs((BitStringChromosome)obj);
+    }
+  }
+}
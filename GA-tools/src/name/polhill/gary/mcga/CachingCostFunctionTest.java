@@ -0,0 +1,152 @@
+/*
+ * name.polhill.gary.mcga: CachingCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- CachingCostFunctionTest -->
+ *
+ * Test for the CachingCostFunction class
+ *
+ * @author Gary Polhill
+ */
+public class CachingCostFunctionTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 3, 2 };
+
+  /**
+   * <!-- Counter -->
+   *
+   * A cost function counting the Chromosomes it evaluates, with a cost per
+   * gene of the number of ones in it
+   *
+   * @author Gary Polhill
+   */
+  static class Counter implements CostFunction {
+    int calls = 0;
+
+    public Cost[] cost(Chromosome chromosome) {
+      calls++;
+      return MCGATest.ones(chromosome.nGenes()).cost(chromosome);
+    }
+  }
+
+  /**
+   * @param name
+   */
+  public CachingCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- assertSameCost -->
+   *
+   * @param expected
+   * @param actual
+   */
+  private static void assertSameCost(Cost[] expected, Cost[] actual) {
+    assertEquals(expected.length, actual.length);
+    for(int i = 0; i < expected.length; i++) {
+      assertTrue(expected[i].comparableWith(actual[i]));
+      assertEquals(0, expected[i].compareTo(actual[i]));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.CachingCostFunction#cost(name.polhill.gary.mcga.Chromosome)}:
+   * Chromosomes with the same content are evaluated once, with the same cost
+   * as the cost function wrapped gives, whether they are BitStringChromosomes
+   * or rows of a population matrix.
+   */
+  public void testCost() throws Exception {
+    Counter counter = new Counter();
+    CachingCostFunction cache = new CachingCostFunction(counter, 0);
+    Counter uncached = new Counter();
+    Chromosome[] population = MCGATest.population(GENE_LENGTHS);
+    PopulationMatrix matrix = new PopulationMatrix(population);
+    for(int i = 0; i < population.length; i++) {
+      assertSameCost(uncached.cost(population[i]), cache.cost(population[i]));
+      assertSameCost(uncached.cost(population[i]), cache.cost(matrix.row(i)));
+      assertSameCost(uncached.cost(population[i]), cache.cost(matrix.row(i).detach()));
+    }
+    assertTrue(counter.calls <= 32);
+    assertEquals(cache.size(), counter.calls);
+    assertEquals(counter.calls, cache.getMisses());
+    assertEquals(3 * population.length - counter.calls, cache.getHits());
+    matrix.close();
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.CachingCostFunction#cost(name.polhill.gary.mcga.Chromosome)}:
+   * changing the Chromosome or the costs returned does not change the entry
+   * cached, and Chromosomes that cannot be compared by content are always
+   * evaluated.
+   */
+  public void testCopies() {
+    Counter counter = new Counter();
+    CachingCostFunction cache = new CachingCostFunction(counter, 0);
+    BitStringChromosome chromosome = new BitStringChromosome(GENE_LENGTHS);
+    Cost[] zero = cache.cost(chromosome);
+    ((BitStringGene)chromosome.geneAt(0)).setBit(0, true);
+    Cost[] one = cache.cost(chromosome);
+    assertEquals(2, counter.calls);
+    assertFalse(zero[0].compareTo(one[0]) == 0);
+    Cost[] again = cache.cost(new BitStringChromosome(GENE_LENGTHS));
+    assertSameCost(zero, again);
+    assertNotSame(zero[0], again[0]);
+    assertEquals(2, counter.calls);
+
+    WildCardChromosome wildCard = new WildCardChromosome(chromosome);
+    cache.cost(wildCard);
+    cache.cost(wildCard);
+    assertEquals(4, counter.calls);
+    assertEquals(2, cache.size());
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.CachingCostFunction#cost(name.polhill.gary.mcga.Chromosome)}:
+   * when the cache is full, the least recently used entry is removed.
+   */
+  public void testBound() {
+    Counter counter = new Counter();
+    CachingCostFunction cache = new CachingCostFunction(counter, 2);
+    BitStringChromosome[] chromosomes = new BitStringChromosome[3];
+    for(int i = 0; i < chromosomes.length; i++) {
+      chromosomes[i] = new BitStringChromosome(GENE_LENGTHS);
+      ((BitStringGene)chromosomes[i].geneAt(0)).setBit(i, true);
+    }
+    cache.cost(chromosomes[0]);
+    cache.cost(chromosomes[1]);
+    cache.cost(chromosomes[0]);
+    cache.cost(chromosomes[2]);
+    assertEquals(3, counter.calls);
+    assertEquals(2, cache.size());
+    cache.cost(chromosomes[0]);
+    cache.cost(chromosomes[2]);
+    assertEquals(3, counter.calls);
+    cache.cost(chromosomes[1]);
+    assertEquals(4, counter.calls);
+  }
+}
@@ -21,8 +21,13 @@
  */
 package name.polhill.gary.mcga;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
+import name.polhill.gary.util.BitWords;
+
 /**
  * <!-- Chromosome -->
  * 
@@ -195,6 +200,170 @@ public interface Chromosome extends Cloneable, Comparable<Chromosome> {
 
       return buff.toString();
     }
+
+    /**
+     * <!-- byteSize -->
+     * 
+     * @param gene
+     * @return The number of bytes written by
+     *         {@link #writeTo(Gene, ByteBuffer)}: the gene's
+     *         {@link AbstractGene#byteSize()}, or the length of its
+     *         {@link Gene#toByteArray()} if it is not an {@link AbstractGene}
+     */
+    public static long byteSize(Gene gene) {
+      return (gene instanceof AbstractGene) ? ((AbstractGene)gene).byteSize()
+	: gene.toByteArray().length;
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write a gene to a buffer with {@link AbstractGene#writeTo(ByteBuffer)},
+     * or as its {@link Gene#toByteArray()} if it is not an
+     * {@link AbstractGene}
+     * 
+     * @param gene
+     * @param buffer
+     */
+    public static void writeTo(Gene gene, ByteBuffer buffer) {
+      if(gene instanceof AbstractGene) ((AbstractGene)gene).writeTo(buffer);
+      else buffer.put(gene.toByteArray());
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write a gene to a stream, as for {@link #writeTo(Gene, ByteBuffer)}
+     * 
+     * @param gene
+     * @param out
+     * @throws IOException
+     */
+    public static void writeTo(Gene gene, OutputStream out) throws IOException {
+      if(gene instanceof AbstractGene) ((AbstractGene)gene).writeTo(out);
+      else out.write(gene.toByteArray());
+    }
+
+    /**
+     * <!-- byteSize -->
+     * 
+     * @param chromosome
+     * @return The number of bytes written by
+     *         {@link #writeTo(Chromosome, ByteBuffer)}: the sum of
+     *         {@link #byteSize(Gene)} over the Chromosome's Genes
+     */
+    public static long byteSize(Chromosome chromosome) {
+      if(chromosome instanceof AbstractChromosome) {
+	return ((AbstractChromosome)chromosome).byteSize();
+      }
+      long size = 0;
+      for(int i = 0; i < chromosome.nGenes(); i++) {
+	size += byteSize(chromosome.geneAt(i));
+      }
+      return size;
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write each Gene of a Chromosome in turn to a buffer using
+     * {@link #writeTo(Gene, ByteBuffer)}
+     * 
+     * @param chromosome
+     * @param buffer
+     */
+    public static void writeTo(Chromosome chromosome, ByteBuffer buffer) {
+      if(chromosome instanceof AbstractChromosome) {
+	((AbstractChromosome)chromosome).writeTo(buffer);
+	return;
+      }
+      for(int i = 0; i < chromosome.nGenes(); i++) {
+	writeTo(chromosome.geneAt(i), buffer);
+      }
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write each Gene of a Chromosome in turn to a stream using
+     * {@link #writeTo(Gene, OutputStream)}
+     * 
+     * @param chromosome
+     * @param out
+     * @throws IOException
+     */
+    public static void writeTo(Chromosome chromosome, OutputStream out) throws IOException {
+      if(chromosome instanceof AbstractChromosome) {
+	((AbstractChromosome)chromosome).writeTo(out);
+	return;
+      }
+      for(int i = 0; i < chromosome.nGenes(); i++) {
+	writeTo(chromosome.geneAt(i), out);
+      }
+    }
+
+    /**
+     * <!-- geneClass -->
+     * 
+     * @param chromosome
+     * @param i
+     * @return The class of the ith Gene of the Chromosome, found without
+     *         copying it out of a {@link PopulationMatrix}
+     */
+    public static Class<? extends Gene> geneClass(Chromosome chromosome, int i) {
+      if(chromosome instanceof PopulationMatrix.Row) {
+	return ((PopulationMatrix.Row)chromosome).prototype(i).getClass();
+      }
+      return chromosome.geneAt(i).getClass();
+    }
+
+    /**
+     * <!-- byteSize -->
+     * 
+     * @param chromosome
+     * @param i
+     * @return The number of bytes written by
+     *         {@link #writeTo(Chromosome, int, ByteBuffer)}: the
+     *         {@link #byteSize(Gene)} of the ith Gene of the Chromosome
+     */
+    public static long byteSize(Chromosome chromosome, int i) {
+      if(chromosome instanceof PopulationMatrix.Row) {
+	return BitWords.nBytes(((PopulationMatrix.Row)chromosome).prototype(i).length);
+      }
+      return byteSize(chromosome.geneAt(i));
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write the ith Gene of a Chromosome to a buffer using
+     * {@link #writeTo(Gene, ByteBuffer)}, or for a row of a
+     * {@link PopulationMatrix}, straight from the matrix
+     * 
+     * @param chromosome
+     * @param i
+     * @param buffer
+     */
+    public static void writeTo(Chromosome chromosome, int i, ByteBuffer buffer) {
+      if(chromosome instanceof PopulationMatrix.Row) ((PopulationMatrix.Row)chromosome).writeGeneTo(i, buffer);
+      else writeTo(chromosome.geneAt(i), buffer);
+    }
+
+    /**
+     * <!-- writeTo -->
+     * 
+     * Write the ith Gene of a Chromosome to a stream, as for
+     * {@link #writeTo(Chromosome, int, ByteBuffer)}
+     * 
+     * @param chromosome
+     * @param i
+     * @param out
+     * @throws IOException
+     */
+    public static void writeTo(Chromosome chromosome, int i, OutputStream out) throws IOException {
+      if(chromosome instanceof PopulationMatrix.Row) ((PopulationMatrix.Row)chromosome).writeGeneTo(i, out);
+      else writeTo(chromosome.geneAt(i), out);
+    }
   }
 
   /**
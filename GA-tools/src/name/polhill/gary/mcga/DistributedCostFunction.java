@@ -0,0 +1,453 @@
+/*
+ * name.polhill.gary.mcga: DistributedCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <!-- DistributedCostFunction -->
+ *
+ * The master side of evaluating Chromosomes on other machines. Workers (see
+ * {@link DistributedWorker}) connect to a port on which this cost function
+ * listens, and may join or leave at any time. A batch of Chromosomes is cut
+ * into chunks, which workers take from a shared queue whenever they are free,
+ * so faster workers evaluate more chunks. If a worker's connection fails, the
+ * chunk it was evaluating is put back at the head of the queue for another
+ * worker. A batch is not finished until every chunk has been evaluated, so
+ * {@link #cost(Chromosome[])} waits while there are no workers.
+ *
+ * The protocol, with all numbers big-endian, is:
+ *
+ * <ul>
+ * <li>Worker on connecting: <code>int</code> {@link #MAGIC}; <code>int</code>
+ * {@link #VERSION}.</li>
+ * <li>Master: <code>int</code> number of Chromosomes <code>n</code>; then
+ * <code>n</code> Chromosomes, as written by {@link WireFormat}.</li>
+ * <li>Worker: <code>int</code> <code>n</code>, then the costs of each
+ * Chromosome as written by {@link WireFormat}; or <code>int</code> -1 and an
+ * error message (as {@link java.io.DataOutput#writeUTF(String)}) if the cost
+ * function failed.</li>
+ * </ul>
+ *
+ * The Chromosomes must be {@link BitStringChromosome}s or rows of a
+ * {@link PopulationMatrix}.
+ *
+ * @author Gary Polhill
+ */
+public class DistributedCostFunction implements BatchCostFunction,
+    ThreadSafeCostFunction, Closeable {
+  /**
+   * <!-- MAGIC -->
+   *
+   * Number a worker sends on connecting
+   */
+  public static final int MAGIC = 0x4d434741;
+
+  /**
+   * <!-- VERSION -->
+   *
+   * Version of the protocol
+   */
+  public static final int VERSION = 2;
+
+  /**
+   * <!-- chunkSize -->
+   *
+   * Number of Chromosomes sent to a worker at once
+   */
+  private final int chunkSize;
+
+  /**
+   * <!-- timeout -->
+   *
+   * Milliseconds to wait for a worker to evaluate a chunk before treating it
+   * as lost, or 0 to wait for ever
+   */
+  private final int timeout;
+
+  /**
+   * <!-- server -->
+   *
+   * Socket workers connect to
+   */
+  private final ServerSocket server;
+
+  /**
+   * <!-- queue -->
+   *
+   * Chunks waiting for a worker
+   */
+  private final LinkedBlockingDeque<Chunk> queue;
+
+  /**
+   * <!-- connections -->
+   *
+   * Sockets of connected workers, and the threads serving them
+   */
+  private final Map<Socket, Thread> connections;
+
+  /**
+   * <!-- lost -->
+   *
+   * Number of workers whose connections have failed while evaluating a chunk
+   */
+  private final AtomicInteger lost;
+
+  /**
+   * <!-- DistributedCostFunction constructor -->
+   *
+   * @param port The port to listen on for workers (0 for any free port; see
+   *          {@link #getPort()})
+   * @param chunkSize The number of Chromosomes to send to a worker at once
+   * @param timeout The number of milliseconds to wait for a worker to evaluate
+   *          a chunk before giving the chunk to another worker, or 0 to wait
+   *          for ever
+   * @throws IOException If the port cannot be listened on
+   */
+  public DistributedCostFunction(int port, int chunkSize, int timeout) throws IOException {
+    if(chunkSize < 1) throw new IllegalArgumentException("Chunk size " + chunkSize + " less than 1");
+    this.chunkSize = chunkSize;
+    this.timeout = timeout;
+    queue = new LinkedBlockingDeque<Chunk>();
+    connections = new HashMap<Socket, Thread>();
+    lost = new AtomicInteger();
+    server = new ServerSocket(port);
+    Thread acceptor = new Thread(new Runnable() {
+      public void run() {
+	accept();
+      }
+    }, "DistributedCostFunction acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * <!-- DistributedCostFunction constructor -->
+   *
+   * Constructor waiting for ever for workers to evaluate chunks. Workers that
+   * stop or close their connections are still detected.
+   *
+   * @param port The port to listen on for workers
+   * @param chunkSize The number of Chromosomes to send to a worker at once
+   * @throws IOException If the port cannot be listened on
+   */
+  public DistributedCostFunction(int port, int chunkSize) throws IOException {
+    this(port, chunkSize, 0);
+  }
+
+  /**
+   * <!-- accept -->
+   *
+   * Accept connections from workers until the server socket is closed,
+   * starting a thread to serve each one
+   */
+  private void accept() {
+    while(!server.isClosed()) {
+      final Socket socket;
+      try {
+	socket = server.accept();
+      }
+      catch(IOException e) {
+	continue;
+      }
+      Thread thread = new Thread(new Runnable() {
+	public void run() {
+	  serve(socket);
+	}
+      }, "DistributedCostFunction " + socket.getRemoteSocketAddress());
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * <!-- serve -->
+   *
+   * Give chunks to a worker until its connection fails or is closed
+   *
+   * @param socket The connection to the worker
+   */
+  private void serve(Socket socket) {
+    Chunk chunk = null;
+    try {
+      synchronized(connections) {
+	if(server.isClosed()) return;
+	connections.put(socket, Thread.currentThread());
+      }
+      socket.setKeepAlive(true);
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      if(in.readInt() != MAGIC) throw new IOException("Not a worker");
+      int version = in.readInt();
+      if(version != VERSION) throw new IOException("Worker uses protocol version " + version);
+      while(true) {
+	chunk = queue.take();
+	if(chunk.batch.isDone()) {
+	  chunk = null;
+	  continue;
+	}
+	socket.setSoTimeout(0);
+	out.writeInt(chunk.to - chunk.from);
+	for(int i = chunk.from; i < chunk.to; i++) {
+	  WireFormat.writeChromosome(out, chunk.batch.chromosomes[i]);
+	}
+	out.flush();
+	socket.setSoTimeout(timeout);
+	int n = in.readInt();
+	if(n < 0) {
+	  chunk.batch.fail(new RuntimeException("Worker " + socket.getRemoteSocketAddress() + " failed: "
+	    + in.readUTF()));
+	}
+	else if(n != chunk.to - chunk.from) {
+	  throw new IOException("Worker returned " + n + " costs for " + (chunk.to - chunk.from) + " chromosomes");
+	}
+	else {
+	  for(int i = chunk.from; i < chunk.to; i++) {
+	    chunk.batch.costs[i] = WireFormat.readCost(in);
+	  }
+	  chunk.batch.done.countDown();
+	}
+	chunk = null;
+      }
+    }
+    catch(IOException e) {
+      if(chunk != null) {
+	lost.incrementAndGet();
+	queue.addFirst(chunk);
+      }
+    }
+    catch(InterruptedException e) {
+      if(chunk != null) queue.addFirst(chunk);
+    }
+    finally {
+      synchronized(connections) {
+	connections.remove(socket);
+      }
+      try {
+	socket.close();
+      }
+      catch(IOException e) {
+	// Already lost
+      }
+    }
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public Cost[] cost(Chromosome chromosome) {
+    return cost(new Chromosome[] { chromosome })[0];
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#cost(name.polhill.gary.mcga.Chromosome[])
+   */
+  @Override
+  public Cost[][] cost(Chromosome[] chromosomes) {
+    if(server.isClosed()) throw new IllegalStateException("Distributed cost function has been closed");
+    for(Chromosome chromosome: chromosomes) {
+      if(!(chromosome instanceof BitStringChromosome || chromosome instanceof PopulationMatrix.Row)) {
+	throw new IllegalArgumentException("Cannot send chromosome of " + chromosome.getClass() + " to a worker");
+      }
+    }
+    Batch batch = new Batch(chromosomes, (chromosomes.length + chunkSize - 1) / chunkSize);
+    for(int from = 0; from < chromosomes.length; from += chunkSize) {
+      queue.add(new Chunk(batch, from, Math.min(from + chunkSize, chromosomes.length)));
+    }
+    try {
+      batch.done.await();
+    }
+    catch(InterruptedException e) {
+      batch.fail(null);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for workers", e);
+    }
+    if(batch.failure != null) throw batch.failure;
+    return batch.costs;
+  }
+
+  /**
+   * <!-- batchSize -->
+   *
+   * All the Chromosomes are taken at once, so that they can be shared among
+   * the workers
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#batchSize()
+   */
+  @Override
+  public int batchSize() {
+    return 0;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return true;
+  }
+
+  /**
+   * <!-- getPort -->
+   *
+   * @return The port workers should connect to
+   */
+  public int getPort() {
+    return server.getLocalPort();
+  }
+
+  /**
+   * <!-- getWorkers -->
+   *
+   * @return The number of workers connected
+   */
+  public int getWorkers() {
+    synchronized(connections) {
+      return connections.size();
+    }
+  }
+
+  /**
+   * <!-- getLost -->
+   *
+   * @return The number of times a worker has been lost while evaluating a
+   *         chunk, which has then been given to another worker
+   */
+  public int getLost() {
+    return lost.get();
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Stop listening for workers and close the connections to them, which
+   * causes them to stop
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized(connections) {
+      server.close();
+      for(Map.Entry<Socket, Thread> connection: connections.entrySet()) {
+	connection.getValue().interrupt();
+	try {
+	  connection.getKey().close();
+	}
+	catch(SocketException e) {
+	  // Already closed
+	}
+      }
+    }
+  }
+
+  /**
+   * <!-- Batch -->
+   *
+   * Chromosomes from one call of {@link DistributedCostFunction#cost(Chromosome[])}
+   *
+   * @author Gary Polhill
+   */
+  private static class Batch {
+    final Chromosome[] chromosomes;
+    final Cost[][] costs;
+
+    /**
+     * <!-- done -->
+     *
+     * Counts down the chunks still to be evaluated
+     */
+    final CountDownLatch done;
+
+    volatile RuntimeException failure;
+
+    Batch(Chromosome[] chromosomes, int nChunks) {
+      this.chromosomes = chromosomes;
+      costs = new Cost[chromosomes.length][];
+      done = new CountDownLatch(nChunks);
+    }
+
+    /**
+     * <!-- fail -->
+     *
+     * Stop evaluating the batch
+     *
+     * @param failure The exception to throw from
+     *          {@link DistributedCostFunction#cost(Chromosome[])}
+     */
+    void fail(RuntimeException failure) {
+      if(this.failure == null) this.failure = failure;
+      while(done.getCount() > 0) {
+	done.countDown();
+      }
+    }
+
+    /**
+     * <!-- isDone -->
+     *
+     * @return <code>true</code> if the batch has failed, so that chunks still
+     *         in the queue need not be evaluated
+     */
+    boolean isDone() {
+      return done.getCount() == 0;
+    }
+  }
+
+  /**
+   * <!-- Chunk -->
+   *
+   * Part of a batch, evaluated by one worker
+   *
+   * @author Gary Polhill
+   */
+  private static class Chunk {
+    final Batch batch;
+    final int from;
+    final int to;
+
+    Chunk(Batch batch, int from, int to) {
+      this.batch = batch;
+      this.from = from;
+      this.to = to;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * name.polhill.gary.mcga: DistributedCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- DistributedCostFunctionTest -->
+ *
+ * Test for the DistributedCostFunction and DistributedWorker classes, with
+ * the workers in threads of this process connecting to the master on the
+ * local host
+ *
+ * @author Gary Polhill
+ */
+public class DistributedCostFunctionTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 10, 70 };
+
+  /**
+   * @param name
+   */
+  public DistributedCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- worker -->
+   *
+   * @param costFunction The cost function for the worker to use
+   * @param port The port the master is listening on
+   * @return A thread running a worker, which stops when the master is closed
+   */
+  private static Thread worker(CostFunction costFunction, final int port) {
+    final DistributedWorker worker = new DistributedWorker(costFunction, 2);
+    Thread thread = new Thread(new Runnable() {
+      public void run() {
+	try {
+	  worker.serve("localhost", port);
+	}
+	catch(IOException e) {
+	  throw new RuntimeException(e);
+	}
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * <!-- assertCosts -->
+   *
+   * Check each Chromosome has been given its own cost
+   *
+   * @param chromosomes
+   * @param costs
+   */
+  private static void assertCosts(Chromosome[] chromosomes, Cost[][] costs) {
+    assertEquals(chromosomes.length, costs.length);
+    CostFunction ones = MCGATest.ones(GENE_LENGTHS.length);
+    for(int i = 0; i < chromosomes.length; i++) {
+      Cost expected = ones.cost(chromosomes[i])[0];
+      assertTrue(expected.comparableWith(costs[i][0]));
+      assertEquals(0, expected.compareTo(costs[i][0]));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.DistributedCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * chunks of BitStringChromosomes and rows of a population matrix are shared
+   * among the workers connected, and each gets its own cost. Closing the
+   * master stops the workers.
+   */
+  public void testCost() throws Exception {
+    DistributedCostFunction master = new DistributedCostFunction(0, 3);
+    Thread[] workers = new Thread[3];
+    for(int i = 0; i < workers.length; i++) {
+      workers[i] = worker(MCGATest.ones(GENE_LENGTHS.length), master.getPort());
+    }
+    Chromosome[] population = MCGATest.population(GENE_LENGTHS);
+    assertCosts(population, master.cost(population));
+    PopulationMatrix matrix = new PopulationMatrix(MCGATest.population(GENE_LENGTHS));
+    Chromosome[] rows = matrix.rows();
+    assertCosts(rows, master.cost(rows));
+    assertEquals(workers.length, master.getWorkers());
+    assertEquals(0, master.getLost());
+    master.close();
+    for(Thread worker: workers) {
+      worker.join(10000L);
+      assertFalse(worker.isAlive());
+    }
+    matrix.close();
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.DistributedCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * a worker lost while evaluating a chunk is counted, and its chunk is given
+   * to another worker.
+   */
+  public void testLost() throws Exception {
+    final DistributedCostFunction master = new DistributedCostFunction(0, 5);
+    ExecutorService caller = Executors.newSingleThreadExecutor();
+    try {
+      Socket socket = new Socket("localhost", master.getPort());
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      out.writeInt(DistributedCostFunction.MAGIC);
+      out.writeInt(DistributedCostFunction.VERSION);
+      out.flush();
+
+      final Chromosome[] population = MCGATest.population(GENE_LENGTHS);
+      Future<Cost[][]> costs = caller.submit(new Callable<Cost[][]>() {
+	public Cost[][] call() {
+	  return master.cost(population);
+	}
+      });
+      assertEquals(5, in.readInt());
+      socket.close();
+
+      worker(MCGATest.ones(GENE_LENGTHS.length), master.getPort());
+      assertCosts(population, costs.get());
+      assertEquals(1, master.getLost());
+    }
+    finally {
+      caller.shutdownNow();
+      master.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.DistributedCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * a cost function failing in a worker fails the batch, and the worker can
+   * still be used.
+   */
+  public void testFailure() throws Exception {
+    DistributedCostFunction master = new DistributedCostFunction(0, 4);
+    try {
+      final CostFunction ones = MCGATest.ones(GENE_LENGTHS.length);
+      worker(new CostFunction() {
+	public Cost[] cost(Chromosome chromosome) {
+	  if(((BitStringGene)chromosome.geneAt(0)).nOnes() == 0) throw new IllegalArgumentException("No ones");
+	  return ones.cost(chromosome);
+	}
+      }, master.getPort());
+      Chromosome[] population = MCGATest.population(GENE_LENGTHS);
+      for(Chromosome chromosome: population) {
+	((BitStringGene)chromosome.geneAt(0)).setBit(0, true);
+      }
+      population[6] = new BitStringChromosome(GENE_LENGTHS);
+      try {
+	master.cost(population);
+	fail("Batch with a failing chromosome evaluated");
+      }
+      catch(RuntimeException e) {
+	assertTrue(e.getMessage().contains("No ones"));
+      }
+      population[6] = population[5];
+      assertCosts(population, master.cost(population));
+    }
+    finally {
+      master.close();
+    }
+  }
+}
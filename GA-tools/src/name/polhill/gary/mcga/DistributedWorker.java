@@ -0,0 +1,234 @@
+/*
+ * name.polhill.gary.mcga: DistributedWorker.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <!-- DistributedWorker -->
+ *
+ * The worker side of evaluating Chromosomes on other machines. A worker
+ * connects to a {@link DistributedCostFunction}, and evaluates the chunks of
+ * Chromosomes it is sent with a local cost function until the master closes
+ * the connection, connecting again if the master had given up waiting for it
+ * (see {@link #serve(String, int)}). Chunks are evaluated using several threads if the cost
+ * function is thread-safe.
+ *
+ * @author Gary Polhill
+ */
+public class DistributedWorker {
+  /**
+   * <!-- costFunction -->
+   *
+   * The cost function evaluating Chromosomes
+   */
+  private final CostFunction costFunction;
+
+  /**
+   * <!-- nThreads -->
+   *
+   * Number of threads evaluating each chunk
+   */
+  private final int nThreads;
+
+  /**
+   * <!-- DistributedWorker constructor -->
+   *
+   * @param costFunction The cost function evaluating Chromosomes
+   * @param nThreads The number of threads to evaluate each chunk with (only
+   *          used if the cost function is thread-safe)
+   */
+  public DistributedWorker(CostFunction costFunction, int nThreads) {
+    this.costFunction = costFunction;
+    this.nThreads = nThreads;
+  }
+
+  /**
+   * <!-- serve -->
+   *
+   * Connect to a master, and evaluate chunks until it closes the connection.
+   * If the master closes the connection after sending any chunks (as it does
+   * when it gives up waiting for this worker to evaluate one), the worker
+   * connects again, and returns once it cannot.
+   *
+   * @param host The host the master is running on
+   * @param port The port the master is listening on
+   * @throws IOException If the first connection fails, or the master sends
+   *           something that is not part of the protocol
+   */
+  public void serve(String host, int port) throws IOException {
+    ExecutorService executor = (nThreads > 1 && MCGA.threadSafe(costFunction))
+      ? Executors.newFixedThreadPool(nThreads) : null;
+    try {
+      Socket socket = new Socket(host, port);
+      while(serve(socket, executor)) {
+	try {
+	  socket = new Socket(host, port);
+	}
+	catch(IOException e) {
+	  return;
+	}
+      }
+    }
+    finally {
+      if(executor != null) executor.shutdownNow();
+    }
+  }
+
+  /**
+   * <!-- serve -->
+   *
+   * Evaluate chunks sent on a connection until the master closes it
+   *
+   * @param socket The connection to the master, which is closed on return
+   * @param executor Executor to evaluate chunks with, or <code>null</code>
+   * @return <code>true</code> if any chunks were received before the
+   *         connection was closed
+   * @throws IOException If the master sends something that is not part of
+   *           the protocol
+   */
+  private boolean serve(Socket socket, ExecutorService executor) throws IOException {
+    boolean served = false;
+    try {
+      socket.setTcpNoDelay(true);
+      socket.setKeepAlive(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(DistributedCostFunction.MAGIC);
+      out.writeInt(DistributedCostFunction.VERSION);
+      out.flush();
+      while(true) {
+	int n = in.readInt();
+	if(n < 0) throw new IOException("Read a chunk of " + n + " chromosomes");
+	served = true;
+	Chromosome[] chromosomes = new Chromosome[n];
+	for(int i = 0; i < n; i++) {
+	  chromosomes[i] = WireFormat.readChromosome(in);
+	}
+	Cost[][] costs;
+	try {
+	  costs = evaluate(chromosomes, executor);
+	}
+	catch(RuntimeException e) {
+	  out.writeInt(-1);
+	  out.writeUTF(String.valueOf(e));
+	  out.flush();
+	  continue;
+	}
+	out.writeInt(n);
+	for(Cost[] cost: costs) {
+	  WireFormat.writeCost(out, cost);
+	}
+	out.flush();
+      }
+    }
+    catch(EOFException e) {
+      return served;
+    }
+    catch(SocketException e) {
+      return served;
+    }
+    finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * <!-- evaluate -->
+   *
+   * @param chromosomes A chunk
+   * @param executor Executor to evaluate them with, or <code>null</code>
+   * @return The costs of the Chromosomes
+   */
+  private Cost[][] evaluate(final Chromosome[] chromosomes, ExecutorService executor) {
+    if(costFunction instanceof BatchCostFunction) {
+      return ((BatchCostFunction)costFunction).cost(chromosomes);
+    }
+    final Cost[][] costs = new Cost[chromosomes.length][];
+    if(executor == null) {
+      for(int i = 0; i < chromosomes.length; i++) {
+	costs[i] = costFunction.cost(chromosomes[i]);
+      }
+      return costs;
+    }
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(chromosomes.length);
+    for(int i = 0; i < chromosomes.length; i++) {
+      final int member = i;
+      tasks.add(new Callable<Object>() {
+	public Object call() {
+	  costs[member] = costFunction.cost(chromosomes[member]);
+	  return null;
+	}
+      });
+    }
+    try {
+      for(Future<Object> future: executor.invokeAll(tasks)) {
+	future.get();
+      }
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating chromosomes", e);
+    }
+    catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    return costs;
+  }
+
+  /**
+   * <!-- main -->
+   *
+   * Run a worker. The arguments are the host and port of the master, the
+   * name of the cost function class (which must have a public no-argument
+   * constructor), and optionally the number of threads.
+   *
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    if(args.length < 3 || args.length > 4) {
+      System.err.println("Usage: " + DistributedWorker.class.getName()
+	+ " <master host> <master port> <cost function class> [<threads>]");
+      System.exit(1);
+    }
+    CostFunction costFunction = (CostFunction)Class.forName(args[2]).getConstructor().newInstance();
+    int nThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    new DistributedWorker(costFunction, nThreads).serve(args[0], Integer.parseInt(args[1]));
+  }
+}
@@ -111,4 +111,13 @@ public class DoubleArrayCost implements Cost {
     
     return buff.toString();
   }
+
+  /**
+   * <!-- getValues -->
+   *
+   * @return the values (unmodifiable)
+   */
+  public List<Double> getValues() {
+    return values;
+  }
 }
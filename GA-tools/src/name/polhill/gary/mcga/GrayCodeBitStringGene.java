@@ -23,6 +23,9 @@
 package name.polhill.gary.mcga;
 
 import java.math.BigInteger;
+import java.util.Random;
+
+import name.polhill.gary.util.GrayCode;
 
 /**
  * GrayCodeBitStringGene
@@ -67,7 +70,34 @@ public class GrayCodeBitStringGene extends BitStringGene {
    * @param other
    */
   public GrayCodeBitStringGene(BitStringGene other) {
-    this(other.length, other.gene);
+    super(other.length, other.bits.clone(), other.randomiser, other.fingerprint);
+  }
+
+  /**
+   * <!-- GrayCodeBitStringGene constructor -->
+   * 
+   * Constructor taking ownership of an array of words with a known fingerprint
+   * 
+   * @param size
+   * @param bits
+   * @param randomiser
+   * @param fingerprint
+   */
+  protected GrayCodeBitStringGene(int size, long[] bits, Random randomiser, long fingerprint) {
+    super(size, bits, randomiser, fingerprint);
+  }
+
+  /**
+   * <!-- create -->
+   * 
+   * Crossover and mutation of a GrayCodeBitStringGene give a
+   * GrayCodeBitStringGene
+   * 
+   * @see name.polhill.gary.mcga.BitStringGene#create(long[], long)
+   */
+  @Override
+  protected BitStringGene create(long[] bits, long fingerprint) {
+    return new GrayCodeBitStringGene(length, bits, randomiser, fingerprint);
   }
 
   /**
@@ -79,7 +109,7 @@ public class GrayCodeBitStringGene extends BitStringGene {
    * @return The result of Gray coding this gene
    */
   public BitStringGene grayCode() {
-    return xor(rsh());
+    return new BitStringGene(length, GrayCode.encode(bits), randomiser);
   }
 
   /**
@@ -91,12 +121,18 @@ public class GrayCodeBitStringGene extends BitStringGene {
    * @return The result of inverse-Gray coding this gene
    */
   public BitStringGene inverseGrayCode() {
-    BitStringGene decode = new BitStringGene(length);
-    decode.setBit(length - 1, getBit(length - 1));
-    for(int i = length - 2; i >= 0; i--) {
-      decode.setBit(i, decode.getBit(i + 1) ^ getBit(i));
-    }
-    return decode;
+    return new BitStringGene(length, GrayCode.decode(bits), randomiser);
+  }
+
+  /**
+   * <!-- inverseGrayCodeLong -->
+   * 
+   * Inverse-Gray code a gene of at most 64 bits without creating any objects
+   * 
+   * @return The result of inverse-Gray coding this gene, as an unsigned long
+   */
+  public long inverseGrayCodeLong() {
+    return GrayCode.decode(toLong());
   }
  
   public GrayCodeBitStringGene clone() {
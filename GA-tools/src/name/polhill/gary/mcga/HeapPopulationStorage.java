@@ -0,0 +1,133 @@
+/*
+ * name.polhill.gary.mcga: HeapPopulationStorage.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+/**
+ * <!-- HeapPopulationStorage -->
+ *
+ * Storage for a {@link PopulationMatrix} in a single array of longs on the
+ * heap. This is the default.
+ *
+ * @author Gary Polhill
+ */
+public class HeapPopulationStorage implements PopulationStorage {
+  /**
+   * <!-- MAX_LENGTH -->
+   *
+   * Largest number of words that can be stored in one array
+   */
+  public static final long MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+  /**
+   * <!-- words -->
+   *
+   * The words, which other storage in the package may copy directly
+   */
+  final long[] words;
+
+  /**
+   * <!-- HeapPopulationStorage constructor -->
+   *
+   * @param length Number of words to store
+   */
+  public HeapPopulationStorage(long length) {
+    if(length < 0 || length > MAX_LENGTH) {
+      throw new IllegalArgumentException("Cannot store " + length + " words on the heap (maximum " + MAX_LENGTH
+	+ "); use OffHeapPopulationStorage");
+    }
+    words = new long[(int)length];
+  }
+
+  /**
+   * <!-- length -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#length()
+   */
+  @Override
+  public long length() {
+    return words.length;
+  }
+
+  /**
+   * <!-- get -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#get(long)
+   */
+  @Override
+  public long get(long index) {
+    return words[(int)index];
+  }
+
+  /**
+   * <!-- set -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#set(long, long)
+   */
+  @Override
+  public void set(long index, long value) {
+    words[(int)index] = value;
+  }
+
+  /**
+   * <!-- read -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#read(long, long[], int, int)
+   */
+  @Override
+  public void read(long index, long[] dst, int offset, int n) {
+    System.arraycopy(words, (int)index, dst, offset, n);
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#write(long, long[], int, int)
+   */
+  @Override
+  public void write(long index, long[] src, int offset, int n) {
+    System.arraycopy(src, offset, words, (int)index, n);
+  }
+
+  /**
+   * <!-- copy -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#copy(name.polhill.gary.mcga.PopulationStorage, long, long, long)
+   */
+  @Override
+  public void copy(PopulationStorage from, long fromIndex, long toIndex, long n) {
+    if(from instanceof HeapPopulationStorage) {
+      System.arraycopy(((HeapPopulationStorage)from).words, (int)fromIndex, words, (int)toIndex, (int)n);
+    }
+    else {
+      from.read(fromIndex, words, (int)toIndex, (int)n);
+    }
+  }
+
+  /**
+   * <!-- like -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#like()
+   */
+  @Override
+  public HeapPopulationStorage like() {
+    return new HeapPopulationStorage(words.length);
+  }
+}
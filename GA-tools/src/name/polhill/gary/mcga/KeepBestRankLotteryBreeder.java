@@ -23,9 +23,10 @@ package name.polhill.gary.mcga;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 
+import name.polhill.gary.util.RankSampler;
+
 /**
  * KeepBestRankLotteryBreeder
  * 
@@ -33,7 +34,8 @@ import java.util.List;
  * generation. Tickets are issued in rank order of cost, with the best genes
  * getting more tickets. Further, a specified number of the very best genes are
  * guaranteed getting copied to the next generation without genetic operators
- * being applied.
+ * being applied. By default, tickets are drawn without replacement, so that
+ * each ticket is used at most once.
  * 
  * @author Gary Polhill
  * 
@@ -46,6 +48,7 @@ public class KeepBestRankLotteryBreeder implements Breeder {
   private final boolean perturb;
   private double pPerturb;
   private double perturbVar;
+  private boolean replacement;
 
   /**
    * Constructor passing in the crossover probability, mutation probability, and
@@ -75,6 +78,19 @@ public class KeepBestRankLotteryBreeder implements Breeder {
     this.nBestKept = nBestKept;
   }
 
+  /**
+   * <!-- setReplacement -->
+   * 
+   * Draw lottery tickets with or without replacement. With replacement, each
+   * draw takes constant time; without, it takes time logarithmic in the size
+   * of the population.
+   * 
+   * @param replacement <code>true</code> to draw tickets with replacement
+   */
+  public void setReplacement(boolean replacement) {
+    this.replacement = replacement;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -82,37 +98,15 @@ public class KeepBestRankLotteryBreeder implements Breeder {
    * java.util.Map)
    */
   public Chromosome[] breed(Chromosome[] population, final boolean maximise) {
-    class CompareGenes implements Comparator<Chromosome> {
-
-      /*
-       * (non-Javadoc)
-       * 
-       * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-       */
-      public int compare(Chromosome o1, Chromosome o2) {
-	return o1.compareTo(o2) * (maximise ? 1 : -1);
-      }
-
-    }
-    List<Chromosome> sortedPop = new ArrayList<Chromosome>(population.length);
-    for(Chromosome g: population) {
-      sortedPop.add(g);
-    }
-    Collections.sort(sortedPop, new CompareGenes());
+    List<Chromosome> sortedPop = sortByCost(population, maximise);
     Chromosome[] newpop = new Chromosome[population.length];
     for(int i = 0; i < nBestKept; i++) {
       newpop[i] = sortedPop.get(sortedPop.size() - (i + 1)).clone();
     }
-    LinkedList<Integer> lottery = new LinkedList<Integer>();
-    for(int i = 0; i < population.length; i++) {
-      for(int j = 1; j <= i + 1; j++) {
-	lottery.add(i);
-      }
-    }
-    Collections.shuffle(lottery);
+    RankSampler lottery = lottery(population.length, replacement);
     for(int i = nBestKept; i < population.length; i++) {
-      Chromosome mother = sortedPop.get(lottery.remove());
-      Chromosome father = sortedPop.get(lottery.remove());
+      Chromosome mother = sortedPop.get(lottery.next());
+      Chromosome father = sortedPop.get(lottery.next());
       Chromosome baby = mother.clone();
       if(Math.random() < pCrossover) {
 	baby = baby.crossover(father, (long)(Math.random() * father.size()));
@@ -128,4 +122,48 @@ public class KeepBestRankLotteryBreeder implements Breeder {
     return newpop;
   }
 
+  /**
+   * <!-- sortByCost -->
+   * 
+   * Sort the population in order of cost, with the best at the end
+   * 
+   * @param population
+   * @param maximise
+   * @return The sorted population
+   */
+  static List<Chromosome> sortByCost(Chromosome[] population, final boolean maximise) {
+    class CompareGenes implements Comparator<Chromosome> {
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+       */
+      public int compare(Chromosome o1, Chromosome o2) {
+	return o1.compareTo(o2) * (maximise ? 1 : -1);
+      }
+
+    }
+    List<Chromosome> sortedPop = new ArrayList<Chromosome>(population.length);
+    for(Chromosome g: population) {
+      sortedPop.add(g);
+    }
+    Collections.sort(sortedPop, new CompareGenes());
+    return sortedPop;
+  }
+
+  /**
+   * <!-- lottery -->
+   * 
+   * Issue the lottery tickets: the member of the sorted population at rank i
+   * gets i + 1 tickets.
+   * 
+   * @param popsize
+   * @param replacement <code>true</code> to draw tickets with replacement
+   * @return A sampler drawing the ranks of tickets
+   */
+  static RankSampler lottery(int popsize, boolean replacement) {
+    return new RankSampler(popsize, replacement);
+  }
+
 }
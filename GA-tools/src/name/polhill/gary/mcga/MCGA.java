@@ -20,8 +20,25 @@
  */
 package name.polhill.gary.mcga;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import name.polhill.gary.util.Hamming;
+import name.polhill.gary.util.TimeLimit;
 
 /**
  * MCGA
@@ -53,6 +70,64 @@ public class MCGA {
    */
   Set<Chromosome> best;
 
+  /**
+   * Whether to store copies of the best solutions rather than the population
+   * members themselves (needed when population members are views of storage
+   * that is reused)
+   */
+  boolean copyBest;
+
+  /**
+   * Executor to evaluate the population with, or <code>null</code> to
+   * evaluate it in the calling thread
+   */
+  ExecutorService executor;
+
+  /**
+   * Limit on the number of evaluations in progress at once, or
+   * <code>null</code> for no limit
+   */
+  Semaphore concurrency;
+
+  /**
+   * Whether to evaluate every member of the population in every generation,
+   * rather than only those whose stored cost is not valid
+   */
+  boolean reevaluate;
+
+  /**
+   * Number of evaluations of the cost function in all generations so far
+   */
+  long evaluations;
+
+  /**
+   * Number of evaluations skipped in all generations so far because the
+   * stored cost was valid
+   */
+  long skipped;
+
+  /**
+   * Number of evaluations of the cost function in the last generation
+   */
+  int lastEvaluations;
+
+  /**
+   * Limits on the time taken to evaluate the population, or <code>null</code>
+   */
+  TimeLimit timeLimit;
+
+  /**
+   * The cost given to Chromosomes whose evaluation took too long
+   */
+  Cost[] penalty;
+
+  /**
+   * Numbers of Chromosomes given the penalty cost because their own
+   * evaluation, or that of the whole population, took too long
+   */
+  long evaluationTimeouts;
+  long generationTimeouts;
+
   /**
    * <!-- MCGA constructor -->
    * 
@@ -64,7 +139,7 @@ public class MCGA {
   private MCGA(Breeder breeder, CostFunction costFunction) {
     this.breeder = breeder;
     this.costFunction = costFunction;
-    this.best = new HashSet<Chromosome>();
+    this.best = identitySet();
   }
 
   /**
@@ -80,7 +155,7 @@ public class MCGA {
    */
   public MCGA(Breeder breeder, CostFunction costFunction, Chromosome[] population) {
     this(breeder, costFunction);
-    this.population = population;
+    setPopulation(population);
   }
 
   /**
@@ -99,13 +174,49 @@ public class MCGA {
 
   public MCGA(Breeder breeder, CostFunction costFunction, int popsize, PopulationFactory factory) {
     this(breeder, costFunction);
-    population = factory.buildPopulation(popsize);
+    setPopulation(factory.buildPopulation(popsize));
+  }
+
+  /**
+   * Construct a GA with the population stored in a {@link PopulationMatrix}.
+   * The breeder should be a {@link PopulationMatrixBreeder}, or another
+   * breeder that can work with rows of a PopulationMatrix.
+   * 
+   * @param breeder
+   *          The breeder algorithm to use
+   * @param costFunction
+   *          The cost function to use
+   * @param population
+   *          The initial population
+   */
+  public MCGA(Breeder breeder, CostFunction costFunction, PopulationMatrix population) {
+    this(breeder, costFunction);
+    setPopulation(population.rows());
+  }
+
+  /**
+   * <!-- setPopulation -->
+   * 
+   * Set the initial population, noting whether it is stored in a
+   * {@link PopulationMatrix}. Copies of the best solutions are detached from
+   * the population and never changed, so they are kept in a set compared by
+   * content, in which a solution found again in a later generation is kept
+   * once.
+   * 
+   * @param population
+   */
+  private void setPopulation(Chromosome[] population) {
+    this.population = population;
+    this.copyBest = population.length > 0 && population[0] instanceof PopulationMatrix.Row;
+    if(copyBest) best = new HashSet<Chromosome>();
   }
 
   /**
    * step
    * 
-   * Run a single generation of the GA
+   * Run a single generation of the GA. Members whose costs were predicted by
+   * a {@link SurrogateCostFunction} rather than evaluated are not counted
+   * among the best solutions.
    * 
    * @param maximise
    *          True if better solutions have higher costs, false otherwise
@@ -113,11 +224,10 @@ public class MCGA {
    */
   public Set<Chromosome> step(boolean maximise) {
     // Compute costs and find the set of 'best' genes in this population
-    Set<Chromosome> best_genes = new HashSet<Chromosome>();
-    best_genes.add(population[0]);
-    population[0].calcCost(costFunction);
-    for(int i = 1; i < population.length; i++) {
-      population[i].calcCost(costFunction);
+    evaluate();
+    Set<Chromosome> best_genes = identitySet();
+    for(int i = 0; i < population.length; i++) {
+      if(predicted(population[i].getCost())) continue;
       boolean incomparable = true;
       for(Chromosome thisbest: best_genes) {
 	if(population[i].comparableWith(thisbest)) {
@@ -136,24 +246,424 @@ public class MCGA {
     // Breed the next population
     population = breeder.breed(population, maximise);
 
-    // Update the saved population of 'best-ever' genes
-    Set<Chromosome> addthis = new HashSet<Chromosome>();
+    // Update the saved population of 'best-ever' genes: each of the best of
+    // this generation removes those saved that it is better than, and is saved
+    // itself unless one saved is better or equal, so no saved solution is
+    // better than another
     for(Chromosome thisbest: best_genes) {
-      boolean incomparable = true;
-      for(Chromosome bestsofar: best_genes) {
-	if(thisbest.comparableWith(bestsofar)) {
-	  incomparable = false;
-	  if(maximise ? (thisbest.compareTo(bestsofar) > 0) : (thisbest.compareTo(bestsofar) < 0)) {
-	    best.remove(bestsofar);
-	    addthis.add(thisbest);
+      addToFront(best, thisbest, maximise, copyBest);
+    }
+
+    return best_genes;
+  }
+
+  /**
+   * <!-- addToFront -->
+   * 
+   * Add a Chromosome to a set of best solutions unless one of them is better
+   * than or equal to it, removing those it is better than, so that no member
+   * of the set is better than another
+   * 
+   * @param front The set of best solutions
+   * @param chromosome The Chromosome to add, whose cost has been computed
+   * @param maximise True if better solutions have higher costs
+   * @param copy Whether to add a copy of the Chromosome rather than itself
+   * @return <code>true</code> if the Chromosome was added
+   */
+  static boolean addToFront(Set<Chromosome> front, Chromosome chromosome, boolean maximise, boolean copy) {
+    boolean beaten = false;
+    for(Iterator<Chromosome> i = front.iterator(); i.hasNext();) {
+      Chromosome bestsofar = i.next();
+      if(chromosome.comparableWith(bestsofar)) {
+	if(maximise ? (chromosome.compareTo(bestsofar) > 0) : (chromosome.compareTo(bestsofar) < 0)) {
+	  i.remove();
+	}
+	else beaten = true;
+      }
+    }
+    if(!beaten) front.add(copy ? chromosome.clone() : chromosome);
+    return !beaten;
+  }
+
+  /**
+   * <!-- setExecutor -->
+   * 
+   * Evaluate the population using an executor, with no limit on the number of
+   * evaluations in progress at once
+   * 
+   * @param executor The executor, or <code>null</code> to evaluate the
+   *          population in the calling thread
+   */
+  public void setExecutor(ExecutorService executor) {
+    setExecutor(executor, 0);
+  }
+
+  /**
+   * <!-- setExecutor -->
+   * 
+   * Evaluate the population using an executor. Each member of the population
+   * (or each batch, for a {@link BatchCostFunction}) is evaluated in a
+   * separate task, and the generation continues once the last evaluation has
+   * returned. This is intended for cost functions that spend most of their
+   * time waiting (for example, on external simulators), with an executor
+   * from {@link #newEvaluationExecutor()}. The population is evaluated in the
+   * calling thread unless the cost function is a
+   * {@link ThreadSafeCostFunction} that says it is thread-safe.
+   * 
+   * @param executor The executor, or <code>null</code> to evaluate the
+   *          population in the calling thread
+   * @param maxConcurrent The maximum number of evaluations in progress at
+   *          once, or 0 for no limit
+   */
+  public void setExecutor(ExecutorService executor, int maxConcurrent) {
+    this.executor = executor;
+    this.concurrency = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+  }
+
+  /**
+   * <!-- newEvaluationExecutor -->
+   * 
+   * Where the Java runtime supports them (Java 21 onwards), the executor
+   * starts a new virtual thread for each evaluation, so thousands of slow
+   * evaluations can overlap without a large pool of platform threads.
+   * Otherwise, a cached thread pool is used. The caller is responsible for
+   * shutting the executor down.
+   * 
+   * @return An executor suitable for {@link #setExecutor(ExecutorService, int)}
+   */
+  public static ExecutorService newEvaluationExecutor() {
+    try {
+      Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)virtual.invoke(null);
+    }
+    catch(ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  /**
+   * <!-- setTimeLimits -->
+   * 
+   * Limit the time taken to evaluate the population. Evaluations (or batches,
+   * for a {@link BatchCostFunction}) that take too long are cancelled by
+   * interrupting them, and the Chromosomes evaluated are given the penalty
+   * cost, which is treated as their valid cost. Chromosomes not evaluated
+   * because evaluating the population took too long are given the penalty
+   * cost as a cost that is not valid, so that they are evaluated again in the
+   * next generation. Time limits need an executor (see
+   * {@link #setExecutor(ExecutorService, int)}); if the cost function is not
+   * thread-safe, the executor runs one evaluation at a time, and an
+   * evaluation that ignores the interrupt keeps the next one waiting until it
+   * stops.
+   * 
+   * @param evaluation Milliseconds each evaluation may take, or 0 for no limit
+   * @param generation Milliseconds evaluating the population may take, or 0
+   *          for no limit
+   * @param penalty The cost to give Chromosomes whose evaluation took too long
+   */
+  public void setTimeLimits(long evaluation, long generation, Cost[] penalty) {
+    this.timeLimit = (evaluation > 0 || generation > 0)
+      ? new TimeLimit(evaluation, generation, TimeUnit.MILLISECONDS) : null;
+    this.penalty = penalty;
+  }
+
+  /**
+   * <!-- getEvaluationTimeouts -->
+   * 
+   * @return The number of Chromosomes given the penalty cost because their
+   *         evaluation took too long
+   */
+  public long getEvaluationTimeouts() {
+    return evaluationTimeouts;
+  }
+
+  /**
+   * <!-- getGenerationTimeouts -->
+   * 
+   * @return The number of Chromosomes given the penalty cost because
+   *         evaluating the whole population took too long
+   */
+  public long getGenerationTimeouts() {
+    return generationTimeouts;
+  }
+
+  /**
+   * <!-- setReevaluate -->
+   * 
+   * By default, members of the population whose stored cost is still valid
+   * (see {@link AbstractChromosome#costValid(CostFunction)}), such as elites,
+   * are not evaluated again. This assumes that the cost function always gives
+   * the same cost for the same Chromosome.
+   * 
+   * @param reevaluate <code>true</code> to evaluate every member of the
+   *          population in every generation (for cost functions with noise)
+   */
+  public void setReevaluate(boolean reevaluate) {
+    this.reevaluate = reevaluate;
+  }
+
+  /**
+   * <!-- getEvaluations -->
+   * 
+   * @return The number of evaluations of the cost function so far
+   */
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  /**
+   * <!-- getSkipped -->
+   * 
+   * @return The number of evaluations skipped so far because the population
+   *         member's stored cost was valid
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * <!-- getLastEvaluations -->
+   * 
+   * @return The number of evaluations of the cost function in the last
+   *         generation
+   */
+  public int getLastEvaluations() {
+    return lastEvaluations;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   * 
+   * @param costFunction A cost function
+   * @return <code>true</code> if the cost function is a
+   *         {@link ThreadSafeCostFunction} that says it is thread-safe
+   */
+  static boolean threadSafe(CostFunction costFunction) {
+    return costFunction instanceof ThreadSafeCostFunction
+      && ((ThreadSafeCostFunction)costFunction).threadSafe();
+  }
+
+  /**
+   * <!-- evaluate -->
+   * 
+   * Compute the stored cost of each member of the population that needs it.
+   * Only Chromosomes extending {@link AbstractChromosome} can keep a cost
+   * computed elsewhere, so others are evaluated with
+   * {@link Chromosome#calcCost(CostFunction)} in the calling thread every
+   * generation.
+   */
+  private void evaluate() {
+    List<AbstractChromosome> dirty = new ArrayList<AbstractChromosome>(population.length);
+    int others = 0;
+    for(int i = 0; i < population.length; i++) {
+      if(!(population[i] instanceof AbstractChromosome)) {
+	population[i].calcCost(costFunction);
+	others++;
+	continue;
+      }
+      AbstractChromosome member = (AbstractChromosome)population[i];
+      if(reevaluate || !member.costValid(costFunction)) {
+	dirty.add(member);
+      }
+    }
+    lastEvaluations = dirty.size() + others;
+    evaluations += dirty.size() + others;
+    skipped += population.length - dirty.size() - others;
+
+    final BatchCostFunction batch = (costFunction instanceof BatchCostFunction)
+      ? (BatchCostFunction)costFunction : new BatchCostFunctionAdapter(costFunction);
+    int size = batch.batchSize();
+    if(size <= 0 || size > dirty.size()) size = Math.max(dirty.size(), 1);
+    List<AbstractChromosome[]> slices = new ArrayList<AbstractChromosome[]>((dirty.size() + size - 1) / size);
+    for(int from = 0; from < dirty.size(); from += size) {
+      slices.add(dirty.subList(from, Math.min(from + size, dirty.size())).toArray(new AbstractChromosome[0]));
+    }
+
+    if(timeLimit != null) {
+      evaluate(batch, slices);
+      return;
+    }
+    if(executor == null || !threadSafe(costFunction)) {
+      for(AbstractChromosome[] slice: slices) {
+	evaluate(batch, slice);
+      }
+      return;
+    }
+    final Semaphore limit = concurrency;
+    List<Future<?>> evaluations = new ArrayList<Future<?>>(slices.size());
+    try {
+      for(final AbstractChromosome[] slice: slices) {
+	if(limit != null) limit.acquire();
+	try {
+	  evaluations.add(executor.submit(new Runnable() {
+	    public void run() {
+	      try {
+		evaluate(batch, slice);
+	      }
+	      finally {
+		if(limit != null) limit.release();
+	      }
+	    }
+	  }));
+	}
+	catch(RejectedExecutionException e) {
+	  if(limit != null) limit.release();
+	  throw e;
+	}
+      }
+      for(Future<?> evaluation: evaluations) {
+	evaluation.get();
+      }
+    }
+    catch(InterruptedException e) {
+      cancel(evaluations);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating the population", e);
+    }
+    catch(ExecutionException e) {
+      cancel(evaluations);
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /**
+   * <!-- store -->
+   * 
+   * Store the cost of a member of the population. Costs predicted by a
+   * {@link SurrogateCostFunction} are stored as not valid, so that the member
+   * and its copies are evaluated again in the next generation.
+   * 
+   * @param member A member of the population
+   * @param cost Its cost
+   */
+  private void store(AbstractChromosome member, Cost[] cost) {
+    member.setCost(cost, predicted(cost) ? null : costFunction);
+  }
+
+  /**
+   * <!-- predicted -->
+   * 
+   * @param cost A cost from the cost function
+   * @return <code>true</code> if it was predicted by a
+   *         {@link SurrogateCostFunction} rather than evaluated
+   */
+  private boolean predicted(Cost[] cost) {
+    return costFunction instanceof SurrogateCostFunction
+      && ((SurrogateCostFunction)costFunction).predicted(cost);
+  }
+
+  /**
+   * <!-- evaluate -->
+   * 
+   * Compute and store the costs of slices of the population within the time
+   * limits. The costs are stored in this thread, so that evaluations that are
+   * cancelled but do not stop cannot change them afterwards.
+   * 
+   * @param batch The cost function
+   * @param slices The slices of the population to evaluate
+   */
+  private void evaluate(final BatchCostFunction batch, List<AbstractChromosome[]> slices) {
+    if(executor == null) throw new IllegalStateException("Time limits need an executor");
+    List<Callable<Cost[][]>> tasks = new ArrayList<Callable<Cost[][]>>(slices.size());
+    for(final AbstractChromosome[] slice: slices) {
+      tasks.add(new Callable<Cost[][]>() {
+	public Cost[][] call() {
+	  return cost(batch, slice);
+	}
+      });
+    }
+    List<Cost[][]> costs;
+    try {
+      costs = timeLimit.invokeAll(executor, tasks, threadSafe(costFunction) ? concurrency : new Semaphore(1));
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating the population", e);
+    }
+    catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    for(int i = 0; i < slices.size(); i++) {
+      AbstractChromosome[] slice = slices.get(i);
+      if(costs.get(i) == null) {
+	boolean overran = timeLimit.overran(i);
+	for(AbstractChromosome member: slice) {
+	  Cost[] cost = new Cost[penalty.length];
+	  for(int j = 0; j < penalty.length; j++) {
+	    cost[j] = penalty[j].clone();
 	  }
+	  member.setCost(cost, overran ? costFunction : null);
+	}
+	if(overran) evaluationTimeouts += slice.length;
+	else generationTimeouts += slice.length;
+      }
+      else {
+	for(int j = 0; j < slice.length; j++) {
+	  store(slice[j], costs.get(i)[j]);
 	}
       }
-      if(incomparable) addthis.add(thisbest);
     }
-    best.addAll(addthis);
+  }
 
-    return best_genes;
+  /**
+   * <!-- evaluate -->
+   * 
+   * Compute and store the costs of a slice of the population
+   * 
+   * @param batch The cost function
+   * @param slice The members of the population to evaluate
+   */
+  private void evaluate(BatchCostFunction batch, AbstractChromosome[] slice) {
+    Cost[][] costs = cost(batch, slice);
+    for(int i = 0; i < slice.length; i++) {
+      store(slice[i], costs[i]);
+    }
+  }
+
+  /**
+   * <!-- cost -->
+   * 
+   * @param batch The cost function
+   * @param slice Members of the population
+   * @return Their costs
+   */
+  private static Cost[][] cost(BatchCostFunction batch, Chromosome[] slice) {
+    Cost[][] costs = batch.cost(slice);
+    if(costs.length != slice.length) {
+      throw new RuntimeException("Batch cost function returned " + costs.length + " costs for "
+	+ slice.length + " chromosomes");
+    }
+    return costs;
+  }
+
+  /**
+   * <!-- cancel -->
+   * 
+   * @param evaluations Evaluations to cancel if they have not finished
+   */
+  private static void cancel(List<Future<?>> evaluations) {
+    for(Future<?> evaluation: evaluations) {
+      evaluation.cancel(true);
+    }
+  }
+
+  /**
+   * <!-- identitySet -->
+   * 
+   * Sets of population members compare them by identity rather than content,
+   * since they may change after they are added (such as rows of a
+   * {@link PopulationMatrix}, which are overwritten by breeding).
+   * 
+   * @return An empty set of Chromosomes compared by identity
+   */
+  static Set<Chromosome> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<Chromosome, Boolean>());
   }
 
   /**
@@ -185,11 +695,20 @@ public class MCGA {
   /**
    * <!-- difference -->
    *
-   * (Potentially computationally expensive)
+   * If the population members are all bitstrings of the same configuration,
+   * this is computed from the number of 1s in each bit position, in time
+   * proportional to the size of the population. Otherwise, all pairs are
+   * compared. (Potentially computationally expensive)
    *
    * @return The mean difference between all pairs of population members
    */
   public double difference() {
+    Hamming.ColumnCounter counter = countColumns();
+    if(counter != null) {
+      double nPairs = (double)population.length * (double)(population.length - 1) / 2.0;
+      return (double)counter.pairwiseDistance() / ((double)population[0].size() * nPairs);
+    }
+
     double diff = 0.0;
     double n = 0.0;
     
@@ -202,4 +721,41 @@ public class MCGA {
     
     return diff / n;
   }
+
+  /**
+   * <!-- countColumns -->
+   *
+   * @return The number of 1s in each bit position of the population, or
+   *         <code>null</code> if the population members are not all
+   *         bitstrings of the same configuration
+   */
+  private Hamming.ColumnCounter countColumns() {
+    if(population.length < 2) return null;
+    if(population[0] instanceof PopulationMatrix.Row) {
+      PopulationMatrix matrix = ((PopulationMatrix.Row)population[0]).getMatrix();
+      for(Chromosome member: population) {
+	if(!(member instanceof PopulationMatrix.Row)) return null;
+	if(!((PopulationMatrix.Row)member).getMatrix().sameShape(matrix)) return null;
+      }
+      Hamming.ColumnCounter counter = new Hamming.ColumnCounter(matrix.getRowWords(), population.length);
+      long[] buffer = new long[matrix.getRowWords()];
+      for(Chromosome member: population) {
+	PopulationMatrix.Row row = (PopulationMatrix.Row)member;
+	row.getMatrix().addRowTo(row.getRow(), counter, buffer);
+      }
+      return counter;
+    }
+    else if(population[0] instanceof BitStringChromosome) {
+      BitStringChromosome first = (BitStringChromosome)population[0];
+      for(Chromosome member: population) {
+	if(!first.sameGeneClasses(member)) return null;
+      }
+      Hamming.ColumnCounter counter = new Hamming.ColumnCounter(first.nWords(), population.length);
+      for(Chromosome member: population) {
+	((BitStringChromosome)member).addTo(counter);
+      }
+      return counter;
+    }
+    return null;
+  }
 }
@@ -0,0 +1,370 @@
+/*
+ * name.polhill.gary.mcga: MCGATest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- MCGATest -->
+ *
+ * Test for the MCGA class
+ *
+ * @author Gary Polhill
+ */
+public class MCGATest extends TestCase {
+  private static final int POPULATION = 20;
+
+  /**
+   * <!-- ones -->
+   *
+   * @param objectives Number of objectives
+   * @return A cost function with an objective per gene: the number of ones in
+   *         the gene
+   */
+  static CostFunction ones(final int objectives) {
+    return new CostFunction() {
+      public Cost[] cost(Chromosome chromosome) {
+	Double[] ones = new Double[objectives];
+	for(int i = 0; i < objectives; i++) {
+	  ones[i] = (double)((BitStringGene)chromosome.geneAt(i)).nOnes();
+	}
+	return new Cost[] { new DoubleArrayCost(ones) };
+      }
+    };
+  }
+
+  /**
+   * <!-- population -->
+   *
+   * @param geneLengths
+   * @return A random population of BitStringChromosomes
+   */
+  static Chromosome[] population(int[] geneLengths) {
+    Chromosome[] population = new Chromosome[POPULATION];
+    for(int i = 0; i < population.length; i++) {
+      population[i] = new BitStringChromosome(geneLengths).randomise();
+    }
+    return population;
+  }
+
+  /**
+   * <!-- Counter -->
+   *
+   * A cost function counting the Chromosomes it evaluates, with a cost per
+   * gene of the number of ones in it
+   *
+   * @author Gary Polhill
+   */
+  static class Counter implements CostFunction {
+    int calls = 0;
+
+    public Cost[] cost(Chromosome chromosome) {
+      calls++;
+      return ones(chromosome.nGenes()).cost(chromosome);
+    }
+  }
+
+  /**
+   * <!-- Batches -->
+   *
+   * A batch cost function with a cost per gene of the number of ones in it,
+   * recording the sizes of the batches it is given
+   *
+   * @author Gary Polhill
+   */
+  static class Batches implements BatchCostFunction, ThreadSafeCostFunction {
+    final int size;
+    final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    Batches(int size) {
+      this.size = size;
+    }
+
+    public Cost[][] cost(Chromosome[] chromosomes) {
+      sizes.add(chromosomes.length);
+      Cost[][] costs = new Cost[chromosomes.length][];
+      for(int i = 0; i < chromosomes.length; i++) {
+	costs[i] = ones(chromosomes[i].nGenes()).cost(chromosomes[i]);
+      }
+      return costs;
+    }
+
+    public Cost[] cost(Chromosome chromosome) {
+      return cost(new Chromosome[] { chromosome })[0];
+    }
+
+    public int batchSize() {
+      return size;
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  }
+
+  /**
+   * <!-- SAME -->
+   *
+   * A breeder returning the same population
+   */
+  static final Breeder SAME = new Breeder() {
+    public Chromosome[] breed(Chromosome[] population, boolean maximise) {
+      return population;
+    }
+  };
+
+  /**
+   * @param name
+   */
+  public MCGATest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- assertBest -->
+   *
+   * Check the best-ever solutions are the one solution with all bits set
+   *
+   * @param best
+   */
+  private static void assertBest(Set<Chromosome> best) {
+    assertEquals(1, best.size());
+    BitStringChromosome solution = (BitStringChromosome)best.iterator().next();
+    assertEquals(BitStringChromosome.class, solution.getClass());
+    assertEquals(solution.size(), ((BitStringGene)solution.geneAt(0)).nOnes());
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.MCGA#getBestSolution()}:
+   * the best solution is kept once however many generations find it, both
+   * for a population of Chromosomes, and for a population matrix, whose best
+   * rows are copied.
+   */
+  public void testBestSolution() throws Exception {
+    int[] lengths = { 3 };
+    MCGA list = new MCGA(new KeepBestRankLotteryBreeder(0.5, 0.1, 2), ones(1), population(lengths));
+    PopulationMatrixBreeder breeder = new PopulationMatrixBreeder(0.5, 0.1, 2);
+    MCGA matrix = new MCGA(breeder, ones(1), new PopulationMatrix(population(lengths)));
+    for(int g = 0; g < 30; g++) {
+      list.step(true);
+      matrix.step(true);
+    }
+    assertBest(list.getBestSolution());
+    assertBest(matrix.getBestSolution());
+    breeder.close();
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.MCGA#getBestSolution()}:
+   * with several objectives, the best solutions are a Pareto front, none
+   * better than another.
+   */
+  public void testParetoFront() {
+    MCGA ga = new MCGA(new KeepBestRankLotteryBreeder(0.5, 0.05, 4), ones(2), population(new int[] { 8, 8 }));
+    for(int g = 0; g < 20; g++) {
+      ga.step(true);
+      Set<Chromosome> best = ga.getBestSolution();
+      assertFalse(best.isEmpty());
+      for(Chromosome a: best) {
+	for(Chromosome b: best) {
+	  if(a != b && a.comparableWith(b)) assertFalse(a.compareTo(b) > 0);
+	}
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.MCGA#getEvaluations()},
+   * {@link name.polhill.gary.mcga.MCGA#getSkipped()} and
+   * {@link name.polhill.gary.mcga.MCGA#getLastEvaluations()}: members whose
+   * cost is still valid are skipped, unless they are changed through their
+   * genes, or re-evaluation is asked for.
+   */
+  public void testSkipped() {
+    Counter counter = new Counter();
+    Chromosome[] population = population(new int[] { 10, 10 });
+    MCGA ga = new MCGA(SAME, counter, population);
+    ga.step(true);
+    assertEquals(POPULATION, ga.getLastEvaluations());
+    assertEquals(POPULATION, ga.getEvaluations());
+    assertEquals(0, ga.getSkipped());
+    ga.step(true);
+    assertEquals(0, ga.getLastEvaluations());
+    assertEquals(POPULATION, ga.getEvaluations());
+    assertEquals(POPULATION, ga.getSkipped());
+
+    BitStringGene gene = (BitStringGene)population[3].geneAt(1);
+    gene.setBit(4, !gene.getBit(4));
+    population[7].randomise();
+    ga.step(true);
+    assertEquals(2, ga.getLastEvaluations());
+    assertEquals(POPULATION + 2, ga.getEvaluations());
+    assertEquals(2 * POPULATION - 2, ga.getSkipped());
+    assertEquals(POPULATION + 2, counter.calls);
+    for(Chromosome member: population) {
+      assertEquals(0, member.getCost()[0].compareTo(ones(2).cost(member)[0]));
+    }
+
+    ga.setReevaluate(true);
+    ga.step(true);
+    assertEquals(POPULATION, ga.getLastEvaluations());
+    assertEquals(2 * POPULATION + 2, ga.getEvaluations());
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.MCGA#getLastEvaluations()}:
+   * copies of members, and rows of a population matrix copied into another,
+   * are not evaluated again, but rows overwritten in the matrix are.
+   */
+  public void testCopiesSkipped() throws Exception {
+    int[] lengths = { 10, 10 };
+    MCGA list = new MCGA(new KeepBestRankLotteryBreeder(0.0, 0.0, 2), new Counter(), population(lengths));
+    PopulationMatrixBreeder breeder = new PopulationMatrixBreeder(0.0, 0.0, 2);
+    PopulationMatrix matrix = new PopulationMatrix(population(lengths));
+    MCGA copied = new MCGA(breeder, new Counter(), matrix);
+    list.step(true);
+    copied.step(true);
+    list.step(true);
+    copied.step(true);
+    assertEquals(0, list.getLastEvaluations());
+    assertEquals(0, copied.getLastEvaluations());
+    assertEquals(POPULATION, list.getSkipped());
+    assertEquals(POPULATION, copied.getSkipped());
+
+    PopulationMatrix.Row row = matrix.row(0);
+    CostFunction counter = new Counter();
+    row.calcCost(counter);
+    assertTrue(row.costValid(counter));
+    BitStringChromosome changed = row.detach();
+    changed.genes[0].setBit(0, !changed.genes[0].getBit(0));
+    matrix.set(0, changed);
+    assertFalse(row.costValid(counter));
+    breeder.close();
+    matrix.close();
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.mcga.MCGA#step(boolean)} with a
+   * {@link name.polhill.gary.mcga.BatchCostFunction}: the members needing
+   * evaluation are given to the cost function in slices of its batch size
+   * (or all at once if the batch size is 0), each getting its own cost, with
+   * or without an executor.
+   */
+  public void testBatch() {
+    ExecutorService four = Executors.newFixedThreadPool(4);
+    try {
+      for(int size: new int[] { 7, 0, POPULATION, 1 }) {
+	for(ExecutorService executor: new ExecutorService[] { null, four }) {
+	  Chromosome[] population = population(new int[] { 10, 10 });
+	  Batches batches = new Batches(size);
+	  MCGA ga = new MCGA(SAME, batches, population);
+	  if(executor != null) ga.setExecutor(executor);
+	  ga.step(true);
+	  int n = size == 0 ? POPULATION : size;
+	  assertEquals((POPULATION + n - 1) / n, batches.sizes.size());
+	  int total = 0;
+	  for(int batch: batches.sizes) {
+	    assertTrue(batch == n || batch == POPULATION % n);
+	    total += batch;
+	  }
+	  assertEquals(POPULATION, total);
+	  for(Chromosome member: population) {
+	    assertTrue(((AbstractChromosome)member).costValid(batches));
+	    assertEquals(0, member.getCost()[0].compareTo(ones(2).cost(member)[0]));
+	  }
+
+	  // Only the members changed are given to the cost function
+
+	  population[2].randomise();
+	  population[11].randomise();
+	  batches.sizes.clear();
+	  ga.step(true);
+	  assertEquals(Math.min(n, 2), batches.sizes.get(0).intValue());
+	  assertEquals(2, ga.getLastEvaluations());
+	}
+      }
+    }
+    finally {
+      four.shutdown();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.MCGA#setTimeLimits(long, long, Cost[])}:
+   * Chromosomes whose own evaluation takes too long keep the penalty cost,
+   * but those not evaluated because the population took too long are
+   * evaluated again in the next generation.
+   */
+  public void testTimeLimits() {
+    final CostFunction ones = ones(1);
+    CostFunction slow = new ThreadSafeCostFunction() {
+      public Cost[] cost(Chromosome chromosome) {
+	try {
+	  Thread.sleep(((BitStringGene)chromosome.geneAt(0)).getBit(0) ? 2000L : 30L);
+	}
+	catch(InterruptedException e) {
+	  Thread.currentThread().interrupt();
+	}
+	return ones.cost(chromosome);
+      }
+
+      public boolean threadSafe() {
+	return true;
+      }
+    };
+    Chromosome[] population = population(new int[] { 8 });
+    for(int i = 0; i < population.length; i++) {
+      ((BitStringGene)population[i].geneAt(0)).setBit(0, i == 0);
+    }
+    MCGA ga = new MCGA(SAME, slow, population);
+    ExecutorService one = Executors.newSingleThreadExecutor();
+    try {
+      ga.setExecutor(one);
+      ga.setTimeLimits(100L, 400L, new Cost[] { new DoubleArrayCost(new Double[] { -1.0 }) });
+      ga.step(true);
+      assertEquals(1, ga.getEvaluationTimeouts());
+      long timedOut = ga.getGenerationTimeouts();
+      assertTrue(timedOut > 0 && timedOut < POPULATION - 1);
+      assertFalse(((AbstractChromosome)population[POPULATION - 1]).costValid(slow));
+      assertTrue(((AbstractChromosome)population[0]).costValid(slow));
+
+      ga.setTimeLimits(100L, 0L, new Cost[] { new DoubleArrayCost(new Double[] { -1.0 }) });
+      ga.step(true);
+      assertEquals(timedOut, ga.getLastEvaluations());
+      assertEquals(1, ga.getEvaluationTimeouts());
+      for(int i = 1; i < POPULATION; i++) {
+	assertEquals(0, population[i].getCost()[0].compareTo(ones.cost(population[i])[0]));
+      }
+    }
+    finally {
+      one.shutdownNow();
+    }
+  }
+}
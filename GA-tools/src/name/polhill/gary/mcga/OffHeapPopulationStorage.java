@@ -0,0 +1,318 @@
+/*
+ * name.polhill.gary.mcga: OffHeapPopulationStorage.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <!-- OffHeapPopulationStorage -->
+ *
+ * Storage for a {@link PopulationMatrix} outside the Java heap, either in
+ * direct memory, or in a memory-mapped file that the operating system can page
+ * in and out. The words are held in chunks of at most {@link #CHUNK_WORDS}, so
+ * the total size is not limited by the maximum size of a buffer. Since the
+ * storage is not on the heap, garbage collection pauses do not depend on the
+ * size of the population. Words are read, written and copied in bulk, a
+ * chunk at a time.
+ *
+ * @author Gary Polhill
+ */
+public class OffHeapPopulationStorage implements PopulationStorage, Closeable {
+  /**
+   * <!-- CHUNK_SHIFT -->
+   *
+   * log2 of the number of words in a chunk
+   */
+  private static final int CHUNK_SHIFT = 27;
+
+  /**
+   * <!-- CHUNK_WORDS -->
+   *
+   * Number of words in a chunk (1 GiB)
+   */
+  public static final long CHUNK_WORDS = 1L << CHUNK_SHIFT;
+
+  private static final long CHUNK_MASK = CHUNK_WORDS - 1L;
+
+  private final long length;
+  private final LongBuffer[] chunks;
+
+  /**
+   * <!-- file -->
+   *
+   * File backing the storage, or <code>null</code> for direct memory
+   */
+  private final File file;
+
+  private final RandomAccessFile access;
+
+  /**
+   * <!-- temporary -->
+   *
+   * Whether the file backing the storage is a temporary file, deleted when
+   * the storage is closed
+   */
+  private boolean temporary;
+
+  /**
+   * <!-- OffHeapPopulationStorage constructor -->
+   *
+   * Storage in direct memory
+   *
+   * @param length Number of words to store
+   */
+  public OffHeapPopulationStorage(long length) {
+    this.length = length;
+    this.file = null;
+    this.access = null;
+    chunks = new LongBuffer[nChunks(length)];
+    for(int i = 0; i < chunks.length; i++) {
+      chunks[i] = ByteBuffer.allocateDirect(chunkBytes(i)).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+  }
+
+  /**
+   * <!-- OffHeapPopulationStorage constructor -->
+   *
+   * Storage in a memory-mapped file. The file is created if it does not exist,
+   * and its length set to hold the words.
+   *
+   * @param length Number of words to store
+   * @param file File to map
+   * @throws IOException
+   */
+  public OffHeapPopulationStorage(long length, File file) throws IOException {
+    this.length = length;
+    this.file = file;
+    this.access = new RandomAccessFile(file, "rw");
+    access.setLength(length * 8L);
+    FileChannel channel = access.getChannel();
+    chunks = new LongBuffer[nChunks(length)];
+    for(int i = 0; i < chunks.length; i++) {
+      chunks[i] =
+        channel.map(FileChannel.MapMode.READ_WRITE, (long)i * CHUNK_WORDS * 8L, chunkBytes(i))
+            .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+  }
+
+  /**
+   * <!-- createTempFile -->
+   *
+   * @param length Number of words to store
+   * @param dir Directory in which to create the file (<code>null</code> for
+   *          the system default temporary directory)
+   * @return Storage in a memory-mapped temporary file, deleted when the
+   *         storage is closed, or on exit
+   * @throws IOException
+   */
+  public static OffHeapPopulationStorage createTempFile(long length, File dir) throws IOException {
+    File file = File.createTempFile("population", ".bin", dir);
+    file.deleteOnExit();
+    OffHeapPopulationStorage storage = new OffHeapPopulationStorage(length, file);
+    storage.temporary = true;
+    return storage;
+  }
+
+  private static int nChunks(long length) {
+    return (int)((length + CHUNK_WORDS - 1L) >>> CHUNK_SHIFT);
+  }
+
+  private int chunkBytes(int i) {
+    return (int)(Math.min(CHUNK_WORDS, length - ((long)i << CHUNK_SHIFT)) * 8L);
+  }
+
+  /**
+   * <!-- slice -->
+   *
+   * @param index A word
+   * @param n Number of words wanted from the index onwards
+   * @return A view of the chunk containing the word, positioned at it, with
+   *         its limit at the end of the chunk or after <code>n</code> words,
+   *         whichever is sooner
+   */
+  private LongBuffer slice(long index, long n) {
+    LongBuffer chunk = chunks[(int)(index >>> CHUNK_SHIFT)].duplicate();
+    int position = (int)(index & CHUNK_MASK);
+    chunk.position(position);
+    chunk.limit((int)Math.min(chunk.capacity(), position + n));
+    return chunk;
+  }
+
+  /**
+   * <!-- getFile -->
+   *
+   * @return The file backing the storage, or <code>null</code> if it is in
+   *         direct memory
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * <!-- length -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#length()
+   */
+  @Override
+  public long length() {
+    return length;
+  }
+
+  /**
+   * <!-- get -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#get(long)
+   */
+  @Override
+  public long get(long index) {
+    return chunks[(int)(index >>> CHUNK_SHIFT)].get((int)(index & CHUNK_MASK));
+  }
+
+  /**
+   * <!-- set -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#set(long, long)
+   */
+  @Override
+  public void set(long index, long value) {
+    chunks[(int)(index >>> CHUNK_SHIFT)].put((int)(index & CHUNK_MASK), value);
+  }
+
+  /**
+   * <!-- read -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#read(long, long[], int, int)
+   */
+  @Override
+  public void read(long index, long[] dst, int offset, int n) {
+    while(n > 0) {
+      LongBuffer chunk = slice(index, n);
+      int k = chunk.remaining();
+      chunk.get(dst, offset, k);
+      index += k;
+      offset += k;
+      n -= k;
+    }
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#write(long, long[], int, int)
+   */
+  @Override
+  public void write(long index, long[] src, int offset, int n) {
+    while(n > 0) {
+      LongBuffer chunk = slice(index, n);
+      int k = chunk.remaining();
+      chunk.put(src, offset, k);
+      index += k;
+      offset += k;
+      n -= k;
+    }
+  }
+
+  /**
+   * <!-- copy -->
+   *
+   * Overlapping words of this storage are copied one at a time, in an order
+   * that reads each word before it is overwritten; anything else is copied in
+   * bulk.
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#copy(name.polhill.gary.mcga.PopulationStorage,
+   *      long, long, long)
+   */
+  @Override
+  public void copy(PopulationStorage from, long fromIndex, long toIndex, long n) {
+    if(from == this && fromIndex < toIndex && toIndex < fromIndex + n) {
+      for(long i = n - 1; i >= 0; i--) {
+	set(toIndex + i, get(fromIndex + i));
+      }
+    }
+    else if(from == this && toIndex < fromIndex && fromIndex < toIndex + n) {
+      for(long i = 0; i < n; i++) {
+	set(toIndex + i, get(fromIndex + i));
+      }
+    }
+    else if(from instanceof HeapPopulationStorage) {
+      write(toIndex, ((HeapPopulationStorage)from).words, (int)fromIndex, (int)n);
+    }
+    else if(from instanceof OffHeapPopulationStorage) {
+      OffHeapPopulationStorage other = (OffHeapPopulationStorage)from;
+      while(n > 0) {
+	LongBuffer src = other.slice(fromIndex, n);
+	LongBuffer dst = slice(toIndex, n);
+	int k = Math.min(src.remaining(), dst.remaining());
+	src.limit(src.position() + k);
+	dst.put(src);
+	fromIndex += k;
+	toIndex += k;
+	n -= k;
+      }
+    }
+    else {
+      for(long i = 0; i < n; i++) {
+	set(toIndex + i, from.get(fromIndex + i));
+      }
+    }
+  }
+
+  /**
+   * <!-- like -->
+   *
+   * File-backed storage gets another temporary file in the same directory.
+   *
+   * @see name.polhill.gary.mcga.PopulationStorage#like()
+   */
+  @Override
+  public OffHeapPopulationStorage like() {
+    if(file == null) return new OffHeapPopulationStorage(length);
+    try {
+      return createTempFile(length, file.getAbsoluteFile().getParentFile());
+    }
+    catch(IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Close the file backing the storage, if any, and delete it if it is a
+   * temporary file. The mapping itself is released when the storage is
+   * garbage collected, so the storage should not be used after it has been
+   * closed.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if(access != null) access.close();
+    if(temporary) file.delete();
+  }
+}
@@ -0,0 +1,843 @@
+/*
+ * name.polhill.gary.mcga: PopulationMatrix.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.GeometricMutator;
+import name.polhill.gary.util.Hamming;
+
+/**
+ * <!-- PopulationMatrix -->
+ *
+ * A population of {@link BitStringChromosome}s with the same configuration,
+ * stored as a single contiguous array of words in a {@link PopulationStorage}
+ * (by default on the heap). Each row of the matrix is one individual; each
+ * gene in a row starts on a word boundary. Members of the population are
+ * accessed through lightweight {@link Row} views, and
+ * {@link PopulationMatrixBreeder} writes offspring directly into the rows of
+ * another matrix.
+ *
+ * @author Gary Polhill
+ */
+public class PopulationMatrix implements Closeable {
+  /**
+   * <!-- nRows -->
+   *
+   * Number of individuals in the population
+   */
+  private final int nRows;
+
+  /**
+   * <!-- prototypes -->
+   *
+   * One gene for each column, used to build genes of the right class when a
+   * row is materialised
+   */
+  private final BitStringGene[] prototypes;
+
+  /**
+   * <!-- geneWords -->
+   *
+   * Offset in words of each gene from the start of the row
+   */
+  private final int[] geneWords;
+
+  /**
+   * <!-- rowWords -->
+   *
+   * Number of words in a row
+   */
+  private final int rowWords;
+
+  /**
+   * <!-- size -->
+   *
+   * Number of bits in a row (the size of each Chromosome)
+   */
+  private final long size;
+
+  /**
+   * <!-- words -->
+   *
+   * The population, row after row
+   */
+  final PopulationStorage words;
+
+  /**
+   * <!-- randomiser -->
+   *
+   * Random number generator for randomisation and mutation
+   */
+  private final Random randomiser;
+
+  /**
+   * <!-- PopulationMatrix constructor -->
+   *
+   * Build an all-zero population with the same configuration of genes as the
+   * prototype Chromosome
+   *
+   * @param nRows Size of the population
+   * @param prototype Chromosome with the configuration to use
+   */
+  public PopulationMatrix(int nRows, BitStringChromosome prototype) {
+    this(nRows, prototype, new HeapPopulationStorage(storageLength(nRows, prototype)));
+  }
+
+  /**
+   * <!-- PopulationMatrix constructor -->
+   *
+   * Build a population with the same configuration of genes as the prototype
+   * Chromosome, using the storage provided (which should be zeroed, and at
+   * least {@link #storageLength(int, BitStringChromosome)} words long)
+   *
+   * @param nRows Size of the population
+   * @param prototype Chromosome with the configuration to use
+   * @param storage Storage for the population
+   */
+  public PopulationMatrix(int nRows, BitStringChromosome prototype, PopulationStorage storage) {
+    this.nRows = nRows;
+    prototypes = new BitStringGene[prototype.genes.length];
+    geneWords = new int[prototypes.length];
+    int rowWords = 0;
+    for(int i = 0; i < prototypes.length; i++) {
+      prototypes[i] = prototype.genes[i];
+      geneWords[i] = rowWords;
+      rowWords += BitWords.nWords(prototypes[i].length);
+    }
+    this.rowWords = rowWords;
+    size = prototype.size();
+    if(storage.length() < (long)nRows * (long)rowWords) {
+      throw new IllegalArgumentException("Storage of " + storage.length() + " words is too small for " + nRows
+	+ " rows of " + rowWords + " words");
+    }
+    words = storage;
+    randomiser = new Random();
+  }
+
+  /**
+   * <!-- storageLength -->
+   *
+   * @param nRows Size of the population
+   * @param prototype Chromosome with the configuration to use
+   * @return The number of words of storage needed for the population
+   */
+  public static long storageLength(int nRows, BitStringChromosome prototype) {
+    long rowWords = 0;
+    for(int i = 0; i < prototype.genes.length; i++) {
+      rowWords += BitWords.nWords(prototype.genes[i].length);
+    }
+    return (long)nRows * rowWords;
+  }
+
+  /**
+   * <!-- PopulationMatrix constructor -->
+   *
+   * Build a matrix containing a copy of the population
+   *
+   * @param population Population of BitStringChromosomes, all with the same
+   *          configuration
+   */
+  public PopulationMatrix(Chromosome[] population) {
+    this(population.length, asBitStringChromosome(population[0]));
+    setAll(population);
+  }
+
+  /**
+   * <!-- PopulationMatrix constructor -->
+   *
+   * Build a matrix in the storage provided containing a copy of the
+   * population
+   *
+   * @param population Population of BitStringChromosomes, all with the same
+   *          configuration
+   * @param storage Storage for the population
+   */
+  public PopulationMatrix(Chromosome[] population, PopulationStorage storage) {
+    this(population.length, asBitStringChromosome(population[0]), storage);
+    setAll(population);
+  }
+
+  private void setAll(Chromosome[] population) {
+    for(int i = 0; i < population.length; i++) {
+      set(i, asBitStringChromosome(population[i]));
+    }
+  }
+
+  /**
+   * <!-- PopulationMatrix constructor -->
+   *
+   * Build an all-zero matrix with the same shape and kind of storage as
+   * another
+   *
+   * @param shape
+   */
+  PopulationMatrix(PopulationMatrix shape) {
+    nRows = shape.nRows;
+    prototypes = shape.prototypes;
+    geneWords = shape.geneWords;
+    rowWords = shape.rowWords;
+    size = shape.size;
+    words = shape.words.like();
+    randomiser = shape.randomiser;
+  }
+
+  private static BitStringChromosome asBitStringChromosome(Chromosome chromosome) {
+    if(chromosome instanceof BitStringChromosome) {
+      return (BitStringChromosome)chromosome;
+    }
+    else if(chromosome instanceof Row) {
+      return ((Row)chromosome).detach();
+    }
+    throw new RuntimeException("A PopulationMatrix can only store BitStringChromosomes, not " + chromosome.getClass());
+  }
+
+  /**
+   * <!-- nRows -->
+   *
+   * @return The number of individuals in the population
+   */
+  public int nRows() {
+    return nRows;
+  }
+
+  /**
+   * <!-- rowSize -->
+   *
+   * @return The number of bits in each individual
+   */
+  public long rowSize() {
+    return size;
+  }
+
+  /**
+   * <!-- getStorage -->
+   *
+   * @return The storage the population is kept in
+   */
+  public PopulationStorage getStorage() {
+    return words;
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Close the storage, if it can be closed (see
+   * {@link OffHeapPopulationStorage#close()}). The matrix and its rows should
+   * not be used afterwards.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if(words instanceof Closeable) ((Closeable)words).close();
+  }
+
+  /**
+   * <!-- sameShape -->
+   *
+   * @param other
+   * @return <code>true</code> if the other matrix has the same number of rows
+   *         and configuration of genes as this one
+   */
+  public boolean sameShape(PopulationMatrix other) {
+    if(other.nRows != nRows || other.prototypes.length != prototypes.length) return false;
+    for(int i = 0; i < prototypes.length; i++) {
+      if(other.prototypes[i].length != prototypes[i].length) return false;
+    }
+    return true;
+  }
+
+  /**
+   * <!-- row -->
+   *
+   * @param i
+   * @return A view of the ith member of the population
+   */
+  public Row row(int i) {
+    if(i < 0 || i >= nRows) {
+      throw new IndexOutOfBoundsException("Row " + i + " is not in a population of size " + nRows);
+    }
+    return new Row(i);
+  }
+
+  /**
+   * <!-- rows -->
+   *
+   * @return Views of all the members of the population
+   */
+  public Row[] rows() {
+    Row[] rows = new Row[nRows];
+    for(int i = 0; i < nRows; i++) {
+      rows[i] = new Row(i);
+    }
+    return rows;
+  }
+
+  /**
+   * <!-- set -->
+   *
+   * Copy a Chromosome into a row of the matrix
+   *
+   * @param row
+   * @param chromosome
+   */
+  public void set(int row, BitStringChromosome chromosome) {
+    if(chromosome.genes.length != prototypes.length) {
+      throw new RuntimeException("Chromosome has " + chromosome.genes.length + " genes rather than "
+	+ prototypes.length);
+    }
+    for(int i = 0; i < prototypes.length; i++) {
+      BitStringGene gene = chromosome.genes[i];
+      if(gene.length != prototypes[i].length) {
+	throw new RuntimeException("Gene " + i + " has length " + gene.length + " rather than "
+	  + prototypes[i].length);
+      }
+      words.write(base(row) + geneWords[i], gene.bits, 0, gene.bits.length);
+    }
+  }
+
+  /**
+   * <!-- get -->
+   *
+   * @param row
+   * @return A BitStringChromosome containing a copy of the row
+   */
+  public BitStringChromosome get(int row) {
+    BitStringGene[] genes = new BitStringGene[prototypes.length];
+    for(int i = 0; i < genes.length; i++) {
+      genes[i] = gene(row, i);
+    }
+    return new BitStringChromosome(genes);
+  }
+
+  /**
+   * <!-- gene -->
+   *
+   * @param row
+   * @param i
+   * @return A copy of the ith gene in the row
+   */
+  BitStringGene gene(int row, int i) {
+    long[] bits = new long[BitWords.nWords(prototypes[i].length)];
+    readGene(row, i, bits);
+    return prototypes[i].create(bits);
+  }
+
+  /**
+   * <!-- readGene -->
+   *
+   * @param row
+   * @param i
+   * @param dst Array to copy the words of the ith gene in the row into
+   */
+  private void readGene(int row, int i, long[] dst) {
+    words.read(base(row) + geneWords[i], dst, 0, BitWords.nWords(prototypes[i].length));
+  }
+
+  /**
+   * <!-- randomise -->
+   *
+   * Set every bit in the row to a random value
+   *
+   * @param row
+   */
+  public void randomise(int row) {
+    for(int i = 0; i < prototypes.length; i++) {
+      long base = base(row) + geneWords[i];
+      int n = BitWords.nWords(prototypes[i].length);
+      for(int w = 0; w < n - 1; w++) {
+	words.set(base + w, randomiser.nextLong());
+      }
+      if(n > 0) words.set(base + n - 1, randomiser.nextLong() & BitWords.topMask(prototypes[i].length));
+    }
+  }
+
+  /**
+   * <!-- copyRow -->
+   *
+   * Copy a row from another matrix of the same shape into a row of this one
+   *
+   * @param from
+   * @param fromRow
+   * @param toRow
+   */
+  public void copyRow(PopulationMatrix from, int fromRow, int toRow) {
+    words.copy(from.words, from.base(fromRow), base(toRow), rowWords);
+  }
+
+  /**
+   * <!-- crossoverRow -->
+   *
+   * Cross over the row with a row of another matrix of the same shape at the
+   * specified point, in place. The result is the same as
+   * {@link BitStringChromosome#crossover(Chromosome, long)} with the row as the
+   * Chromosome crossed over, and the other row as the argument: genes before
+   * the point come from this row, genes after it from the other, and in the
+   * gene containing the point, bits below it come from the other row.
+   *
+   * @param row The row to cross over (which will be modified)
+   * @param from The matrix containing the other row
+   * @param otherRow The other row
+   * @param point The point at which to cross over
+   */
+  public void crossoverRow(int row, PopulationMatrix from, int otherRow, long point) {
+    if(point <= 0) {
+      copyRow(from, otherRow, row);
+      return;
+    }
+    if(point >= size) return;
+
+    long start = 0;
+    int g;
+    for(g = 0; g < prototypes.length; g++) {
+      long end = start + prototypes[g].length;
+      if(point <= end) break;
+      start = end;
+    }
+
+    int p = (int)(point - start);
+    long base = base(row) + geneWords[g];
+    long otherBase = from.base(otherRow) + geneWords[g];
+    int w = p >>> 6;
+    words.copy(from.words, otherBase, base, w);
+    if(w < BitWords.nWords(prototypes[g].length)) {
+      long mask = -1L << p;
+      words.set(base + w, (from.words.get(otherBase + w) & ~mask) | (words.get(base + w) & mask));
+    }
+
+    int after = geneWords[g] + BitWords.nWords(prototypes[g].length);
+    words.copy(from.words, from.base(otherRow) + after, base(row) + after, rowWords - after);
+  }
+
+  /**
+   * <!-- mutateRow -->
+   *
+   * Mutate the row in place. As with {@link BitStringGene#mutate(double)},
+   * each bit has a pMutate probability of being set to a random value. Only
+   * genes with at least one bit chosen for mutation are read and written.
+   *
+   * @param row
+   * @param pMutate
+   * @return <code>true</code> if any bits were chosen for mutation
+   */
+  public boolean mutateRow(int row, double pMutate) {
+    GeometricMutator mutator = new GeometricMutator(pMutate, randomiser);
+    long[] gene = null;
+    for(int i = 0; i < prototypes.length; i++) {
+      int length = prototypes[i].length;
+      long bit = mutator.next(-1);
+      if(bit >= length) continue;
+      long base = base(row) + geneWords[i];
+      int n = BitWords.nWords(length);
+      if(gene == null || gene.length < n) gene = new long[n];
+      words.read(base, gene, 0, n);
+      mutator.mutate(gene, length, bit, 0L);
+      words.write(base, gene, 0, n);
+    }
+    return gene != null;
+  }
+
+  /**
+   * <!-- hammingDistance -->
+   *
+   * @param row
+   * @param other A matrix of the same shape
+   * @param otherRow
+   * @return The number of bits that differ between the two rows
+   */
+  public long hammingDistance(int row, PopulationMatrix other, int otherRow) {
+    long[] a = new long[rowWords];
+    long[] b = new long[rowWords];
+    readRow(row, a);
+    other.readRow(otherRow, b);
+    return Hamming.distance(a, b);
+  }
+
+  /**
+   * <!-- addRowTo -->
+   *
+   * Add a row to the column counts of a population
+   *
+   * @param row
+   * @param counter Counter with {@link #getRowWords()} words per row
+   * @param buffer Array of {@link #getRowWords()} words to read the row into
+   */
+  void addRowTo(int row, Hamming.ColumnCounter counter, long[] buffer) {
+    readRow(row, buffer);
+    counter.add(buffer, 0);
+    counter.nextRow();
+  }
+
+  /**
+   * <!-- getRowWords -->
+   *
+   * @return The number of words in a row
+   */
+  int getRowWords() {
+    return rowWords;
+  }
+
+  /**
+   * <!-- readRow -->
+   *
+   * @param row
+   * @param dst Array to copy the words of the row into
+   */
+  private void readRow(int row, long[] dst) {
+    words.read(base(row), dst, 0, rowWords);
+  }
+
+  /**
+   * <!-- base -->
+   *
+   * @param row
+   * @return The index in the storage of the first word of the row
+   */
+  private long base(int row) {
+    return (long)row * (long)rowWords;
+  }
+
+  /**
+   * <!-- Row -->
+   *
+   * A Chromosome that is a view of one row of the matrix. Genes returned by
+   * {@link #geneAt(int)}, and the results of the genetic operators, are
+   * copies, and do not change the matrix. Rows are overwritten when the matrix
+   * is reused for a later generation, so use {@link #clone()} to keep a
+   * member of the population.
+   *
+   * @author Gary Polhill
+   */
+  public class Row extends AbstractChromosome {
+    /**
+     * <!-- row -->
+     *
+     * The row viewed
+     */
+    private final int row;
+
+    private Row(int row) {
+      this.row = row;
+    }
+
+    /**
+     * <!-- getMatrix -->
+     *
+     * @return The matrix this is a view of
+     */
+    public PopulationMatrix getMatrix() {
+      return PopulationMatrix.this;
+    }
+
+    /**
+     * <!-- getRow -->
+     *
+     * @return The row of the matrix this is a view of
+     */
+    public int getRow() {
+      return row;
+    }
+
+    /**
+     * <!-- setCost -->
+     *
+     * Package-private method for breeders to carry over the cost of elites,
+     * and of offspring that are unchanged copies of a parent
+     *
+     * @param from Chromosome with the same content as this row
+     */
+    void setCost(Chromosome from) {
+      this.cost = from.getCost();
+      this.costFunction = from instanceof AbstractChromosome ? ((AbstractChromosome)from).costFunction : null;
+      this.costFingerprint = from instanceof AbstractChromosome ? ((AbstractChromosome)from).costFingerprint : 0L;
+    }
+
+    /**
+     * <!-- detach -->
+     *
+     * @return A BitStringChromosome with a copy of the row and its cost
+     */
+    public BitStringChromosome detach() {
+      BitStringChromosome chromosome = get(row);
+      if(cost != null) {
+	chromosome.cost = new Cost[cost.length];
+	for(int i = 0; i < cost.length; i++) {
+	  chromosome.cost[i] = cost[i].clone();
+	}
+      }
+      chromosome.costFunction = costFunction;
+      chromosome.costFingerprint = costFingerprint;
+      return chromosome;
+    }
+
+    /**
+     * <!-- fingerprint -->
+     *
+     * The row may be overwritten in the matrix without invalidating its
+     * cost, so the cost is only valid while the fingerprint is the same.
+     *
+     * @return The fingerprint of the row, read from the storage without
+     *         copying it; the same as that of {@link #detach()} (see
+     *         {@link BitStringChromosome#fingerprint()})
+     */
+    @Override
+    public long fingerprint() {
+      long base = base(row);
+      long fingerprint = 0L;
+      for(int i = 0; i < prototypes.length; i++) {
+	long gene = 0L;
+	for(int w = 0; w < BitWords.nWords(prototypes[i].length); w++) {
+	  gene ^= BitWords.mix(words.get(base + geneWords[i] + w), w);
+	}
+	fingerprint ^= BitWords.mix(gene, i);
+      }
+      return fingerprint;
+    }
+
+    /**
+     * <!-- sameAs -->
+     *
+     * @param chromosome A BitStringChromosome
+     * @return Whether the Chromosome is equal to {@link #detach()}, compared
+     *         without copying the row
+     */
+    boolean sameAs(BitStringChromosome chromosome) {
+      if(chromosome.getClass() != BitStringChromosome.class || chromosome.genes.length != prototypes.length) {
+	return false;
+      }
+      long base = base(row);
+      for(int i = 0; i < prototypes.length; i++) {
+	BitStringGene gene = chromosome.genes[i];
+	if(gene.getClass() != prototypes[i].getClass() || gene.length != prototypes[i].length) return false;
+	for(int w = 0; w < gene.bits.length; w++) {
+	  if(gene.bits[w] != words.get(base + geneWords[i] + w)) return false;
+	}
+      }
+      return true;
+    }
+
+    /**
+     * <!-- randomise -->
+     *
+     * Randomise the row of the matrix
+     *
+     * @see name.polhill.gary.mcga.Chromosome#randomise()
+     */
+    @Override
+    public Chromosome randomise() {
+      PopulationMatrix.this.randomise(row);
+      invalidateCost();
+      return this;
+    }
+
+    /**
+     * <!-- crossover -->
+     *
+     * @see name.polhill.gary.mcga.Chromosome#crossover(name.polhill.gary.mcga.Chromosome,
+     *      long)
+     */
+    @Override
+    public Chromosome crossover(Chromosome other, long point) {
+      return detach().crossover(other instanceof Row ? ((Row)other).detach() : other, point);
+    }
+
+    /**
+     * <!-- mutate -->
+     *
+     * @see name.polhill.gary.mcga.Chromosome#mutate(double)
+     */
+    @Override
+    public Chromosome mutate(double pMutate) {
+      return detach().mutate(pMutate);
+    }
+
+    /**
+     * <!-- clone -->
+     *
+     * @see name.polhill.gary.mcga.AbstractChromosome#clone()
+     */
+    @Override
+    public BitStringChromosome clone() {
+      return detach();
+    }
+
+    /**
+     * <!-- size -->
+     *
+     * @see name.polhill.gary.mcga.Chromosome#size()
+     */
+    @Override
+    public long size() {
+      return size;
+    }
+
+    /**
+     * <!-- geneAt -->
+     *
+     * The gene is a copy, as the row may be overwritten; to write a gene
+     * without copying it, use {@link Chromosome.Tools#writeTo(Chromosome, int,
+     * OutputStream)}.
+     *
+     * @see name.polhill.gary.mcga.Chromosome#geneAt(int)
+     */
+    @Override
+    public Gene geneAt(int i) {
+      return gene(row, i);
+    }
+
+    /**
+     * <!-- nGenes -->
+     *
+     * @see name.polhill.gary.mcga.Chromosome#nGenes()
+     */
+    @Override
+    public int nGenes() {
+      return prototypes.length;
+    }
+
+    /**
+     * <!-- difference -->
+     *
+     * Rows of matrices with the same shape are compared directly
+     *
+     * @see name.polhill.gary.mcga.AbstractChromosome#difference(name.polhill.gary.mcga.Chromosome)
+     */
+    @Override
+    public double difference(Chromosome other) {
+      if(other instanceof Row && ((Row)other).getMatrix().sameShape(PopulationMatrix.this)) {
+	Row otherRow = (Row)other;
+	return (double)hammingDistance(row, otherRow.getMatrix(), otherRow.row) / (double)size;
+      }
+      return detach().difference(other instanceof Row ? ((Row)other).detach() : other);
+    }
+
+    /**
+     * <!-- byteSize -->
+     *
+     * @see name.polhill.gary.mcga.AbstractChromosome#byteSize()
+     */
+    @Override
+    public long byteSize() {
+      long size = 0;
+      for(int i = 0; i < prototypes.length; i++) {
+	size += BitWords.nBytes(prototypes[i].length);
+      }
+      return size;
+    }
+
+    /**
+     * <!-- writeTo -->
+     *
+     * Genes are written straight from the storage
+     *
+     * @see name.polhill.gary.mcga.AbstractChromosome#writeTo(java.nio.ByteBuffer)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+      for(int i = 0; i < prototypes.length; i++) {
+	writeGeneTo(i, buffer);
+      }
+    }
+
+    /**
+     * <!-- writeTo -->
+     *
+     * Genes are written straight from the storage
+     *
+     * @see name.polhill.gary.mcga.AbstractChromosome#writeTo(java.io.OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      for(int i = 0; i < prototypes.length; i++) {
+	writeGeneTo(i, out);
+      }
+    }
+
+    /**
+     * <!-- prototype -->
+     *
+     * @param i
+     * @return The prototype of the ith gene, giving its class and length
+     */
+    BitStringGene prototype(int i) {
+      return prototypes[i];
+    }
+
+    /**
+     * <!-- writeGeneTo -->
+     *
+     * Write the ith gene straight from the storage to a buffer, as
+     * {@link BitWords#write(long[], int, ByteBuffer)} would
+     *
+     * @param i
+     * @param buffer
+     */
+    void writeGeneTo(int i, ByteBuffer buffer) {
+      long from = base(row) + geneWords[i];
+      int top = BitWords.nWords(prototypes[i].length) - 1;
+      if(top < 0) return;
+      long word = words.get(from + top);
+      for(int b = BitWords.nBytes(prototypes[i].length) - (top << 3) - 1; b >= 0; b--) {
+	buffer.put((byte)(word >>> (b << 3)));
+      }
+      boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+      for(int w = top - 1; w >= 0; w--) {
+	word = words.get(from + w);
+	buffer.putLong(bigEndian ? word : Long.reverseBytes(word));
+      }
+    }
+
+    /**
+     * <!-- writeGeneTo -->
+     *
+     * Write the ith gene straight from the storage to a stream, in the same
+     * chunks as {@link BitWords#write(long[], int, OutputStream)} would
+     *
+     * @param i
+     * @param out
+     * @throws IOException
+     */
+    void writeGeneTo(int i, OutputStream out) throws IOException {
+      long from = base(row) + geneWords[i];
+      byte[] chunk = BitWords.chunk();
+      int n = 0;
+      int bytes = BitWords.nBytes(prototypes[i].length);
+      for(int w = BitWords.nWords(prototypes[i].length) - 1; w >= 0; w--) {
+	long word = words.get(from + w);
+	for(int b = Math.min(bytes - (w << 3), 8) - 1; b >= 0; b--) {
+	  chunk[n++] = (byte)(word >>> (b << 3));
+	  if(n == chunk.length) {
+	    out.write(chunk, 0, n);
+	    n = 0;
+	  }
+	}
+      }
+      if(n > 0) out.write(chunk, 0, n);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * name.polhill.gary.mcga: PopulationMatrixBreeder.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import name.polhill.gary.util.RankSampler;
+
+/**
+ * <!-- PopulationMatrixBreeder -->
+ *
+ * The same rank lottery algorithm as {@link KeepBestRankLotteryBreeder}, for
+ * populations stored in a {@link PopulationMatrix}. Offspring are written
+ * directly into the rows of a second matrix, and the two matrices swap roles
+ * each generation, so breeding does not create any genes. The second matrix
+ * has the same kind of storage as the first (see
+ * {@link PopulationStorage#like()}); {@link #close()} releases it when the
+ * breeder is no longer needed.
+ *
+ * @author Gary Polhill
+ */
+public class PopulationMatrixBreeder implements Breeder, Closeable {
+
+  private double pCrossover;
+  private double pMutate;
+  private int nBestKept;
+  private boolean replacement;
+
+  /**
+   * <!-- spare -->
+   *
+   * The matrix from the previous generation, to be overwritten by the next
+   */
+  private PopulationMatrix spare;
+
+  /**
+   * <!-- created -->
+   *
+   * The matrix this breeder last created, which it closes when it is no
+   * longer needed
+   */
+  private PopulationMatrix created;
+
+  /**
+   * <!-- PopulationMatrixBreeder constructor -->
+   *
+   * @param pCrossover Crossover probability
+   * @param pMutate Mutate probability
+   * @param nBestKept Number of best Chromosomes from the population to copy to
+   *          the next generation without applying genetic operators
+   */
+  public PopulationMatrixBreeder(double pCrossover, double pMutate, int nBestKept) {
+    this.pCrossover = pCrossover;
+    this.pMutate = pMutate;
+    this.nBestKept = nBestKept;
+  }
+
+  /**
+   * <!-- setReplacement -->
+   *
+   * @param replacement <code>true</code> to draw lottery tickets with
+   *          replacement
+   * @see KeepBestRankLotteryBreeder#setReplacement(boolean)
+   */
+  public void setReplacement(boolean replacement) {
+    this.replacement = replacement;
+  }
+
+  /**
+   * <!-- breed -->
+   *
+   * The population must be views of rows of a single PopulationMatrix (as
+   * returned by {@link PopulationMatrix#rows()} or by this method).
+   *
+   * @see name.polhill.gary.mcga.Breeder#breed(name.polhill.gary.mcga.Chromosome[],
+   *      boolean)
+   */
+  @Override
+  public Chromosome[] breed(Chromosome[] population, boolean maximise) {
+    PopulationMatrix current = matrixOf(population);
+    PopulationMatrix next;
+    if(spare != null && spare != current && spare.sameShape(current)) {
+      next = spare;
+    }
+    else {
+      if(spare != current) {
+	try {
+	  close();
+	}
+	catch(IOException e) {
+	  throw new RuntimeException(e);
+	}
+      }
+      next = new PopulationMatrix(current);
+      created = next;
+    }
+
+    List<Chromosome> sortedPop = KeepBestRankLotteryBreeder.sortByCost(population, maximise);
+    PopulationMatrix.Row[] newpop = next.rows();
+    for(int i = 0; i < nBestKept; i++) {
+      PopulationMatrix.Row best = (PopulationMatrix.Row)sortedPop.get(sortedPop.size() - (i + 1));
+      next.copyRow(current, best.getRow(), i);
+      newpop[i].setCost(best);
+    }
+    RankSampler lottery = KeepBestRankLotteryBreeder.lottery(population.length, replacement);
+    for(int i = nBestKept; i < population.length; i++) {
+      PopulationMatrix.Row mother = (PopulationMatrix.Row)sortedPop.get(lottery.next());
+      int father = ((PopulationMatrix.Row)sortedPop.get(lottery.next())).getRow();
+      next.copyRow(current, mother.getRow(), i);
+      boolean changed = false;
+      if(Math.random() < pCrossover) {
+	next.crossoverRow(i, current, father, (long)(Math.random() * current.rowSize()));
+	changed = true;
+      }
+      if(pMutate > 0.0) {
+	changed |= next.mutateRow(i, pMutate);
+      }
+      if(!changed) newpop[i].setCost(mother);
+    }
+    spare = current;
+    return newpop;
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Release the spare matrix, closing it (see {@link PopulationMatrix#close()})
+   * if this breeder created it. The matrix holding the population last
+   * returned by {@link #breed(Chromosome[], boolean)} is left open for the
+   * caller to use, and close when done with it.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    PopulationMatrix matrix = spare;
+    spare = null;
+    if(matrix != null && matrix == created) {
+      created = null;
+      matrix.close();
+    }
+  }
+
+  private static PopulationMatrix matrixOf(Chromosome[] population) {
+    PopulationMatrix matrix = null;
+    for(Chromosome chromosome: population) {
+      if(!(chromosome instanceof PopulationMatrix.Row)) {
+	throw new RuntimeException("PopulationMatrixBreeder cannot breed Chromosomes of class " + chromosome.getClass());
+      }
+      PopulationMatrix rowMatrix = ((PopulationMatrix.Row)chromosome).getMatrix();
+      if(matrix == null) matrix = rowMatrix;
+      else if(matrix != rowMatrix) {
+	throw new RuntimeException("PopulationMatrixBreeder cannot breed rows from more than one PopulationMatrix");
+      }
+    }
+    if(matrix == null || population.length != matrix.nRows()) {
+      throw new RuntimeException("PopulationMatrixBreeder needs the whole of a PopulationMatrix as population");
+    }
+    return matrix;
+  }
+}
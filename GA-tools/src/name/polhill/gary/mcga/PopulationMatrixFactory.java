@@ -0,0 +1,125 @@
+/*
+ * name.polhill.gary.mcga: PopulationMatrixFactory.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <!-- PopulationMatrixFactory -->
+ * 
+ * Factory building populations of {@link BitStringChromosome}s stored in a
+ * {@link PopulationMatrix}, either on the heap, in direct memory, or in a
+ * memory-mapped file. Use with a {@link PopulationMatrixBreeder}.
+ * 
+ * @author Gary Polhill
+ */
+public class PopulationMatrixFactory implements PopulationFactory {
+  /**
+   * <!-- Storage -->
+   * 
+   * Where to keep the population
+   * 
+   * @author Gary Polhill
+   */
+  public enum Storage {
+    HEAP, DIRECT, MAPPED
+  };
+
+  private final BitStringChromosome prototype;
+  private final boolean randomise;
+  private final Storage storage;
+  private final File dir;
+
+  /**
+   * <!-- PopulationMatrixFactory constructor -->
+   * 
+   * Factory for populations on the heap
+   * 
+   * @param prototype Chromosome with the configuration of genes to use
+   * @param randomise Whether to randomise the population (otherwise it will be
+   *          all zeros)
+   */
+  public PopulationMatrixFactory(BitStringChromosome prototype, boolean randomise) {
+    this(prototype, randomise, Storage.HEAP, null);
+  }
+
+  /**
+   * <!-- PopulationMatrixFactory constructor -->
+   * 
+   * @param prototype Chromosome with the configuration of genes to use
+   * @param randomise Whether to randomise the population (otherwise it will be
+   *          all zeros)
+   * @param storage Where to keep the population
+   * @param dir Directory for the files of {@link Storage#MAPPED} populations
+   *          (<code>null</code> for the system temporary directory)
+   */
+  public PopulationMatrixFactory(BitStringChromosome prototype, boolean randomise, Storage storage, File dir) {
+    this.prototype = prototype;
+    this.randomise = randomise;
+    this.storage = storage;
+    this.dir = dir;
+  }
+
+  /**
+   * <!-- buildMatrix -->
+   * 
+   * @param size
+   * @return A PopulationMatrix with <code>size</code> rows
+   */
+  public PopulationMatrix buildMatrix(int size) {
+    long length = PopulationMatrix.storageLength(size, prototype);
+    PopulationStorage words;
+    switch(storage) {
+    case DIRECT:
+      words = new OffHeapPopulationStorage(length);
+      break;
+    case MAPPED:
+      try {
+	words = OffHeapPopulationStorage.createTempFile(length, dir);
+      }
+      catch(IOException e) {
+	throw new RuntimeException(e);
+      }
+      break;
+    default:
+      words = new HeapPopulationStorage(length);
+    }
+    PopulationMatrix matrix = new PopulationMatrix(size, prototype, words);
+    if(randomise) {
+      for(int i = 0; i < size; i++) {
+	matrix.randomise(i);
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * <!-- buildPopulation -->
+   * 
+   * @see name.polhill.gary.mcga.PopulationFactory#buildPopulation(int)
+   */
+  @Override
+  public Chromosome[] buildPopulation(int size) {
+    return buildMatrix(size).rows();
+  }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * name.polhill.gary.mcga: PopulationMatrixTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- PopulationMatrixTest -->
+ *
+ * Test for the PopulationMatrix class, against the same operations on
+ * BitStringChromosomes, in each kind of storage
+ *
+ * @author Gary Polhill
+ */
+public class PopulationMatrixTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 5, 64, 1, 130, 63, 200 };
+
+  private static final int N_ROWS = 10;
+
+  /**
+   * @param name
+   */
+  public PopulationMatrixTest(String name) {
+    super(name);
+  }
+
+  private static Chromosome[] population() {
+    Chromosome[] population = new Chromosome[N_ROWS];
+    for(int i = 0; i < population.length; i++) {
+      population[i] = new BitStringChromosome(GENE_LENGTHS).randomise();
+    }
+    return population;
+  }
+
+  private static PopulationMatrix[] matrices(Chromosome[] population) throws IOException {
+    long length = PopulationMatrix.storageLength(population.length, (BitStringChromosome)population[0]);
+    return new PopulationMatrix[] {
+      new PopulationMatrix(population, new HeapPopulationStorage(length)),
+      new PopulationMatrix(population, new OffHeapPopulationStorage(length)),
+      new PopulationMatrix(population, OffHeapPopulationStorage.createTempFile(length, null))
+    };
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.PopulationMatrix#crossoverRow(int, PopulationMatrix, int, long)}:
+   * the same as
+   * {@link name.polhill.gary.mcga.BitStringChromosome#crossover(Chromosome, long)},
+   * at points in, between, before and after the genes.
+   */
+  public void testCrossoverRow() throws IOException {
+    Chromosome[] population = population();
+    for(PopulationMatrix matrix: matrices(population)) {
+      PopulationMatrix children = new PopulationMatrix(population.length, matrix.get(0), matrix.getStorage()
+	  .like());
+      long size = matrix.rowSize();
+      for(long point = -1; point <= size + 1; point++) {
+	int mother = (int)((point + 1) % N_ROWS);
+	int father = (int)((point + 4) % N_ROWS);
+	Chromosome expected = population[mother].crossover(population[father], point);
+	children.copyRow(matrix, mother, 0);
+	children.crossoverRow(0, matrix, father, point);
+	assertEquals(expected, children.get(0));
+      }
+      assertEquals(population[0], matrix.get(0));
+      children.close();
+      matrix.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.PopulationMatrix#mutateRow(int, double)}:
+   * no change with no chance of mutation, and with a chance, half the bits
+   * chosen on average differ afterwards, as with
+   * {@link name.polhill.gary.mcga.BitStringChromosome#mutate(double)}.
+   */
+  public void testMutateRow() throws IOException {
+    Chromosome[] population = population();
+    for(PopulationMatrix matrix: matrices(population)) {
+      for(int i = 0; i < N_ROWS; i++) {
+	assertFalse(matrix.mutateRow(i, 0.0));
+	assertEquals(population[i], matrix.get(i));
+      }
+
+      double p = 0.05;
+      int trials = 400;
+      long size = matrix.rowSize();
+      long rowDistance = 0L;
+      long chromosomeDistance = 0L;
+      for(int t = 0; t < trials; t++) {
+	int i = t % N_ROWS;
+	matrix.mutateRow(i, p);
+	for(int g = 0; g < GENE_LENGTHS.length; g++) {
+	  BitStringGene before = (BitStringGene)population[i].geneAt(g);
+	  BitStringGene after = (BitStringGene)matrix.row(i).geneAt(g);
+	  rowDistance += before.xor(after).nOnes();
+	  BitStringGene mutated = before.mutate(p);
+	  chromosomeDistance += before.xor(mutated).nOnes();
+	}
+	matrix.set(i, (BitStringChromosome)population[i]);
+      }
+      double n = (double)size * trials;
+      double sd = Math.sqrt(n * p / 2.0);
+      assertEquals(n * p / 2.0, rowDistance, 5.0 * sd);
+      assertEquals(n * p / 2.0, chromosomeDistance, 5.0 * sd);
+      matrix.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.PopulationMatrix.Row#writeTo(ByteBuffer)}:
+   * rows are written as their detached copies are, to buffers and streams,
+   * and are the same as them.
+   */
+  public void testRow() throws IOException {
+    Chromosome[] population = population();
+    for(PopulationMatrix matrix: matrices(population)) {
+      for(int i = 0; i < N_ROWS; i++) {
+	PopulationMatrix.Row row = matrix.row(i);
+	BitStringChromosome detached = row.detach();
+	assertEquals(population[i], detached);
+	assertTrue(row.sameAs(detached));
+	assertEquals(detached.fingerprint(), row.fingerprint());
+	assertFalse(row.sameAs((BitStringChromosome)population[(i + 1) % N_ROWS]));
+	assertEquals(detached.byteSize(), row.byteSize());
+	ByteBuffer fromRow = ByteBuffer.allocate((int)row.byteSize());
+	ByteBuffer fromDetached = ByteBuffer.allocate((int)detached.byteSize());
+	row.writeTo(fromRow);
+	detached.writeTo(fromDetached);
+	assertTrue(Arrays.equals(fromDetached.array(), fromRow.array()));
+	ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+	row.writeTo(streamed);
+	assertTrue(Arrays.equals(fromDetached.array(), streamed.toByteArray()));
+	assertEquals(0.0, row.difference(detached), 0.0);
+      }
+      matrix.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.PopulationStorage#copy(PopulationStorage, long, long, long)}
+   * and the bulk reads and writes, in each kind of storage and between them,
+   * against the same on the heap, including overlapping copies within a
+   * storage.
+   */
+  public void testStorage() throws IOException {
+    Random random = new Random(19);
+    int length = 100003;
+    HeapPopulationStorage expected = new HeapPopulationStorage(length);
+    PopulationStorage[] storages = {
+      new HeapPopulationStorage(length),
+      new OffHeapPopulationStorage(length),
+      OffHeapPopulationStorage.createTempFile(length, null)
+    };
+    PopulationStorage[] sources = { new HeapPopulationStorage(length), new OffHeapPopulationStorage(length) };
+    long[] words = new long[length];
+    for(int i = 0; i < length; i++) {
+      words[i] = random.nextLong();
+    }
+    expected.write(0, words, 0, length);
+    for(PopulationStorage storage: storages) {
+      storage.write(0, words, 0, length);
+    }
+    for(int i = 0; i < length; i++) {
+      words[i] = random.nextLong();
+    }
+    for(PopulationStorage source: sources) {
+      source.write(0, words, 0, length);
+    }
+
+    for(int t = 0; t < 50; t++) {
+      int n = random.nextInt(length / 2);
+      long from = random.nextInt(length - n);
+      long to = t % 5 == 0 ? from + random.nextInt(9) - 4 : random.nextInt(length - n);
+      if(to < 0 || to + n > length) continue;
+      boolean within = t % 2 == 0;
+      PopulationStorage source = sources[random.nextInt(sources.length)];
+      expected.copy(within ? expected : source, from, to, n);
+      for(PopulationStorage storage: storages) {
+	storage.copy(within ? storage : source, from, to, n);
+      }
+      long[] want = new long[length];
+      expected.read(0, want, 0, length);
+      for(PopulationStorage storage: storages) {
+	long[] got = new long[length];
+	storage.read(0, got, 0, length);
+	assertTrue(Arrays.equals(want, got));
+      }
+    }
+    for(PopulationStorage storage: storages) {
+      if(storage instanceof OffHeapPopulationStorage) ((OffHeapPopulationStorage)storage).close();
+    }
+    ((OffHeapPopulationStorage)sources[1]).close();
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.OffHeapPopulationStorage#close()}: a
+   * temporary file is deleted when the storage is closed.
+   */
+  public void testTemporaryFile() throws IOException {
+    OffHeapPopulationStorage storage = OffHeapPopulationStorage.createTempFile(100, null);
+    File file = storage.getFile();
+    assertTrue(file.exists());
+    storage.set(99, 1L);
+    assertEquals(1L, storage.get(99));
+    storage.close();
+    assertFalse(file.exists());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * name.polhill.gary.mcga: PopulationStorage.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+/**
+ * <!-- PopulationStorage -->
+ *
+ * Interface for the array of words underlying a {@link PopulationMatrix}.
+ * Indices are longs so that implementations can store more than 2^31 words.
+ *
+ * @author Gary Polhill
+ */
+public interface PopulationStorage {
+  /**
+   * <!-- length -->
+   *
+   * @return The number of words stored
+   */
+  public long length();
+
+  /**
+   * <!-- get -->
+   *
+   * @param index
+   * @return The word at the index
+   */
+  public long get(long index);
+
+  /**
+   * <!-- set -->
+   *
+   * @param index
+   * @param value
+   */
+  public void set(long index, long value);
+
+  /**
+   * <!-- read -->
+   *
+   * Copy words from the storage into an array
+   *
+   * @param index First word to copy
+   * @param dst Array to copy to
+   * @param offset Position in the array to copy the first word to
+   * @param n Number of words to copy
+   */
+  public void read(long index, long[] dst, int offset, int n);
+
+  /**
+   * <!-- write -->
+   *
+   * Copy words from an array into the storage
+   *
+   * @param index Position in the storage to copy the first word to
+   * @param src Array to copy from
+   * @param offset First word in the array to copy
+   * @param n Number of words to copy
+   */
+  public void write(long index, long[] src, int offset, int n);
+
+  /**
+   * <!-- copy -->
+   *
+   * Copy words from another storage (which may be this one) into this one
+   *
+   * @param from Storage to copy from
+   * @param fromIndex First word to copy
+   * @param toIndex Position to copy the first word to
+   * @param n Number of words to copy
+   */
+  public void copy(PopulationStorage from, long fromIndex, long toIndex, long n);
+
+  /**
+   * <!-- like -->
+   *
+   * @return A new, zeroed, storage of the same kind and length as this one
+   */
+  public PopulationStorage like();
+}
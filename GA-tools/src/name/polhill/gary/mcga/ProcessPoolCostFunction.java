@@ -0,0 +1,492 @@
+/*
+ * name.polhill.gary.mcga: ProcessPoolCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <!-- ProcessPoolCostFunction -->
+ *
+ * A cost function that has Chromosomes evaluated by a pool of long-lived
+ * external processes (such as native simulators), so that a process need not
+ * be started for each evaluation. Each worker process reads requests from its
+ * standard input and writes responses to its standard output, using the
+ * following framing, with all numbers big-endian (as
+ * {@link java.io.DataInput}):
+ *
+ * <ul>
+ * <li>Request: <code>int</code> id; <code>int</code> number of bytes
+ * <code>n</code>; <code>n</code> bytes of Chromosome, as written by
+ * {@link Chromosome.Tools#writeTo(Chromosome, java.io.OutputStream)}.</li>
+ * <li>Response: <code>int</code> id of the request; then the costs, as
+ * written by {@link WireFormat}: <code>int</code> number of costs; then for
+ * each cost, either the byte 0 and one <code>double</code> for a
+ * {@link DoubleCost}, or the byte 1, <code>int</code> number of values
+ * <code>m</code> and <code>m</code> <code>double</code>s for a
+ * {@link DoubleArrayCost}.</li>
+ * </ul>
+ *
+ * Up to a given number of requests are sent to each worker before its first
+ * response is read, so the pipes are kept busy; responses may come back in
+ * any order. A process should exit when its standard input is closed. If a
+ * process dies, it is restarted and the requests it had not answered are sent
+ * again, one at a time. A death is only charged to a Chromosome when its
+ * request was the only one the worker had not answered, so Chromosomes queued
+ * behind one that kills its worker are not blamed for it; a Chromosome charged
+ * with too many deaths causes a RuntimeException.
+ *
+ * As a {@link BatchCostFunction}, this is best used with a batch size of 0,
+ * so that all the Chromosomes needing evaluation in a generation are shared
+ * among the workers in one call.
+ *
+ * @author Gary Polhill
+ */
+public class ProcessPoolCostFunction implements BatchCostFunction,
+    ThreadSafeCostFunction, Closeable {
+  /**
+   * <!-- command -->
+   *
+   * Command (program and arguments) to start a worker process
+   */
+  private final List<String> command;
+
+  /**
+   * <!-- pipelineDepth -->
+   *
+   * Maximum number of requests sent to a worker and not yet answered
+   */
+  private final int pipelineDepth;
+
+  /**
+   * <!-- maxAttempts -->
+   *
+   * Maximum number of times a Chromosome may be charged with the death of a
+   * worker before the batch fails
+   */
+  private final int maxAttempts;
+
+  /**
+   * <!-- workers -->
+   *
+   * The worker processes
+   */
+  private final Worker[] workers;
+
+  /**
+   * <!-- threads -->
+   *
+   * One thread for each worker, to talk to it
+   */
+  private final ExecutorService threads;
+
+  /**
+   * <!-- restarts -->
+   *
+   * Number of times a worker process has been restarted
+   */
+  private final AtomicInteger restarts;
+
+  /**
+   * <!-- ProcessPoolCostFunction constructor -->
+   *
+   * @param command The program to run as a worker process, and its arguments
+   * @param nWorkers The number of worker processes
+   * @param pipelineDepth The maximum number of requests to send to a worker
+   *          before reading a response
+   * @param maxAttempts The maximum number of times a Chromosome may be the
+   *          only request unanswered by a worker that dies
+   * @throws IOException If the worker processes cannot be started
+   */
+  public ProcessPoolCostFunction(List<String> command, int nWorkers, int pipelineDepth, int maxAttempts)
+      throws IOException {
+    if(nWorkers < 1) throw new IllegalArgumentException("Number of workers " + nWorkers + " less than 1");
+    if(pipelineDepth < 1) {
+      throw new IllegalArgumentException("Pipeline depth " + pipelineDepth + " less than 1");
+    }
+    if(maxAttempts < 1) {
+      throw new IllegalArgumentException("Maximum attempts " + maxAttempts + " less than 1");
+    }
+    this.command = new ArrayList<String>(command);
+    this.pipelineDepth = pipelineDepth;
+    this.maxAttempts = maxAttempts;
+    this.restarts = new AtomicInteger();
+    workers = new Worker[nWorkers];
+    try {
+      for(int i = 0; i < nWorkers; i++) {
+	workers[i] = new Worker();
+      }
+    }
+    catch(IOException e) {
+      for(Worker worker: workers) {
+	if(worker != null) worker.stop();
+      }
+      throw e;
+    }
+    threads = Executors.newFixedThreadPool(nWorkers, new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+	Thread thread = new Thread(r, "ProcessPoolCostFunction worker");
+	thread.setDaemon(true);
+	return thread;
+      }
+    });
+  }
+
+  /**
+   * <!-- ProcessPoolCostFunction constructor -->
+   *
+   * Constructor with four requests pipelined to each worker, and three
+   * attempts at each Chromosome
+   *
+   * @param command The program to run as a worker process, and its arguments
+   * @param nWorkers The number of worker processes
+   * @throws IOException If the worker processes cannot be started
+   */
+  public ProcessPoolCostFunction(List<String> command, int nWorkers) throws IOException {
+    this(command, nWorkers, 4, 3);
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public Cost[] cost(Chromosome chromosome) {
+    return cost(new Chromosome[] { chromosome })[0];
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * Share the Chromosomes among the workers. Each worker takes the next
+   * Chromosome not yet sent whenever it has room in its pipeline, so faster
+   * workers evaluate more of them. If the calling thread is interrupted (for
+   * example, because the evaluation has taken too long), the worker processes
+   * are killed, and restarted at the next call.
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#cost(name.polhill.gary.mcga.Chromosome[])
+   */
+  @Override
+  public synchronized Cost[][] cost(final Chromosome[] chromosomes) {
+    final Cost[][] costs = new Cost[chromosomes.length][];
+    final int[] failures = new int[chromosomes.length];
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+    List<Future<Object>> serving = new ArrayList<Future<Object>>(workers.length);
+    for(final Worker worker: workers) {
+      serving.add(threads.submit(new Callable<Object>() {
+	public Object call() throws IOException {
+	  worker.serve(chromosomes, next, failures, costs, cancelled);
+	  return null;
+	}
+      }));
+    }
+    Throwable failure = null;
+    boolean interrupted = false;
+    for(Future<Object> future: serving) {
+      while(true) {
+	try {
+	  future.get();
+	  break;
+	}
+	catch(InterruptedException e) {
+	  // The workers must finish before another batch can use them
+	  if(!interrupted) {
+	    interrupted = true;
+	    cancelled.set(true);
+	    for(Worker worker: workers) {
+	      worker.kill();
+	    }
+	  }
+	}
+	catch(ExecutionException e) {
+	  if(failure == null) failure = e.getCause();
+	  break;
+	}
+      }
+    }
+    if(interrupted) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating chromosomes");
+    }
+    if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+    if(failure instanceof Error) throw (Error)failure;
+    if(failure != null) throw new RuntimeException(failure);
+    return costs;
+  }
+
+  /**
+   * <!-- batchSize -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#batchSize()
+   */
+  @Override
+  public int batchSize() {
+    return 0;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * Calls from different threads take turns with the workers
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return true;
+  }
+
+  /**
+   * <!-- getRestarts -->
+   *
+   * @return The number of times a worker process has been restarted
+   */
+  public int getRestarts() {
+    return restarts.get();
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Close the standard input of each worker process and wait for them to exit
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public synchronized void close() {
+    threads.shutdownNow();
+    for(Worker worker: workers) {
+      worker.stop();
+    }
+  }
+
+  /**
+   * <!-- Worker -->
+   *
+   * A worker process and the streams used to talk to it
+   *
+   * @author Gary Polhill
+   */
+  private class Worker {
+    private volatile Process process;
+    private DataOutputStream out;
+    private DataInputStream in;
+
+    /**
+     * <!-- broken -->
+     *
+     * Whether the worker may have unanswered requests left over from a batch
+     * that failed, and so must be restarted before it is used again
+     */
+    private boolean broken;
+
+    /**
+     * <!-- Worker constructor -->
+     *
+     * @throws IOException
+     */
+    Worker() throws IOException {
+      start();
+    }
+
+    /**
+     * <!-- start -->
+     *
+     * Start the process. Its standard error is that of this process.
+     *
+     * @throws IOException
+     */
+    private void start() throws IOException {
+      ProcessBuilder builder = new ProcessBuilder(command);
+      builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+      process = builder.start();
+      out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+      broken = false;
+    }
+
+    /**
+     * <!-- restart -->
+     *
+     * Kill the process, close the streams used to talk to it, and start
+     * another. This is also how a process killed by {@link #kill()} is
+     * replaced.
+     *
+     * @throws IOException
+     */
+    private void restart() throws IOException {
+      process.destroyForcibly();
+      closeStreams();
+      restarts.incrementAndGet();
+      start();
+    }
+
+    /**
+     * <!-- closeStreams -->
+     *
+     * Close the streams to and from the process, so that their pipes are not
+     * left open until they are garbage collected. The process is killed
+     * first, so that flushing requests still buffered cannot wait for it to
+     * read them; errors doing so are ignored.
+     */
+    private void closeStreams() {
+      try {
+	out.close();
+      }
+      catch(IOException e) {
+	// The process is dead, so any requests left cannot be sent
+      }
+      try {
+	in.close();
+      }
+      catch(IOException e) {
+	// Nothing more is to be read
+      }
+      try {
+	process.getErrorStream().close();
+      }
+      catch(IOException e) {
+	// Standard error is inherited, so there is no stream to close
+      }
+    }
+
+    /**
+     * <!-- kill -->
+     *
+     * Kill the process, leaving it to be restarted by the thread using it,
+     * which closes the streams (see {@link #restart()}), as they may be in use
+     */
+    void kill() {
+      process.destroyForcibly();
+    }
+
+    /**
+     * <!-- stop -->
+     *
+     * Close the process's standard input and wait briefly for it to exit,
+     * killing it if it does not
+     */
+    void stop() {
+      try {
+	out.close();
+	if(!process.waitFor(1L, TimeUnit.SECONDS)) process.destroyForcibly();
+      }
+      catch(IOException e) {
+	process.destroyForcibly();
+      }
+      catch(InterruptedException e) {
+	process.destroyForcibly();
+	Thread.currentThread().interrupt();
+      }
+      closeStreams();
+    }
+
+    /**
+     * <!-- serve -->
+     *
+     * Send Chromosomes to the process until there are none left, keeping up
+     * to {@link ProcessPoolCostFunction#pipelineDepth} unanswered, and store
+     * the costs returned. Requests left unanswered by a process that died are
+     * sent again one at a time, so that if one of them kills the process
+     * again, it is known which.
+     *
+     * @param chromosomes The batch being evaluated
+     * @param next The index of the next Chromosome not yet taken by a worker
+     * @param failures The number of worker deaths charged to each Chromosome
+     * @param costs Array in which to put the costs
+     * @param cancelled Set if the batch has been cancelled
+     * @throws IOException If the process cannot be restarted, or the batch has
+     *           been cancelled
+     */
+    void serve(Chromosome[] chromosomes, AtomicInteger next, int[] failures, Cost[][] costs,
+	AtomicBoolean cancelled) throws IOException {
+      if(broken) restart();
+      broken = true;
+      Set<Integer> unanswered = new LinkedHashSet<Integer>();
+      ArrayDeque<Integer> resend = new ArrayDeque<Integer>();
+      while(true) {
+	if(cancelled.get()) throw new IOException("Evaluation cancelled");
+	try {
+	  while(unanswered.size() < (resend.isEmpty() ? pipelineDepth : 1)) {
+	    int id = resend.isEmpty() ? next.getAndIncrement() : resend.poll();
+	    if(id >= chromosomes.length) break;
+	    unanswered.add(id);
+	    send(id, chromosomes[id]);
+	  }
+	  out.flush();
+	  if(unanswered.isEmpty()) break;
+	  int id = in.readInt();
+	  if(!unanswered.remove(id)) throw new IOException("Worker process answered unknown request " + id);
+	  costs[id] = WireFormat.readCost(in);
+	}
+	catch(IOException e) {
+	  if(cancelled.get()) throw e;
+	  if(unanswered.size() == 1) {
+	    int id = unanswered.iterator().next();
+	    if(++failures[id] >= maxAttempts) {
+	      throw new RuntimeException("Worker process " + command + " failed " + failures[id]
+		+ " times evaluating chromosome " + id, e);
+	    }
+	  }
+	  resend.addAll(unanswered);
+	  unanswered.clear();
+	  restart();
+	}
+      }
+      broken = false;
+    }
+
+    /**
+     * <!-- send -->
+     *
+     * @param id The id of the request
+     * @param chromosome The Chromosome to evaluate
+     * @throws IOException
+     */
+    private void send(int id, Chromosome chromosome) throws IOException {
+      long size = Chromosome.Tools.byteSize(chromosome);
+      if(size > Integer.MAX_VALUE) throw new IOException("Chromosome of " + size + " bytes is too big to send");
+      out.writeInt(id);
+      out.writeInt((int)size);
+      Chromosome.Tools.writeTo(chromosome, out);
+    }
+  }
+}
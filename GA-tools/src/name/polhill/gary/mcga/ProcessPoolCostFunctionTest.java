@@ -0,0 +1,201 @@
+/*
+ * name.polhill.gary.mcga: ProcessPoolCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- ProcessPoolCostFunctionTest -->
+ *
+ * Test for the ProcessPoolCostFunction class, using worker processes running
+ * {@link Child}
+ *
+ * @author Gary Polhill
+ */
+public class ProcessPoolCostFunctionTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 10, 10 };
+
+  /**
+   * <!-- Child -->
+   *
+   * A worker process whose cost is the number of ones in the Chromosome. It
+   * exits without answering when asked to evaluate a Chromosome with no ones,
+   * or to evaluate the number of Chromosomes given as its argument.
+   *
+   * @author Gary Polhill
+   */
+  public static class Child {
+    public static void main(String[] args) throws IOException {
+      int crashAt = Integer.parseInt(args[0]);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+      for(int served = 1; ; served++) {
+	int id;
+	try {
+	  id = in.readInt();
+	}
+	catch(EOFException e) {
+	  return;
+	}
+	byte[] chromosome = new byte[in.readInt()];
+	in.readFully(chromosome);
+	int ones = 0;
+	for(byte b: chromosome) {
+	  ones += Integer.bitCount(b & 0xff);
+	}
+	if(ones == 0 || served == crashAt) System.exit(1);
+	out.writeInt(id);
+	WireFormat.writeCost(out, new Cost[] { new DoubleCost(ones) });
+	out.flush();
+      }
+    }
+  }
+
+  /**
+   * @param name
+   */
+  public ProcessPoolCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- command -->
+   *
+   * @param crashAt The number of the request at which each worker process
+   *          exits, or 0 if it only exits for Chromosomes with no ones
+   * @return The command to run {@link Child} with the same class path as this
+   */
+  private static List<String> command(int crashAt) {
+    return Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+      "-cp", System.getProperty("java.class.path"), Child.class.getName(), Integer.toString(crashAt));
+  }
+
+  /**
+   * <!-- ones -->
+   *
+   * @param chromosome
+   * @return The number of ones in the Chromosome
+   */
+  private static int ones(Chromosome chromosome) {
+    int ones = 0;
+    for(int i = 0; i < chromosome.nGenes(); i++) {
+      ones += ((BitStringGene)chromosome.geneAt(i)).nOnes();
+    }
+    return ones;
+  }
+
+  /**
+   * <!-- population -->
+   *
+   * @return A random population with no Chromosome without ones
+   */
+  private static Chromosome[] population() {
+    Chromosome[] population = MCGATest.population(GENE_LENGTHS);
+    for(Chromosome chromosome: population) {
+      ((BitStringGene)chromosome.geneAt(0)).setBit(0, true);
+    }
+    return population;
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.ProcessPoolCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * each Chromosome gets its own cost from the workers.
+   */
+  public void testCost() throws IOException {
+    ProcessPoolCostFunction pool = new ProcessPoolCostFunction(command(0), 2);
+    try {
+      for(int batch = 0; batch < 2; batch++) {
+	Chromosome[] population = population();
+	Cost[][] costs = pool.cost(population);
+	assertEquals(population.length, costs.length);
+	for(int i = 0; i < population.length; i++) {
+	  assertEquals(0, new DoubleCost(ones(population[i])).compareTo(costs[i][0]));
+	}
+      }
+      assertEquals(0, pool.getRestarts());
+    }
+    finally {
+      pool.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.ProcessPoolCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * workers that die are restarted, and the requests they had not answered
+   * are sent again, so every Chromosome still gets its own cost.
+   */
+  public void testRestart() throws IOException {
+    ProcessPoolCostFunction pool = new ProcessPoolCostFunction(command(5), 2, 4, 10);
+    try {
+      Chromosome[] population = population();
+      Cost[][] costs = pool.cost(population);
+      for(int i = 0; i < population.length; i++) {
+	assertEquals(0, new DoubleCost(ones(population[i])).compareTo(costs[i][0]));
+      }
+
+      // Each process answers four requests, so at least five are needed
+
+      assertTrue(pool.getRestarts() >= population.length / 4 - 2);
+    }
+    finally {
+      pool.close();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.ProcessPoolCostFunction#cost(name.polhill.gary.mcga.Chromosome[])}:
+   * a Chromosome that kills every worker it is sent to fails the batch after
+   * the maximum number of attempts, and the pool can still be used after.
+   */
+  public void testCrash() throws IOException {
+    ProcessPoolCostFunction pool = new ProcessPoolCostFunction(command(0), 2, 4, 3);
+    try {
+      Chromosome[] population = population();
+      population[7] = new BitStringChromosome(GENE_LENGTHS);
+      try {
+	pool.cost(population);
+	fail("Chromosome killing every worker evaluated");
+      }
+      catch(RuntimeException e) {
+	assertTrue(e.getMessage().contains("chromosome 7"));
+      }
+      assertTrue(pool.getRestarts() >= 2);
+      assertEquals(0, new DoubleCost(ones(population[0])).compareTo(pool.cost(population[0])[0]));
+    }
+    finally {
+      pool.close();
+    }
+  }
+}
@@ -0,0 +1,481 @@
+/*
+ * name.polhill.gary.mcga: SteadyStateGA.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <!-- SteadyStateGA -->
+ *
+ * An asynchronous steady-state multi-criteria GA, as
+ * {@link name.polhill.gary.ga.SteadyStateGA}. Rather than evaluating a whole
+ * generation before breeding the next, a number of evaluations are kept in
+ * progress on an executor. As soon as any finishes, the offspring evaluated
+ * replaces the loser of a tournament if it is at least as good, and a new
+ * offspring is bred and submitted for evaluation.
+ *
+ * Chromosomes are compared with {@link Chromosome#comparableWith(Chromosome)}
+ * and {@link Chromosome#compareTo(Chromosome)}, so a tournament keeps the
+ * Chromosome it has chosen when it meets one it cannot be compared with, and
+ * an offspring that cannot be compared with the loser does not replace it.
+ * The best solutions found are kept as a Pareto front, as
+ * {@link MCGA#getBestSolution()}.
+ *
+ * All breeding and replacement is done in the thread calling
+ * {@link #run(long, boolean)}; only the cost function is called from the
+ * executor's threads, each time for a Chromosome no other thread has. If
+ * there is no executor, or the cost function is not a thread-safe
+ * {@link ThreadSafeCostFunction}, each offspring is evaluated in the calling
+ * thread. The population should not be rows of a {@link PopulationMatrix}
+ * that may be overwritten.
+ *
+ * @author Gary Polhill
+ */
+public class SteadyStateGA {
+  /**
+   * <!-- costFunction -->
+   *
+   * The cost function to use
+   */
+  private final CostFunction costFunction;
+
+  /**
+   * <!-- pCrossover -->
+   *
+   * Crossover probability
+   */
+  private final double pCrossover;
+
+  /**
+   * <!-- pMutate -->
+   *
+   * Mutation probability
+   */
+  private final double pMutate;
+
+  /**
+   * <!-- tournamentSize -->
+   *
+   * Number of members of the population in each tournament, to choose parents
+   * and the member to replace. If 1, parents are chosen at random and a worst
+   * member is replaced.
+   */
+  private final int tournamentSize;
+
+  /**
+   * <!-- population -->
+   *
+   * The current population
+   */
+  private final Chromosome[] population;
+
+  /**
+   * <!-- evaluated -->
+   *
+   * Indices of the members of the population that have been evaluated
+   */
+  private final int[] evaluated;
+
+  /**
+   * <!-- nEvaluated -->
+   *
+   * Number of entries in {@link #evaluated}
+   */
+  private int nEvaluated;
+
+  /**
+   * <!-- nextInitial -->
+   *
+   * Next member of the initial population to submit for evaluation
+   */
+  private int nextInitial;
+
+  /**
+   * <!-- best -->
+   *
+   * The best solutions found, none better than another
+   */
+  private final Set<Chromosome> best;
+
+  /**
+   * <!-- executor -->
+   *
+   * Executor to evaluate offspring with, or <code>null</code> to evaluate
+   * them in the calling thread
+   */
+  private ExecutorService executor;
+
+  /**
+   * <!-- nInProgress -->
+   *
+   * Number of evaluations to keep in progress on the executor
+   */
+  private int nInProgress;
+
+  /**
+   * <!-- evaluations -->
+   *
+   * Number of evaluations completed
+   */
+  private long evaluations;
+
+  /**
+   * <!-- elapsed -->
+   *
+   * Time spent in {@link #run(long, boolean)}, in nanoseconds
+   */
+  private long elapsed;
+
+  /**
+   * <!-- replacements -->
+   *
+   * Number of offspring that replaced a member of the population
+   */
+  private long replacements;
+
+  /**
+   * <!-- maximise -->
+   *
+   * True if better solutions have higher costs
+   */
+  private boolean maximise;
+
+  /**
+   * <!-- SteadyStateGA constructor -->
+   *
+   * @param costFunction The cost function to use
+   * @param population The initial population, which will be evaluated before
+   *          any offspring are bred from it
+   * @param pCrossover Crossover probability
+   * @param pMutate Mutation probability
+   * @param tournamentSize Number of members of the population in each
+   *          tournament (1 to choose parents at random and replace a worst
+   *          member)
+   */
+  public SteadyStateGA(CostFunction costFunction, Chromosome[] population, double pCrossover, double pMutate,
+      int tournamentSize) {
+    if(population.length == 0) throw new IllegalArgumentException("Empty population");
+    if(tournamentSize < 1) {
+      throw new IllegalArgumentException("Tournament size " + tournamentSize + " less than 1");
+    }
+    this.costFunction = costFunction;
+    this.population = population.clone();
+    this.pCrossover = pCrossover;
+    this.pMutate = pMutate;
+    this.tournamentSize = tournamentSize;
+    evaluated = new int[population.length];
+    nEvaluated = 0;
+    nextInitial = 0;
+    nInProgress = 1;
+    best = MCGA.identitySet();
+  }
+
+  /**
+   * <!-- setExecutor -->
+   *
+   * Evaluate offspring using an executor. The number of evaluations kept in
+   * progress should be at least the number of threads the executor has, so
+   * that none is ever idle.
+   *
+   * @param executor The executor, or <code>null</code> to evaluate offspring
+   *          in the calling thread
+   * @param nInProgress The number of evaluations to keep in progress
+   */
+  public void setExecutor(ExecutorService executor, int nInProgress) {
+    if(executor != null && nInProgress < 1) {
+      throw new IllegalArgumentException("Number of evaluations in progress " + nInProgress + " less than 1");
+    }
+    this.executor = executor;
+    this.nInProgress = executor == null ? 1 : nInProgress;
+  }
+
+  /**
+   * <!-- run -->
+   *
+   * Run the GA for a number of evaluations. Members of the initial population
+   * not yet evaluated are evaluated first, and count towards the number.
+   *
+   * @param nEvaluations The number of evaluations to do
+   * @param maximise True if better solutions have higher costs, false
+   *          otherwise
+   * @return The best solutions found so far
+   */
+  public Set<Chromosome> run(long nEvaluations, boolean maximise) {
+    this.maximise = maximise;
+    long start = System.nanoTime();
+    try {
+      if(executor == null || !MCGA.threadSafe(costFunction)) {
+	for(long i = 0; i < nEvaluations; i++) {
+	  Evaluation evaluation = next();
+	  if(evaluation == null) throw new IllegalStateException("Nothing to breed from");
+	  evaluation.call();
+	  insert(evaluation);
+	}
+      }
+      else {
+	runAsynchronously(nEvaluations);
+      }
+    }
+    finally {
+      elapsed += System.nanoTime() - start;
+    }
+    return getBestSolution();
+  }
+
+  /**
+   * <!-- runAsynchronously -->
+   *
+   * Keep {@link #nInProgress} evaluations on the executor until the required
+   * number have been submitted, inserting each result as it finishes
+   *
+   * @param nEvaluations The number of evaluations to do
+   */
+  private void runAsynchronously(long nEvaluations) {
+    CompletionService<Evaluation> completion = new ExecutorCompletionService<Evaluation>(executor);
+    List<Future<Evaluation>> inProgress = new ArrayList<Future<Evaluation>>(nInProgress);
+    long toSubmit = nEvaluations;
+    try {
+      while(true) {
+	while(toSubmit > 0 && inProgress.size() < nInProgress) {
+	  Evaluation evaluation = next();
+	  if(evaluation == null) break;
+	  inProgress.add(completion.submit(evaluation));
+	  toSubmit--;
+	}
+	if(inProgress.isEmpty()) {
+	  if(toSubmit > 0) throw new IllegalStateException("Nothing to breed from");
+	  break;
+	}
+	Future<Evaluation> done = completion.take();
+	inProgress.remove(done);
+	insert(done.get());
+      }
+    }
+    catch(InterruptedException e) {
+      cancel(inProgress);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating offspring", e);
+    }
+    catch(ExecutionException e) {
+      cancel(inProgress);
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    catch(RuntimeException e) {
+      cancel(inProgress);
+      throw e;
+    }
+  }
+
+  /**
+   * <!-- cancel -->
+   *
+   * @param inProgress Evaluations to cancel if they have not finished
+   */
+  private static void cancel(List<Future<Evaluation>> inProgress) {
+    for(Future<Evaluation> evaluation: inProgress) {
+      evaluation.cancel(true);
+    }
+  }
+
+  /**
+   * <!-- next -->
+   *
+   * Offspring are bred from a copy of the mother, so that no member of the
+   * population is evaluated in another thread.
+   *
+   * @return The next Chromosome to evaluate: a member of the initial
+   *         population not yet evaluated, or a new offspring. If there are no
+   *         evaluated members to breed from, <code>null</code>.
+   */
+  private Evaluation next() {
+    if(nextInitial < population.length) {
+      int member = nextInitial++;
+      return new Evaluation(population[member], member);
+    }
+    if(nEvaluated == 0) return null;
+    Chromosome mother = population[select(true)];
+    Chromosome father = population[select(true)];
+    Chromosome baby = mother.clone();
+    if(Math.random() < pCrossover) {
+      baby = baby.crossover(father, (long)(Math.random() * father.size()));
+    }
+    if(pMutate > 0.0) {
+      baby = baby.mutate(pMutate);
+    }
+    return new Evaluation(baby, -1);
+  }
+
+  /**
+   * <!-- select -->
+   *
+   * @param winner <code>true</code> to choose a parent, <code>false</code> to
+   *          choose a member of the population to replace
+   * @return The index of the winner or loser of a tournament among the
+   *         evaluated members of the population. The Chromosome chosen is
+   *         only changed for one that it is comparable with.
+   */
+  private int select(boolean winner) {
+    if(tournamentSize == 1) {
+      if(winner) return evaluated[(int)(Math.random() * nEvaluated)];
+      int worst = evaluated[0];
+      for(int i = 1; i < nEvaluated; i++) {
+	if(better(population[worst], population[evaluated[i]])) worst = evaluated[i];
+      }
+      return worst;
+    }
+    int chosen = evaluated[(int)(Math.random() * nEvaluated)];
+    for(int i = 1; i < tournamentSize; i++) {
+      int other = evaluated[(int)(Math.random() * nEvaluated)];
+      if(winner ? better(population[other], population[chosen]) : better(population[chosen], population[other])) {
+	chosen = other;
+      }
+    }
+    return chosen;
+  }
+
+  /**
+   * <!-- better -->
+   *
+   * @param a A Chromosome whose cost has been computed
+   * @param b Another
+   * @return <code>true</code> if a is comparable with and strictly better than
+   *         b
+   */
+  private boolean better(Chromosome a, Chromosome b) {
+    return a.comparableWith(b) && (maximise ? a.compareTo(b) > 0 : a.compareTo(b) < 0);
+  }
+
+  /**
+   * <!-- insert -->
+   *
+   * Put the result of an evaluation into the population. An offspring
+   * replaces the loser of a tournament if they are comparable and the loser
+   * is not better; otherwise the loser is kept.
+   *
+   * @param evaluation The finished evaluation
+   */
+  private void insert(Evaluation evaluation) {
+    evaluations++;
+    Chromosome chromosome = evaluation.chromosome;
+    if(evaluation.member >= 0) {
+      evaluated[nEvaluated++] = evaluation.member;
+    }
+    else {
+      int loser = select(false);
+      if(chromosome.comparableWith(population[loser]) && !better(population[loser], chromosome)) {
+	population[loser] = chromosome;
+	replacements++;
+      }
+    }
+    MCGA.addToFront(best, chromosome, maximise, false);
+  }
+
+  /**
+   * <!-- getBestSolution -->
+   *
+   * @return The best solutions found, none better than another
+   */
+  public Set<Chromosome> getBestSolution() {
+    return best;
+  }
+
+  /**
+   * <!-- getPopulation -->
+   *
+   * @return A copy of the current population
+   */
+  public Chromosome[] getPopulation() {
+    return population.clone();
+  }
+
+  /**
+   * <!-- getEvaluations -->
+   *
+   * @return The number of evaluations completed
+   */
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  /**
+   * <!-- getReplacements -->
+   *
+   * @return The number of offspring that have replaced a member of the
+   *         population
+   */
+  public long getReplacements() {
+    return replacements;
+  }
+
+  /**
+   * <!-- getEvaluationsPerSecond -->
+   *
+   * @return The number of evaluations completed per second spent running
+   */
+  public double getEvaluationsPerSecond() {
+    return elapsed == 0L ? 0.0 : (double)evaluations * 1.0e9 / (double)elapsed;
+  }
+
+  /**
+   * <!-- Evaluation -->
+   *
+   * A Chromosome to evaluate, storing its cost in it
+   *
+   * @author Gary Polhill
+   */
+  private class Evaluation implements Callable<Evaluation> {
+    final Chromosome chromosome;
+
+    /**
+     * <!-- member -->
+     *
+     * Index of the member of the initial population, or -1 for an offspring
+     */
+    final int member;
+
+    Evaluation(Chromosome chromosome, int member) {
+      this.chromosome = chromosome;
+      this.member = member;
+    }
+
+    /**
+     * <!-- call -->
+     *
+     * @see java.util.concurrent.Callable#call()
+     */
+    public Evaluation call() {
+      chromosome.calcCost(costFunction);
+      return this;
+    }
+  }
+}
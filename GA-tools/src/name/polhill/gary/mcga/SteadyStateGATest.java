@@ -0,0 +1,150 @@
+/*
+ * name.polhill.gary.mcga: SteadyStateGATest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- SteadyStateGATest -->
+ *
+ * Test for the SteadyStateGA class
+ *
+ * @author Gary Polhill
+ */
+public class SteadyStateGATest extends TestCase {
+
+  /**
+   * <!-- INCOMPARABLE -->
+   *
+   * A cost function for which Chromosomes with different numbers of ones
+   * cannot be compared
+   */
+  private static final CostFunction INCOMPARABLE = new CostFunction() {
+    public Cost[] cost(Chromosome chromosome) {
+      double ones = ((BitStringGene)chromosome.geneAt(0)).nOnes();
+      return new Cost[] { new DoubleArrayCost(new Double[] { ones, -ones }) };
+    }
+  };
+
+  /**
+   * @param name
+   */
+  public SteadyStateGATest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- ones -->
+   *
+   * @param population
+   * @return The sorted numbers of ones in the first gene of each member
+   */
+  private static List<Integer> ones(Chromosome[] population) {
+    List<Integer> ones = new ArrayList<Integer>(population.length);
+    for(Chromosome chromosome: population) {
+      ones.add(((BitStringGene)chromosome.geneAt(0)).nOnes());
+    }
+    Collections.sort(ones);
+    return ones;
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.SteadyStateGA#run(long, boolean)}: with one
+   * objective, the best solution is found, whether the offspring are
+   * evaluated in the calling thread or on an executor.
+   */
+  public void testRun() {
+    ExecutorService four = Executors.newFixedThreadPool(4);
+    try {
+      for(ExecutorService executor: new ExecutorService[] { null, four }) {
+	Chromosome[] population = MCGATest.population(new int[] { 12 });
+	SteadyStateGA ga = new SteadyStateGA(new ThreadSafe(MCGATest.ones(1)), population, 0.5, 0.05, 2);
+	ga.setExecutor(executor, 8);
+	ga.run(population.length, true);
+	assertEquals(population.length, ga.getEvaluations());
+	assertEquals(0, ga.getReplacements());
+	assertEquals(ones(population), ones(ga.getPopulation()));
+	Set<Chromosome> best = ga.run(3000, true);
+	assertEquals(population.length + 3000, ga.getEvaluations());
+	assertTrue(ga.getReplacements() > 0);
+	assertEquals(1, best.size());
+	assertEquals(12, ((BitStringGene)best.iterator().next().geneAt(0)).nOnes());
+	assertTrue(ones(ga.getPopulation()).get(0) >= ones(population).get(0));
+      }
+    }
+    finally {
+      four.shutdown();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.SteadyStateGA#run(long, boolean)}: an
+   * offspring that cannot be compared with the loser of the tournament does
+   * not replace it, and the best solutions are those that cannot be compared
+   * with each other.
+   */
+  public void testIncomparable() {
+    Chromosome[] population = MCGATest.population(new int[] { 12 });
+    SteadyStateGA ga = new SteadyStateGA(INCOMPARABLE, population, 0.5, 0.1, 3);
+    ga.run(1000, true);
+    assertEquals(ones(population), ones(ga.getPopulation()));
+    Set<Chromosome> best = ga.getBestSolution();
+    assertTrue(best.size() > 1);
+    for(Chromosome a: best) {
+      for(Chromosome b: best) {
+	if(a != b) assertFalse(a.comparableWith(b) && a.compareTo(b) != 0);
+      }
+    }
+  }
+
+  /**
+   * <!-- ThreadSafe -->
+   *
+   * A cost function saying it is thread-safe
+   *
+   * @author Gary Polhill
+   */
+  private static class ThreadSafe implements ThreadSafeCostFunction {
+    private final CostFunction costFunction;
+
+    ThreadSafe(CostFunction costFunction) {
+      this.costFunction = costFunction;
+    }
+
+    public Cost[] cost(Chromosome chromosome) {
+      return costFunction.cost(chromosome);
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  }
+}
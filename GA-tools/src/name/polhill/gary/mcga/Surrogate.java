@@ -0,0 +1,50 @@
+/*
+ * name.polhill.gary.mcga: Surrogate.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+/**
+ * <!-- Surrogate -->
+ *
+ * Interface for cheap estimates of how good a Chromosome is, used by
+ * {@link SurrogateCostFunction} to choose which Chromosomes to evaluate with
+ * an expensive cost function. An estimate need not be on the same scale as
+ * any cost; it is calibrated against the costs found.
+ *
+ * @author Gary Polhill
+ */
+public interface Surrogate {
+
+  /**
+   * <!-- estimate -->
+   *
+   * @param chromosome A Chromosome
+   * @return An estimate of how good it is
+   */
+  double estimate(Chromosome chromosome);
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * @return <code>true</code> if {@link #estimate(Chromosome)} may be called
+   *         from different threads at the same time
+   */
+  boolean threadSafe();
+}
@@ -0,0 +1,371 @@
+/*
+ * name.polhill.gary.mcga: SurrogateCostFunction.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * <!-- SurrogateCostFunction -->
+ *
+ * A batch cost function that uses a cheap {@link Surrogate} to choose which
+ * Chromosomes to evaluate with an expensive cost function. The Chromosomes in
+ * each batch are ranked by their estimates, and only the most promising
+ * fraction are evaluated; the rest are given costs predicted from their
+ * estimates. Each value in the costs (which must be {@link DoubleCost}s or
+ * {@link DoubleArrayCost}s) is predicted by a least-squares line through the
+ * estimates and values of the Chromosomes evaluated, recalibrated with every
+ * batch. The Chromosomes of earlier batches are down-weighted so that
+ * together they weigh no more than the batch being added, however many
+ * Chromosomes each batch has, and the lines follow the population. Until
+ * enough Chromosomes have been evaluated to calibrate the lines, all
+ * Chromosomes are evaluated.
+ *
+ * The MCGA stores predicted costs (see {@link #predicted(Cost[])}) as not
+ * valid, so that Chromosomes with predicted costs, and copies of them, are
+ * given to the cost function again in the next generation. They then compete
+ * with the new offspring for evaluation rather than keeping their
+ * predictions, and are not counted among the best solutions of the
+ * generation in which they were predicted. The batch size is 0, so that all the Chromosomes needing
+ * evaluation are ranked together; those chosen are given to the cost
+ * function in one call if it is a {@link BatchCostFunction}.
+ *
+ * @author Gary Polhill
+ */
+public class SurrogateCostFunction implements BatchCostFunction,
+    ThreadSafeCostFunction {
+  /**
+   * <!-- MIN_SAMPLES -->
+   *
+   * Chromosomes evaluated before costs are predicted
+   */
+  public static final int MIN_SAMPLES = 8;
+
+  private final CostFunction costFunction;
+  private final Surrogate surrogate;
+
+  /**
+   * <!-- fraction -->
+   *
+   * Proportion of each batch to evaluate once calibrated
+   */
+  private final double fraction;
+
+  /**
+   * <!-- maximise -->
+   *
+   * <code>true</code> if higher estimates are more promising
+   */
+  private final boolean maximise;
+
+  /**
+   * <!-- predicted -->
+   *
+   * Costs returned as predictions. Arrays are compared by identity, so each
+   * entry lasts only as long as the array it is for.
+   */
+  private final Set<Cost[]> predicted = Collections.newSetFromMap(new WeakHashMap<Cost[], Boolean>());
+
+  /**
+   * <!-- template -->
+   *
+   * Costs of the first Chromosome evaluated, giving the kind and number of
+   * values of each cost
+   */
+  private Cost[] template = null;
+
+  private int samples;
+  private double n;
+  private double sumS;
+  private double sumSS;
+  private double[] sumY;
+  private double[] sumSY;
+
+  private long evaluations;
+  private long predictions;
+
+  /**
+   * <!-- SurrogateCostFunction constructor -->
+   *
+   * @param costFunction The expensive cost function
+   * @param surrogate The cheap estimate
+   * @param fraction The proportion of each batch to evaluate with the cost
+   *          function, greater than 0 and at most 1 (at least one Chromosome
+   *          is evaluated in each batch)
+   * @param maximise <code>true</code> if higher estimates are more promising,
+   *          <code>false</code> if lower estimates are
+   */
+  public SurrogateCostFunction(CostFunction costFunction, Surrogate surrogate, double fraction, boolean maximise) {
+    if(!(fraction > 0.0 && fraction <= 1.0)) {
+      throw new IllegalArgumentException("Fraction to evaluate must be in (0, 1]: " + fraction);
+    }
+    this.costFunction = costFunction;
+    this.surrogate = surrogate;
+    this.fraction = fraction;
+    this.maximise = maximise;
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#cost(name.polhill.gary.mcga.Chromosome[])
+   */
+  @Override
+  public Cost[][] cost(Chromosome[] chromosomes) {
+    final double[] estimates = new double[chromosomes.length];
+    Integer[] order = new Integer[chromosomes.length];
+    for(int i = 0; i < chromosomes.length; i++) {
+      estimates[i] = surrogate.estimate(chromosomes[i]);
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+	return maximise ? Double.compare(estimates[b], estimates[a]) : Double.compare(estimates[a], estimates[b]);
+      }
+    });
+
+    int nEvaluate = chromosomes.length;
+    synchronized(this) {
+      if(calibrated()) nEvaluate = Math.max(1, (int)Math.ceil(fraction * chromosomes.length));
+    }
+    nEvaluate = Math.min(nEvaluate, chromosomes.length);
+    Chromosome[] chosen = new Chromosome[nEvaluate];
+    for(int i = 0; i < nEvaluate; i++) {
+      chosen[i] = chromosomes[order[i]];
+    }
+    Cost[][] truth = evaluate(chosen);
+
+    Cost[][] costs = new Cost[chromosomes.length][];
+    synchronized(this) {
+      double[] s = new double[nEvaluate];
+      double[][] y = new double[nEvaluate][];
+      for(int i = 0; i < nEvaluate; i++) {
+	costs[order[i]] = truth[i];
+	s[i] = estimates[order[i]];
+	y[i] = values(truth[i]);
+      }
+      calibrate(s, y);
+      for(int i = nEvaluate; i < chromosomes.length; i++) {
+	costs[order[i]] = predict(estimates[order[i]]);
+      }
+      evaluations += nEvaluate;
+      predictions += chromosomes.length - nEvaluate;
+    }
+    synchronized(predicted) {
+      for(int i = nEvaluate; i < chromosomes.length; i++) {
+	predicted.add(costs[order[i]]);
+      }
+    }
+    return costs;
+  }
+
+  /**
+   * <!-- evaluate -->
+   *
+   * @param chosen Chromosomes to evaluate with the cost function
+   * @return Their costs
+   */
+  private Cost[][] evaluate(Chromosome[] chosen) {
+    if(costFunction instanceof BatchCostFunction) {
+      Cost[][] costs = ((BatchCostFunction)costFunction).cost(chosen);
+      if(costs.length != chosen.length) {
+	throw new RuntimeException("Batch cost function returned " + costs.length + " costs for "
+	  + chosen.length + " chromosomes");
+      }
+      return costs;
+    }
+    Cost[][] costs = new Cost[chosen.length][];
+    for(int i = 0; i < chosen.length; i++) {
+      costs[i] = costFunction.cost(chosen[i]);
+    }
+    return costs;
+  }
+
+  /**
+   * <!-- calibrated -->
+   *
+   * @return <code>true</code> if enough Chromosomes with different estimates
+   *         have been evaluated to predict costs
+   */
+  private boolean calibrated() {
+    return samples >= MIN_SAMPLES && n * sumSS - sumS * sumS > 0.0;
+  }
+
+  /**
+   * <!-- calibrate -->
+   *
+   * Add a batch of evaluated Chromosomes to the calibration, first scaling
+   * the sums so far so that their weight is at most the size of the batch
+   *
+   * @param s Their estimates
+   * @param y The values of their costs
+   */
+  private void calibrate(double[] s, double[][] y) {
+    if(s.length == 0) return;
+    double decay = n > s.length ? s.length / n : 1.0;
+    n *= decay;
+    sumS *= decay;
+    sumSS *= decay;
+    for(int k = 0; k < sumY.length; k++) {
+      sumY[k] *= decay;
+      sumSY[k] *= decay;
+    }
+    for(int i = 0; i < s.length; i++) {
+      n += 1.0;
+      sumS += s[i];
+      sumSS += s[i] * s[i];
+      for(int k = 0; k < sumY.length; k++) {
+	sumY[k] += y[i][k];
+	sumSY[k] += s[i] * y[i][k];
+      }
+    }
+    samples += s.length;
+  }
+
+  /**
+   * <!-- predict -->
+   *
+   * @param s An estimate
+   * @return Costs predicted from it, of the same kind as the template
+   */
+  private Cost[] predict(double s) {
+    double det = n * sumSS - sumS * sumS;
+    Cost[] cost = new Cost[template.length];
+    int k = 0;
+    for(int j = 0; j < template.length; j++) {
+      int m = (template[j] instanceof DoubleCost) ? 1 : ((DoubleArrayCost)template[j]).getValues().size();
+      Double[] values = new Double[m];
+      for(int v = 0; v < m; v++, k++) {
+	double slope = (n * sumSY[k] - sumS * sumY[k]) / det;
+	values[v] = (sumY[k] - slope * sumS) / n + slope * s;
+      }
+      cost[j] = (template[j] instanceof DoubleCost) ? new DoubleCost(values[0]) : new DoubleArrayCost(values);
+    }
+    return cost;
+  }
+
+  /**
+   * <!-- values -->
+   *
+   * @param cost Costs from the cost function
+   * @return Their values, in order; the first costs seen become the template
+   *         that all others must match
+   */
+  private double[] values(Cost[] cost) {
+    if(template == null) {
+      int size = 0;
+      for(Cost c: cost) {
+	if(c instanceof DoubleCost) size++;
+	else if(c instanceof DoubleArrayCost) size += ((DoubleArrayCost)c).getValues().size();
+	else throw new RuntimeException("Cannot predict cost of " + c.getClass());
+      }
+      template = cost;
+      sumY = new double[size];
+      sumSY = new double[size];
+    }
+    if(cost.length != template.length) {
+      throw new RuntimeException("Cost function returned " + cost.length + " costs, not " + template.length);
+    }
+    double[] y = new double[sumY.length];
+    int k = 0;
+    for(int j = 0; j < cost.length; j++) {
+      if(cost[j] instanceof DoubleCost && template[j] instanceof DoubleCost) {
+	y[k++] = ((DoubleCost)cost[j]).getValue();
+      }
+      else if(cost[j] instanceof DoubleArrayCost && template[j] instanceof DoubleArrayCost
+	&& ((DoubleArrayCost)cost[j]).getValues().size() == ((DoubleArrayCost)template[j]).getValues().size()) {
+	for(Double value: ((DoubleArrayCost)cost[j]).getValues()) {
+	  y[k++] = value;
+	}
+      }
+      else {
+	throw new RuntimeException("Cost function returned a cost of a different kind or size from the first");
+      }
+    }
+    return y;
+  }
+
+  /**
+   * <!-- predicted -->
+   *
+   * @param cost Costs returned by this cost function
+   * @return <code>true</code> if the costs were predicted rather than
+   *         evaluated
+   */
+  public boolean predicted(Cost[] cost) {
+    synchronized(predicted) {
+      return predicted.contains(cost);
+    }
+  }
+
+  /**
+   * <!-- getEvaluations -->
+   *
+   * @return The number of Chromosomes evaluated with the cost function
+   */
+  public synchronized long getEvaluations() {
+    return evaluations;
+  }
+
+  /**
+   * <!-- getPredictions -->
+   *
+   * @return The number of Chromosomes given predicted costs
+   */
+  public synchronized long getPredictions() {
+    return predictions;
+  }
+
+  /**
+   * <!-- cost -->
+   *
+   * Evaluate one Chromosome with the cost function
+   *
+   * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
+   */
+  @Override
+  public Cost[] cost(Chromosome chromosome) {
+    return costFunction.cost(chromosome);
+  }
+
+  /**
+   * <!-- batchSize -->
+   *
+   * @see name.polhill.gary.mcga.BatchCostFunction#batchSize()
+   */
+  @Override
+  public int batchSize() {
+    return 0;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return MCGA.threadSafe(costFunction) && surrogate.threadSafe();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * name.polhill.gary.mcga: SurrogateCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga;
+
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- SurrogateCostFunctionTest -->
+ *
+ * Test for the SurrogateCostFunction class, with a surrogate that is exactly
+ * in line with the cost
+ *
+ * @author Gary Polhill
+ */
+public class SurrogateCostFunctionTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 64 };
+
+  /**
+   * <!-- ONES -->
+   *
+   * A surrogate estimating a Chromosome by the number of ones in its first
+   * gene, which is the cost given by {@link MCGATest#ones(int)}
+   */
+  static final Surrogate ONES = new Surrogate() {
+    public double estimate(Chromosome chromosome) {
+      return ones(chromosome);
+    }
+
+    public boolean threadSafe() {
+      return true;
+    }
+  };
+
+  /**
+   * @param name
+   */
+  public SurrogateCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- ones -->
+   *
+   * @param chromosome A Chromosome
+   * @return The number of ones in its first gene
+   */
+  static int ones(Chromosome chromosome) {
+    return ((BitStringGene)chromosome.geneAt(0)).nOnes();
+  }
+
+  /**
+   * <!-- value -->
+   *
+   * @param cost Costs from {@link MCGATest#ones(int)}, or predicted from them
+   * @return The value of the cost
+   */
+  static double value(Cost[] cost) {
+    return ((DoubleArrayCost)cost[0]).getValues().get(0);
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.SurrogateCostFunction#cost(Chromosome[])}:
+   * a batch is evaluated in full until the surrogate is calibrated, and then
+   * only the most promising fraction are, the rest being given costs
+   * predicted from the line through those evaluated.
+   */
+  public void testPredict() {
+    SurrogateCostFunction surrogate = new SurrogateCostFunction(MCGATest.ones(1), ONES, 0.25, true);
+    Chromosome[] first = MCGATest.population(GENE_LENGTHS);
+    Cost[][] costs = surrogate.cost(first);
+    assertEquals(first.length, surrogate.getEvaluations());
+    assertEquals(0, surrogate.getPredictions());
+    for(int i = 0; i < first.length; i++) {
+      assertFalse(surrogate.predicted(costs[i]));
+      assertEquals(ones(first[i]), value(costs[i]), 0.0);
+    }
+
+    Chromosome[] second = MCGATest.population(GENE_LENGTHS);
+    costs = surrogate.cost(second);
+    int nEvaluate = (int)Math.ceil(0.25 * second.length);
+    assertEquals(first.length + nEvaluate, surrogate.getEvaluations());
+    assertEquals(second.length - nEvaluate, surrogate.getPredictions());
+    int leastEvaluated = Integer.MAX_VALUE;
+    int mostPredicted = Integer.MIN_VALUE;
+    int evaluated = 0;
+    for(int i = 0; i < second.length; i++) {
+      assertEquals(ones(second[i]), value(costs[i]), 1.0e-9);
+      if(surrogate.predicted(costs[i])) {
+	mostPredicted = Math.max(mostPredicted, ones(second[i]));
+      }
+      else {
+	leastEvaluated = Math.min(leastEvaluated, ones(second[i]));
+	evaluated++;
+      }
+    }
+    assertEquals(nEvaluate, evaluated);
+    assertTrue(mostPredicted <= leastEvaluated);
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.SurrogateCostFunction#cost(Chromosome[])}:
+   * costs are not predicted until {@link SurrogateCostFunction#MIN_SAMPLES}
+   * Chromosomes have been evaluated.
+   */
+  public void testMinSamples() {
+    SurrogateCostFunction surrogate = new SurrogateCostFunction(MCGATest.ones(1), ONES, 0.5, true);
+    int batches = 0;
+    while(surrogate.getEvaluations() < SurrogateCostFunction.MIN_SAMPLES) {
+      surrogate.cost(batch(3));
+      batches++;
+      assertEquals(3 * batches, surrogate.getEvaluations());
+      assertEquals(0, surrogate.getPredictions());
+    }
+    surrogate.cost(batch(3));
+    assertEquals(3 * batches + 2, surrogate.getEvaluations());
+    assertEquals(1, surrogate.getPredictions());
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.MCGA#step(boolean)} with a
+   * {@link name.polhill.gary.mcga.SurrogateCostFunction}: members with
+   * predicted costs are not among the best solutions, even when their
+   * predicted costs are better.
+   */
+  public void testBest() {
+    final Chromosome[][] evaluated = new Chromosome[1][];
+    Breeder fresh = new Breeder() {
+      public Chromosome[] breed(Chromosome[] population, boolean maximise) {
+	evaluated[0] = population;
+	return MCGATest.population(GENE_LENGTHS);
+      }
+    };
+    // Least promising first, so that the members with the most ones are the
+    // ones given predicted costs
+
+    SurrogateCostFunction surrogate = new SurrogateCostFunction(MCGATest.ones(1), ONES, 0.25, false);
+    MCGA ga = new MCGA(fresh, surrogate, MCGATest.population(GENE_LENGTHS));
+    ga.step(true);
+    Set<Chromosome> best = ga.step(true);
+    assertTrue(surrogate.getPredictions() > 0);
+    assertTrue(best.size() > 0);
+    int mostEvaluated = 0;
+    int most = 0;
+    for(Chromosome member: evaluated[0]) {
+      if(!surrogate.predicted(member.getCost())) mostEvaluated = Math.max(mostEvaluated, ones(member));
+      most = Math.max(most, ones(member));
+    }
+    assertTrue(most > mostEvaluated);
+    for(Chromosome member: best) {
+      assertFalse(surrogate.predicted(member.getCost()));
+      assertEquals(mostEvaluated, ones(member));
+    }
+    for(Chromosome member: ga.getBestSolution()) {
+      assertFalse(surrogate.predicted(member.getCost()));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.SurrogateCostFunction#SurrogateCostFunction(CostFunction, Surrogate, double, boolean)}:
+   * the fraction to evaluate must be more than 0 and at most 1.
+   */
+  public void testArguments() {
+    for(double fraction: new double[] { 0.0, -0.5, 1.5, Double.NaN }) {
+      try {
+	new SurrogateCostFunction(MCGATest.ones(1), ONES, fraction, true);
+	fail("Fraction " + fraction + " accepted");
+      }
+      catch(IllegalArgumentException e) {
+	// expected
+      }
+    }
+  }
+
+  /**
+   * <!-- batch -->
+   *
+   * @param size Number of Chromosomes
+   * @return A random batch of Chromosomes
+   */
+  private static Chromosome[] batch(int size) {
+    Chromosome[] batch = new Chromosome[size];
+    for(int i = 0; i < size; i++) {
+      batch[i] = new BitStringChromosome(GENE_LENGTHS).randomise();
+    }
+    return batch;
+  }
+}
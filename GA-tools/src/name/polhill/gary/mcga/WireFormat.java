@@ -0,0 +1,173 @@
+/*
+ * name.polhill.gary.mcga: WireFormat.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.polhill.gary.mcga;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import name.polhill.gary.util.BitWords;
+
+/**
+ * <!-- WireFormat -->
+ *
+ * Reading and writing costs and Chromosomes on streams, for cost functions
+ * that have Chromosomes evaluated in other processes. All numbers are
+ * big-endian.
+ *
+ * <ul>
+ * <li>Costs: <code>int</code> number of costs; then for each cost, a byte
+ * giving its kind, followed by its values: {@link #DOUBLE_COST} and one
+ * <code>double</code> for a {@link DoubleCost}, or {@link #DOUBLE_ARRAY_COST},
+ * <code>int</code> number of values <code>m</code> and <code>m</code>
+ * <code>double</code>s for a {@link DoubleArrayCost}.</li>
+ * <li>Chromosomes (which must be {@link BitStringChromosome}s or rows of a
+ * {@link PopulationMatrix}): <code>int</code> number of genes; then for each
+ * gene, a byte that is 1 for a {@link GrayCodeBitStringGene} and 0 for any
+ * other {@link BitStringGene}, <code>int</code> length in bits, and the gene as
+ * written by {@link AbstractGene#writeTo(java.io.OutputStream)}.</li>
+ * </ul>
+ *
+ * @author Gary Polhill
+ */
+final class WireFormat {
+  /**
+   * <!-- DOUBLE_COST -->
+   *
+   * Kind of a {@link DoubleCost}
+   */
+  static final byte DOUBLE_COST = 0;
+
+  /**
+   * <!-- DOUBLE_ARRAY_COST -->
+   *
+   * Kind of a {@link DoubleArrayCost}
+   */
+  static final byte DOUBLE_ARRAY_COST = 1;
+
+  private WireFormat() {
+    // static methods only
+  }
+
+  /**
+   * <!-- readCost -->
+   *
+   * @param in The stream to read from
+   * @return The costs
+   * @throws IOException
+   */
+  static Cost[] readCost(DataInputStream in) throws IOException {
+    int nCosts = in.readInt();
+    if(nCosts < 0) throw new IOException("Read " + nCosts + " costs");
+    Cost[] cost = new Cost[nCosts];
+    for(int i = 0; i < nCosts; i++) {
+      byte kind = in.readByte();
+      if(kind == DOUBLE_COST) {
+	cost[i] = new DoubleCost(in.readDouble());
+      }
+      else if(kind == DOUBLE_ARRAY_COST) {
+	int nValues = in.readInt();
+	if(nValues < 0) throw new IOException("Read a cost with " + nValues + " values");
+	Double[] values = new Double[nValues];
+	for(int j = 0; j < nValues; j++) {
+	  values[j] = in.readDouble();
+	}
+	cost[i] = new DoubleArrayCost(values);
+      }
+      else {
+	throw new IOException("Read a cost of unknown kind " + kind);
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * <!-- writeCost -->
+   *
+   * @param out The stream to write to
+   * @param cost Costs, each of which must be a DoubleCost or DoubleArrayCost
+   * @throws IOException
+   */
+  static void writeCost(DataOutputStream out, Cost[] cost) throws IOException {
+    out.writeInt(cost.length);
+    for(Cost c: cost) {
+      if(c instanceof DoubleCost) {
+	out.writeByte(DOUBLE_COST);
+	out.writeDouble(((DoubleCost)c).getValue());
+      }
+      else if(c instanceof DoubleArrayCost) {
+	List<Double> values = ((DoubleArrayCost)c).getValues();
+	out.writeByte(DOUBLE_ARRAY_COST);
+	out.writeInt(values.size());
+	for(Double value: values) {
+	  out.writeDouble(value);
+	}
+      }
+      else {
+	throw new IOException("Cannot write cost of " + c.getClass());
+      }
+    }
+  }
+
+  /**
+   * <!-- writeChromosome -->
+   *
+   * @param out The stream to write to
+   * @param chromosome The Chromosome
+   * @throws IOException
+   */
+  static void writeChromosome(DataOutputStream out, Chromosome chromosome) throws IOException {
+    if(!(chromosome instanceof BitStringChromosome || chromosome instanceof PopulationMatrix.Row)) {
+      throw new IOException("Cannot write chromosome of " + chromosome.getClass());
+    }
+    out.writeInt(chromosome.nGenes());
+    for(int i = 0; i < chromosome.nGenes(); i++) {
+      BitStringGene gene = chromosome instanceof PopulationMatrix.Row ? ((PopulationMatrix.Row)chromosome).prototype(i)
+	: (BitStringGene)chromosome.geneAt(i);
+      out.writeByte(gene instanceof GrayCodeBitStringGene ? 1 : 0);
+      out.writeInt(gene.length);
+      Chromosome.Tools.writeTo(chromosome, i, out);
+    }
+  }
+
+  /**
+   * <!-- readChromosome -->
+   *
+   * @param in The stream to read from
+   * @return The Chromosome
+   * @throws IOException
+   */
+  static BitStringChromosome readChromosome(DataInputStream in) throws IOException {
+    int nGenes = in.readInt();
+    if(nGenes < 0) throw new IOException("Read a chromosome with " + nGenes + " genes");
+    BitStringGene[] genes = new BitStringGene[nGenes];
+    for(int i = 0; i < nGenes; i++) {
+      byte kind = in.readByte();
+      int length = in.readInt();
+      if(length < 0) throw new IOException("Read a gene with " + length + " bits");
+      byte[] data = new byte[BitWords.nBytes(length)];
+      in.readFully(data);
+      genes[i] = kind == 1 ? new GrayCodeBitStringGene(length, data) : new BitStringGene(length, data);
+    }
+    return new BitStringChromosome(genes);
+  }
+}
@@ -56,25 +56,45 @@ public class GZGA {
    * <li>Crossover probability to use (suggest around 0.05-0.2)</li>
    * <li>Mutation probability to use (suggest around 0.01-0.05)</li>
    * <li>Number of bytes in the bitstring</li>
+   * <li>Optionally, <code>true</code> or <code>false</code> to measure the
+   * compressed lengths of each bitstring concurrently, or not (by default,
+   * they are measured concurrently if there is more than one processor)</li>
    * </ol>
    * 
    * @param args
    *          Arguments to the program--see above.
    */
   public static void main(String[] args) {
-    if(args.length != 5) {
-      System.err.println("Arguments: <nSteps> <popSize> <pCrossover> <pMutate> <size>");
+    if(args.length != 5 && args.length != 6) {
+      System.err.println("Arguments: <nSteps> <popSize> <pCrossover> <pMutate> <size> [<concurrent>]");
     }
+    boolean concurrent = args.length > 5 ? Boolean.parseBoolean(args[5]) : Runtime.getRuntime().availableProcessors() > 1;
     GZGA gzga = new GZGA(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Double.parseDouble(args[2]),
-	Double.parseDouble(args[3]), Integer.parseInt(args[4]) * 8);
+	Double.parseDouble(args[3]), Integer.parseInt(args[4]) * 8, concurrent);
     gzga.run();
     System.exit(0);
   }
 
   public GZGA(int nSteps, int popSize, double pCrossover, double pMutate, int size) {
+    this(nSteps, popSize, pCrossover, pMutate, size, Runtime.getRuntime().availableProcessors() > 1);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param nSteps Number of generations
+   * @param popSize Size of population
+   * @param pCrossover Crossover probability
+   * @param pMutate Mutation probability
+   * @param size Number of bits in the bitstring
+   * @param concurrent Whether to measure the compressed lengths of each
+   *          bitstring concurrently, on the
+   *          {@link GZipCostFunction#compressionPool()}
+   */
+  public GZGA(int nSteps, int popSize, double pCrossover, double pMutate, int size, boolean concurrent) {
     this.nSteps = nSteps;
     breeder = new RankLotteryBreeder(pCrossover, pMutate);
-    gzipfunc = new GZipCostFunction();
+    gzipfunc = new GZipCostFunction(concurrent ? GZipCostFunction.compressionPool() : null);
     GZGAPopulationFactory factory = new GZGAPopulationFactory(size);
     ga = new MCGA(breeder, gzipfunc, popSize, factory);
   }
@@ -21,30 +21,191 @@
  */
 package name.polhill.gary.mcga.gzga;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.Deflater;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import name.polhill.gary.mcga.BitStringGene;
 import name.polhill.gary.mcga.Chromosome;
 import name.polhill.gary.mcga.Cost;
-import name.polhill.gary.mcga.CostFunction;
 import name.polhill.gary.mcga.DoubleArrayCost;
+import name.polhill.gary.mcga.Gene;
+import name.polhill.gary.mcga.ThreadSafeCostFunction;
+import name.polhill.gary.util.BitWords;
+import name.polhill.gary.util.BlockLengthCache;
+import name.polhill.gary.util.CompressedLength;
 
 /**
  * GZipCostFunction
  * 
  * Cost function based on the number of bytes in a compression of the bitstring
- * using the gzip compression algorithm
+ * using the gzip compression algorithm. Each gene is written as a fixed number
+ * of bytes (see {@link name.polhill.gary.mcga.AbstractGene#writeTo(java.io.OutputStream)}),
+ * so the length of the input does not depend on the data.
+ * 
+ * The costs are the length of a gzip of the whole Chromosome, and of a zip
+ * file with an entry for each gene at each compression level from 0 to 8. The
+ * lengths are those GZIPOutputStream and ZipOutputStream would write, measured
+ * with a {@link CompressedLength} so that no compressors are created and no
+ * compressed data kept.
+ * 
+ * Level 0 stores the data without compressing it, so the length of a stored
+ * gene depends only on how many bytes are written and how, not what they are.
+ * It is measured once for each class and byte size of gene, and remembered.
+ * 
+ * Given an executor, the gzip length and each of the zip levels are measured
+ * concurrently, which reduces the time to evaluate one Chromosome rather than
+ * the time to evaluate a population. The executor should not be the one the
+ * Chromosomes are being evaluated on, as tasks waiting for compressions on the
+ * same executor could occupy all its threads; {@link #compressionPool()} is a
+ * pool shared by all cost functions for this purpose.
+ * 
+ * Given a block size, the gzip length is instead that of a gzip with a full
+ * flush before each gene, and within each gene after each block of that many
+ * bytes, counted back from the end of the gene (so that in a
+ * {@link BitStringGene}, the blocks are whole words, and only the first block
+ * may be shorter). Blocks are then compressed independently of each other,
+ * and their lengths are remembered in a {@link BlockLengthCache} by the
+ * fingerprints BitStringGenes keep of their blocks of words (see
+ * {@link BitStringGene#fingerprint(int, int)}). As crossover and mutation
+ * leave most of the blocks of an offspring the same as in one parent or the
+ * other, only the blocks that differ need reading or compressing. Blocks of
+ * other genes are compressed every time.
  * 
  * @author Gary Polhill
  *
  */
-public class GZipCostFunction implements CostFunction {
+public class GZipCostFunction implements ThreadSafeCostFunction {
+
+  /**
+   * <!-- pool -->
+   *
+   * The shared compression pool, created when first asked for
+   */
+  private static ExecutorService pool = null;
+
+  /**
+   * <!-- stored -->
+   *
+   * Lengths of genes stored at level 0, by class and byte size of gene
+   */
+  private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Long, Long>> stored =
+    new ConcurrentHashMap<Class<?>, ConcurrentHashMap<Long, Long>>();
+
+  /**
+   * <!-- executor -->
+   *
+   * Executor measuring the lengths concurrently, or <code>null</code> to
+   * measure them one after another
+   */
+  private final ExecutorService executor;
+
+  /**
+   * <!-- blockSize -->
+   *
+   * Bytes of each gene between full flushes of the gzip, or 0 for no flushes
+   */
+  private final int blockSize;
+
+  /**
+   * <!-- blocks -->
+   *
+   * Gzip lengths of blocks, or <code>null</code> if there are no flushes
+   */
+  private final BlockLengthCache blocks;
+
+  /**
+   * <!-- block -->
+   *
+   * Buffer for each thread to write a block to when it must be compressed
+   */
+  private final ThreadLocal<byte[]> block = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[blockSize];
+    }
+  };
+
+  /**
+   * <!-- GZipCostFunction constructor -->
+   *
+   * Measure the lengths one after another
+   */
+  public GZipCostFunction() {
+    this(null);
+  }
+
+  /**
+   * <!-- GZipCostFunction constructor -->
+   *
+   * @param executor Executor to measure the lengths for each Chromosome
+   *          concurrently, or <code>null</code> to measure them one after
+   *          another
+   */
+  public GZipCostFunction(ExecutorService executor) {
+    this(executor, 0, 0);
+  }
+
+  /**
+   * <!-- GZipCostFunction constructor -->
+   *
+   * @param executor Executor to measure the lengths for each Chromosome
+   *          concurrently, or <code>null</code> to measure them one after
+   *          another
+   * @param blockSize Bytes of each gene between full flushes of the gzip, a
+   *          multiple of {@link BitWords#BLOCK_WORDS} words, or 0 for no
+   *          flushes
+   * @param maxBlocks The most block lengths to remember, or 0 for no limit
+   */
+  public GZipCostFunction(ExecutorService executor, int blockSize, int maxBlocks) {
+    if(blockSize < 0) throw new IllegalArgumentException("Negative block size: " + blockSize);
+    if(blockSize % (BitWords.BLOCK_WORDS << 3) != 0) {
+      throw new IllegalArgumentException("Block size " + blockSize + " is not a multiple of "
+	+ (BitWords.BLOCK_WORDS << 3) + " bytes");
+    }
+    this.executor = executor;
+    this.blockSize = blockSize;
+    blocks = blockSize > 0 ? new BlockLengthCache(Deflater.DEFAULT_COMPRESSION, maxBlocks) : null;
+  }
+
+  /**
+   * <!-- getBlockCache -->
+   *
+   * @return The gzip lengths of blocks remembered, or <code>null</code> if
+   *         there are no flushes
+   */
+  public BlockLengthCache getBlockCache() {
+    return blocks;
+  }
+
+  /**
+   * <!-- compressionPool -->
+   *
+   * @return A pool of daemon threads, one per processor, shared by all the
+   *         cost functions given it
+   */
+  public static synchronized ExecutorService compressionPool() {
+    if(pool == null) {
+      pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+	public Thread newThread(Runnable r) {
+	  Thread thread = new Thread(r, "gzga-compression");
+	  thread.setDaemon(true);
+	  return thread;
+	}
+      });
+    }
+    return pool;
+  }
 
   /**
    * <!-- cost -->
@@ -52,43 +213,219 @@ public class GZipCostFunction implements CostFunction {
    * @see name.polhill.gary.mcga.CostFunction#cost(name.polhill.gary.mcga.Chromosome)
    */
   @Override
-  public Cost[] cost(Chromosome gene) {
-    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
-    ByteArrayOutputStream zip[] = new ByteArrayOutputStream[Deflater.BEST_COMPRESSION];
-    for(int i = 0; i < zip.length; i++) {
-      zip[i] = new ByteArrayOutputStream();
+  public Cost[] cost(final Chromosome gene) {
+    Double[] lengths = new Double[Deflater.BEST_COMPRESSION + 1];
+
+    if(executor == null) {
+      for(int i = 0; i < lengths.length; i++) {
+	lengths[i] = (double)length(gene, i);
+      }
+      return new Cost[] { new DoubleArrayCost(lengths) };
     }
-    
+
+    // Level 0 is remembered, and gzip is measured while the others are
+    // compressed on the pool
+
+    List<Future<Long>> futures = new ArrayList<Future<Long>>(lengths.length - 2);
     try {
-      List<Double> list = new LinkedList<Double>();
-      
-      GZIPOutputStream gz = new GZIPOutputStream(gzip);
-      for(int j = 0; j < gene.nGenes(); j++) {
-	gz.write(gene.geneAt(j).toByteArray());
+      for(int i = 2; i < lengths.length; i++) {
+	final int objective = i;
+	futures.add(executor.submit(new Callable<Long>() {
+	  public Long call() {
+	    return length(gene, objective);
+	  }
+	}));
+      }
+      lengths[0] = (double)length(gene, 0);
+      lengths[1] = (double)length(gene, 1);
+      for(int i = 2; i < lengths.length; i++) {
+	lengths[i] = (double)futures.get(i - 2).get();
+      }
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while compressing chromosome", e);
+    }
+    catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    finally {
+      for(Future<Long> future: futures) {
+	future.cancel(true);
       }
-      gz.close();
-      
-      list.add((double)gzip.size());
-      
-      for(int i = 0; i < zip.length; i++) {
-	ZipOutputStream z = new ZipOutputStream(zip[i]);
-	
-	z.setLevel(i);
-	
-	for(int j = 0; j < gene.nGenes(); j++) {
-	  z.putNextEntry(new ZipEntry(Integer.toString(j + 1)));
-	  z.write(gene.geneAt(j).toByteArray());
+    }
+
+    return new Cost[] { new DoubleArrayCost(lengths) };
+  }
+
+  /**
+   * <!-- length -->
+   *
+   * @param gene The Chromosome
+   * @param objective 0 for the gzip length, or one more than the level for a
+   *          zip length
+   * @return The length
+   */
+  private long length(Chromosome gene, int objective) {
+    try {
+      if(objective == 0) {
+	if(blocks != null) return blockLength(gene);
+	CompressedLength gz = CompressedLength.start(Deflater.DEFAULT_COMPRESSION);
+	try {
+	  Chromosome.Tools.writeTo(gene, gz);
+	  return gz.finish() + CompressedLength.GZIP_OVERHEAD;
+	}
+	finally {
+	  gz.close();
 	}
-	z.close();
-	
-	list.add((double)zip[i].size());
       }
-      
-      return new Cost[] { new DoubleArrayCost(list.toArray(new Double[0])) };
+      int level = objective - 1;
+      long length = CompressedLength.ZIP_END_OVERHEAD;
+      for(int j = 0; j < gene.nGenes(); j++) {
+	length += (level == Deflater.NO_COMPRESSION ? stored(gene, j) : deflated(gene, j, level))
+	  + CompressedLength.zipEntryOverhead(digits(j + 1));
+      }
+      return length;
     }
     catch(IOException e) {
       throw new Error(e);
     }
   }
 
+  /**
+   * <!-- blockLength -->
+   *
+   * @param gene The Chromosome
+   * @return The length of a gzip of the Chromosome with a full flush before
+   *         each gene and after each block
+   */
+  private long blockLength(Chromosome gene) {
+    long length = CompressedLength.FINISH_AFTER_FLUSH + CompressedLength.GZIP_OVERHEAD;
+    int blockWords = blockSize >>> 3;
+    for(int j = 0; j < gene.nGenes(); j++) {
+      Gene g = gene.geneAt(j);
+      if(!(g instanceof BitStringGene)) {
+	byte[] bytes = new byte[(int)Chromosome.Tools.byteSize(g)];
+	Chromosome.Tools.writeTo(g, ByteBuffer.wrap(bytes));
+	int len = bytes.length % blockSize == 0 ? blockSize : bytes.length % blockSize;
+	for(int from = 0; from < bytes.length; from += len, len = blockSize) {
+	  length += flushed(bytes, from, len);
+	}
+	continue;
+      }
+      BitStringGene bsg = (BitStringGene)g;
+      int nWords = BitWords.nWords(bsg.length);
+      int nBytes = BitWords.nBytes(bsg.length);
+      LongBuffer words = null;
+      for(int from = nWords == 0 ? -1 : ((nWords - 1) / blockWords) * blockWords; from >= 0; from -= blockWords) {
+	int to = Math.min(from + blockWords, nWords);
+	int len = Math.min(to << 3, nBytes) - (from << 3);
+	long fingerprint = bsg.fingerprint(from, to);
+	long blockLength = blocks.lookup(fingerprint, len);
+	if(blockLength < 0) {
+	  if(words == null) words = bsg.asLongBuffer();
+	  byte[] bytes = block.get();
+	  BitWords.write(words, bsg.length, from, to, ByteBuffer.wrap(bytes));
+	  blockLength = blocks.measure(fingerprint, bytes, 0, len);
+	}
+	length += blockLength;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * <!-- flushed -->
+   *
+   * @param data Array containing a block
+   * @param off Start of the block
+   * @param len Length of the block
+   * @return The length of the block compressed on its own and ended with a
+   *         full flush
+   */
+  private static long flushed(byte[] data, int off, int len) {
+    CompressedLength z = CompressedLength.start(Deflater.DEFAULT_COMPRESSION);
+    try {
+      z.write(data, off, len);
+      z.fullFlush();
+      return z.getBytesWritten();
+    }
+    finally {
+      z.close();
+    }
+  }
+
+  /**
+   * <!-- deflated -->
+   *
+   * @param gene The Chromosome
+   * @param j A gene of the Chromosome
+   * @param level The compression level
+   * @return The length of the gene compressed at that level
+   * @throws IOException
+   */
+  private static long deflated(Chromosome gene, int j, int level) throws IOException {
+    CompressedLength z = CompressedLength.start(level);
+    try {
+      Chromosome.Tools.writeTo(gene, j, z);
+      return z.finish();
+    }
+    finally {
+      z.close();
+    }
+  }
+
+  /**
+   * <!-- stored -->
+   *
+   * @param gene The Chromosome
+   * @param j A gene of the Chromosome
+   * @return The length of the gene stored at level 0, measured the first time
+   *         a gene of its class and byte size is seen
+   * @throws IOException
+   */
+  private static long stored(Chromosome gene, int j) throws IOException {
+    Class<?> geneClass = Chromosome.Tools.geneClass(gene, j);
+    ConcurrentHashMap<Long, Long> sizes = stored.get(geneClass);
+    if(sizes == null) {
+      stored.putIfAbsent(geneClass, new ConcurrentHashMap<Long, Long>());
+      sizes = stored.get(geneClass);
+    }
+    long size = Chromosome.Tools.byteSize(gene, j);
+    Long length = sizes.get(size);
+    if(length == null) {
+      length = deflated(gene, j, Deflater.NO_COMPRESSION);
+      sizes.put(size, length);
+    }
+    return length;
+  }
+
+  /**
+   * <!-- digits -->
+   *
+   * @param n A positive number
+   * @return The number of characters in its decimal representation, which is
+   *         the name of the zip entry for the nth gene
+   */
+  private static int digits(int n) {
+    int digits = 1;
+    while(n >= 10) {
+      n /= 10;
+      digits++;
+    }
+    return digits;
+  }
+
+  /**
+   * <!-- threadSafe -->
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return true;
+  }
 }
@@ -0,0 +1,154 @@
+/*
+ * name.polhill.gary.mcga.gzga: GZipCostFunctionTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of MCGA.
+ *
+ * MCGA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * MCGA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with MCGA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.mcga.gzga;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import junit.framework.TestCase;
+import name.polhill.gary.mcga.BitStringChromosome;
+import name.polhill.gary.mcga.Chromosome;
+import name.polhill.gary.mcga.DoubleArrayCost;
+import name.polhill.gary.util.BlockLengthCache;
+import name.polhill.gary.util.CompressedLength;
+
+/**
+ * <!-- GZipCostFunctionTest -->
+ *
+ * Test for the GZipCostFunction class with a block size, against one
+ * Deflater stream given a full flush after each block
+ *
+ * @author Gary Polhill
+ */
+public class GZipCostFunctionTest extends TestCase {
+  private static final int[] GENE_LENGTHS = { 8000, 3, 64 * 64 * 3 + 5, 100, 4096 };
+  private static final int BLOCK_SIZE = 64;
+  private static final int POPULATION = 10;
+
+  /**
+   * @param name
+   */
+  public GZipCostFunctionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- fullFlushed -->
+   *
+   * @param chromosome A Chromosome
+   * @param blockSize Bytes between full flushes
+   * @return The length of a gzip of the Chromosome written to one Deflater,
+   *         with a full flush after each block of each gene, the blocks
+   *         counted back from the end of the gene
+   */
+  static long fullFlushed(Chromosome chromosome, int blockSize) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    byte[] out = new byte[blockSize * 2 + 64];
+    long length = CompressedLength.GZIP_OVERHEAD;
+    try {
+      for(int j = 0; j < chromosome.nGenes(); j++) {
+	byte[] bytes = new byte[(int)Chromosome.Tools.byteSize(chromosome.geneAt(j))];
+	Chromosome.Tools.writeTo(chromosome.geneAt(j), ByteBuffer.wrap(bytes));
+	int len = bytes.length % blockSize == 0 ? blockSize : bytes.length % blockSize;
+	for(int from = 0; from < bytes.length; from += len, len = blockSize) {
+	  deflater.setInput(bytes, from, len);
+	  int n;
+	  do {
+	    n = deflater.deflate(out, 0, out.length, Deflater.FULL_FLUSH);
+	    length += n;
+	  } while(n == out.length);
+	}
+      }
+      deflater.finish();
+      while(!deflater.finished()) {
+	length += deflater.deflate(out);
+      }
+    }
+    finally {
+      deflater.end();
+    }
+    return length;
+  }
+
+  /**
+   * <!-- lengths -->
+   *
+   * @param function A cost function
+   * @param chromosome A Chromosome
+   * @return The lengths it gives the Chromosome
+   */
+  static List<Double> lengths(GZipCostFunction function, Chromosome chromosome) {
+    return ((DoubleArrayCost)function.cost(chromosome)[0]).getValues();
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.gzga.GZipCostFunction#cost(Chromosome)}
+   * with a block size: the gzip length is that of a stream with a full flush
+   * after each block, whether the blocks' lengths are remembered or not, and
+   * the zip lengths are those measured without blocks.
+   */
+  public void testBlocks() {
+    GZipCostFunction whole = new GZipCostFunction();
+    GZipCostFunction cached = new GZipCostFunction(null, BLOCK_SIZE, 0);
+    GZipCostFunction bounded = new GZipCostFunction(null, BLOCK_SIZE, 4);
+    for(int i = 0; i < POPULATION; i++) {
+      Chromosome chromosome = new BitStringChromosome(GENE_LENGTHS).randomise();
+      if(i % 2 == 1) chromosome = new BitStringChromosome(GENE_LENGTHS).mutate(0.01);
+      List<Double> lengths = lengths(cached, chromosome);
+      assertEquals((double)fullFlushed(chromosome, BLOCK_SIZE), lengths.get(0), 0.0);
+      assertEquals(lengths, lengths(bounded, chromosome));
+      assertEquals(lengths.subList(1, lengths.size()), lengths(whole, chromosome).subList(1, lengths.size()));
+    }
+    assertTrue(bounded.getBlockCache().size() <= 4);
+    assertTrue(bounded.getBlockCache().getMisses() > cached.getBlockCache().getMisses());
+    assertEquals(null, whole.getBlockCache());
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.mcga.gzga.GZipCostFunction#cost(Chromosome)}
+   * with a block size: once the parents have been measured, an offspring of
+   * crossover needs at most the block containing the crossover point
+   * compressing, and still has the length of a stream with full flushes.
+   */
+  public void testCrossover() {
+    GZipCostFunction cached = new GZipCostFunction(null, BLOCK_SIZE, 0);
+    BlockLengthCache blocks = cached.getBlockCache();
+    Chromosome mother = new BitStringChromosome(GENE_LENGTHS).randomise();
+    Chromosome father = new BitStringChromosome(GENE_LENGTHS).mutate(0.05);
+    lengths(cached, mother);
+    lengths(cached, father);
+    long total = 0;
+    for(int length: GENE_LENGTHS) {
+      total += length;
+    }
+    for(long point = 1; point < total; point += 997) {
+      Chromosome child = mother.crossover(father, point);
+      long misses = blocks.getMisses();
+      assertEquals((double)fullFlushed(child, BLOCK_SIZE), lengths(cached, child).get(0), 0.0);
+      assertTrue(blocks.getMisses() - misses <= 1);
+    }
+    assertTrue(blocks.getHits() > 0);
+  }
+}
@@ -25,10 +25,10 @@ import java.math.BigInteger;
 import name.polhill.gary.mcga.BitStringGene;
 import name.polhill.gary.mcga.Chromosome;
 import name.polhill.gary.mcga.Cost;
-import name.polhill.gary.mcga.CostFunction;
 import name.polhill.gary.mcga.DoubleCost;
 import name.polhill.gary.mcga.Gene;
 import name.polhill.gary.mcga.GrayCodeBitStringGene;
+import name.polhill.gary.mcga.ThreadSafeCostFunction;
 
 /**
  * IntCostFunction
@@ -39,14 +39,28 @@ import name.polhill.gary.mcga.GrayCodeBitStringGene;
  * @author Gary Polhill
  * 
  */
-public class IntCostFunction implements CostFunction {
+public class IntCostFunction implements ThreadSafeCostFunction {
   private final BigInteger values[];
 
+  /**
+   * <!-- longValues -->
+   *
+   * The values as longs, where they are non-negative and fit in one, for
+   * genes of fewer than 64 bits
+   */
+  private final long longValues[];
+
+  private final boolean isLong[];
+
   public IntCostFunction(String args[]) {
     values = new BigInteger[args.length];
+    longValues = new long[args.length];
+    isLong = new boolean[args.length];
 
     for(int i = 0; i < args.length; i++) {
       values[i] = new BigInteger(args[i], 10);
+      isLong[i] = values[i].signum() >= 0 && values[i].bitLength() < 64;
+      longValues[i] = values[i].longValue();
     }
   }
 
@@ -57,9 +71,13 @@ public class IntCostFunction implements CostFunction {
    * @return
    */
   public DoubleCost cost(Gene gene, int i) {
-    if(gene instanceof GrayCodeBitStringGene) {
+    if(gene instanceof GrayCodeBitStringGene && isLong[i] && gene.size() < 64) {
+      long decode = ((GrayCodeBitStringGene)gene).inverseGrayCodeLong();
+      return new DoubleCost(Math.abs((double)(decode - longValues[i])));
+    }
+    else if(gene instanceof GrayCodeBitStringGene) {
       BitStringGene decode = ((GrayCodeBitStringGene)gene).inverseGrayCode();
-      return new DoubleCost(Math.abs(decode.gene.subtract(values[i]).doubleValue()));
+      return new DoubleCost(Math.abs(decode.toBigInteger().subtract(values[i]).doubleValue()));
     }
     else {
       throw new RuntimeException("Invalid class for gene: " + gene.getClass());
@@ -89,4 +107,13 @@ public class IntCostFunction implements CostFunction {
     return cost;
   }
 
+  /**
+   * <!-- threadSafe -->
+   *
+   * @see name.polhill.gary.mcga.ThreadSafeCostFunction#threadSafe()
+   */
+  @Override
+  public boolean threadSafe() {
+    return true;
+  }
 }
@@ -0,0 +1,534 @@
+/*
+ * name.polhill.gary.util: BitWords.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Random;
+
+/**
+ * <!-- BitWords -->
+ *
+ * Static operations on fixed-length bitstrings packed into arrays of longs.
+ * Bit <code>i</code> of a bitstring is stored in bit <code>i % 64</code> of
+ * word <code>i / 64</code>. All methods assume (and preserve) the invariant
+ * that the bits of the last word above the length of the bitstring are zero.
+ *
+ * @author Gary Polhill
+ */
+public final class BitWords {
+  /**
+   * Number of bits in a word
+   */
+  public static final int WORD_SIZE = 64;
+
+  /**
+   * Number of words in each block of a bitstring given its own fingerprint by
+   * {@link #blockFingerprints(long[])}
+   */
+  public static final int BLOCK_WORDS = 8;
+
+  /**
+   * Size of the chunks in which bitstrings are written to streams
+   */
+  private static final int CHUNK_SIZE = 4096;
+
+  /**
+   * Per-thread buffer for writing bitstrings to streams
+   */
+  private static final ThreadLocal<byte[]> chunk = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[CHUNK_SIZE];
+    }
+  };
+
+  private BitWords() {
+    // static methods only
+  }
+
+  /**
+   * <!-- chunk -->
+   *
+   * @return The buffer kept for each thread in which
+   *         {@link #write(long[], int, OutputStream)} writes bitstrings to
+   *         streams a chunk at a time, for writing bitstrings stored
+   *         elsewhere in the same chunks. Its contents are overwritten by any
+   *         write to a stream.
+   */
+  public static byte[] chunk() {
+    return chunk.get();
+  }
+
+  /**
+   * <!-- nWords -->
+   *
+   * @param length Number of bits
+   * @return The number of words needed to store that many bits
+   */
+  public static int nWords(int length) {
+    return (length + WORD_SIZE - 1) >>> 6;
+  }
+
+  /**
+   * <!-- topMask -->
+   *
+   * @param length Number of bits
+   * @return A mask of the bits in use in the last word of a bitstring of the
+   *         given length
+   */
+  public static long topMask(int length) {
+    int used = length & (WORD_SIZE - 1);
+    return used == 0 ? -1L : (1L << used) - 1L;
+  }
+
+  /**
+   * <!-- clearUnused -->
+   *
+   * Zero the bits in the last word beyond the length of the bitstring
+   *
+   * @param words The bitstring
+   * @param length The number of bits in it
+   */
+  public static void clearUnused(long[] words, int length) {
+    if(words.length > 0) words[words.length - 1] &= topMask(length);
+  }
+
+  /**
+   * <!-- getBit -->
+   *
+   * @param words The bitstring
+   * @param bit The bit to get
+   * @return The value of the bit
+   */
+  public static boolean getBit(long[] words, int bit) {
+    return (words[bit >>> 6] & (1L << bit)) != 0L;
+  }
+
+  /**
+   * <!-- setBit -->
+   *
+   * @param words The bitstring
+   * @param bit The bit to set
+   * @param value The value to set it to
+   */
+  public static void setBit(long[] words, int bit, boolean value) {
+    if(value) words[bit >>> 6] |= (1L << bit);
+    else
+      words[bit >>> 6] &= ~(1L << bit);
+  }
+
+  /**
+   * <!-- randomise -->
+   *
+   * Set every bit of the bitstring to a random value
+   *
+   * @param words The bitstring
+   * @param length The number of bits in it
+   * @param randomiser The random number generator to use
+   */
+  public static void randomise(long[] words, int length, Random randomiser) {
+    for(int i = 0; i < words.length; i++) {
+      words[i] = randomiser.nextLong();
+    }
+    clearUnused(words, length);
+  }
+
+  /**
+   * <!-- splice -->
+   *
+   * Copy bits <code>point</code> onwards of <code>from</code> into
+   * <code>to</code>, leaving bits below <code>point</code> alone. Words wholly
+   * above the point are copied directly; the word containing the point is
+   * merged using a single boundary mask.
+   *
+   * @param to The bitstring to splice into
+   * @param from The bitstring to splice from
+   * @param point The first bit to take from <code>from</code>
+   */
+  public static void splice(long[] to, long[] from, int point) {
+    if(point < 0) point = 0;
+    int n = Math.min(to.length, from.length);
+    int w = point >>> 6;
+    if(w >= n) return;
+    long mask = -1L << point;
+    to[w] = (to[w] & ~mask) | (from[w] & mask);
+    if(w + 1 < n) System.arraycopy(from, w + 1, to, w + 1, n - (w + 1));
+  }
+
+  /**
+   * <!-- and -->
+   *
+   * @param a A bitstring
+   * @param b Another bitstring
+   * @return A new bitstring, the same length as <code>a</code>, containing
+   *         the bitwise AND of the two
+   */
+  public static long[] and(long[] a, long[] b) {
+    long[] and = new long[a.length];
+    int n = Math.min(a.length, b.length);
+    for(int i = 0; i < n; i++) {
+      and[i] = a[i] & b[i];
+    }
+    return and;
+  }
+
+  /**
+   * <!-- xor -->
+   *
+   * @param a A bitstring
+   * @param b Another bitstring
+   * @param length The length of <code>a</code>
+   * @return A new bitstring, the same length as <code>a</code>, containing
+   *         the bitwise XOR of the two
+   */
+  public static long[] xor(long[] a, long[] b, int length) {
+    long[] xor = a.clone();
+    int n = Math.min(a.length, b.length);
+    for(int i = 0; i < n; i++) {
+      xor[i] ^= b[i];
+    }
+    clearUnused(xor, length);
+    return xor;
+  }
+
+  /**
+   * <!-- shiftRight -->
+   *
+   * @param words The bitstring
+   * @param shift The number of bits to shift right by
+   * @return A new bitstring, the same length, shifted towards bit 0
+   */
+  public static long[] shiftRight(long[] words, int shift) {
+    long[] rsh = new long[words.length];
+    if(shift < 0) throw new IllegalArgumentException("Negative shift " + shift);
+    int wshift = shift >>> 6;
+    int bshift = shift & (WORD_SIZE - 1);
+    for(int i = 0; i + wshift < words.length; i++) {
+      long lo = words[i + wshift] >>> bshift;
+      long hi = (bshift == 0 || i + wshift + 1 >= words.length) ? 0L
+                : words[i + wshift + 1] << (WORD_SIZE - bshift);
+      rsh[i] = lo | hi;
+    }
+    return rsh;
+  }
+
+  /**
+   * <!-- mix -->
+   *
+   * Mix a word at a given position in a bitstring into a pseudo-random
+   * 64-bit value (using the SplitMix64 finaliser). The fingerprint of a
+   * bitstring is the XOR of the mixes of its words, so that when a word
+   * changes, the fingerprint can be updated by XORing in the mixes of the old
+   * and new values.
+   *
+   * @param word The value of the word
+   * @param index The position of the word in the bitstring
+   * @return The mixed value
+   */
+  public static long mix(long word, int index) {
+    long z = word + 0x9E3779B97F4A7C15L * (index + 1);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * <!-- fingerprint -->
+   *
+   * @param words The bitstring
+   * @return A 64-bit fingerprint of the contents of the bitstring
+   */
+  public static long fingerprint(long[] words) {
+    return fingerprint(words, 0, words.length);
+  }
+
+  /**
+   * <!-- fingerprint -->
+   *
+   * @param words The bitstring
+   * @param from The first word
+   * @param to One more than the last word
+   * @return The fingerprint of the words from <code>from</code> to
+   *         <code>to</code>, which XORed with those of the other words is the
+   *         fingerprint of the bitstring
+   */
+  public static long fingerprint(long[] words, int from, int to) {
+    long fingerprint = 0L;
+    for(int i = from; i < to; i++) {
+      fingerprint ^= mix(words[i], i);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * <!-- blockFingerprints -->
+   *
+   * @param words The bitstring
+   * @return The fingerprint of each block of {@link #BLOCK_WORDS} words,
+   *         starting from word 0 (the last block may be shorter)
+   */
+  public static long[] blockFingerprints(long[] words) {
+    long[] blocks = new long[(words.length + BLOCK_WORDS - 1) / BLOCK_WORDS];
+    for(int b = 0; b < blocks.length; b++) {
+      blocks[b] = fingerprint(words, b * BLOCK_WORDS, Math.min((b + 1) * BLOCK_WORDS, words.length));
+    }
+    return blocks;
+  }
+
+  /**
+   * <!-- fingerprint -->
+   *
+   * Update a fingerprint for a change of words from a given position onwards
+   *
+   * @param fingerprint The fingerprint of <code>before</code>
+   * @param before The bitstring before the change
+   * @param after The bitstring after the change
+   * @param from The first word that may have changed
+   * @return The fingerprint of <code>after</code>
+   */
+  public static long fingerprint(long fingerprint, long[] before, long[] after, int from) {
+    for(int i = Math.max(from, 0); i < before.length; i++) {
+      if(before[i] != after[i]) fingerprint ^= mix(before[i], i) ^ mix(after[i], i);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * <!-- toString -->
+   *
+   * @param words The bitstring
+   * @param length The number of bits in it
+   * @return A string of 0s and 1s, most significant (highest) bit first
+   */
+  public static String toString(long[] words, int length) {
+    char[] str = new char[length];
+    for(int i = 0; i < length; i++) {
+      str[length - 1 - i] = getBit(words, i) ? '1' : '0';
+    }
+    return new String(str);
+  }
+
+  /**
+   * <!-- fromByteArray -->
+   *
+   * Build a bitstring from a big-endian two's complement byte array (as used
+   * by {@link BigInteger#toByteArray()}), truncated to the given length. As
+   * with BigInteger, negative values are sign-extended.
+   *
+   * @param data The bytes
+   * @param length The number of bits in the bitstring
+   * @return The bitstring
+   */
+  public static long[] fromByteArray(byte[] data, int length) {
+    long[] words = new long[nWords(length)];
+    int nBytes = words.length * 8;
+    int fill = (data.length > 0 && data[0] < 0) ? 0xFF : 0x00;
+    for(int i = 0; i < nBytes; i++) {
+      int b = (i < data.length) ? (data[data.length - 1 - i] & 0xFF) : fill;
+      words[i >>> 3] |= ((long)b) << ((i & 7) << 3);
+    }
+    clearUnused(words, length);
+    return words;
+  }
+
+  /**
+   * <!-- fromBigInteger -->
+   *
+   * @param data A BigInteger
+   * @param length The number of bits in the bitstring
+   * @return The lowest <code>length</code> bits of the two's complement
+   *         representation of <code>data</code>
+   */
+  public static long[] fromBigInteger(BigInteger data, int length) {
+    return fromByteArray(data.toByteArray(), length);
+  }
+
+  /**
+   * <!-- toByteArray -->
+   *
+   * @param words The bitstring
+   * @return The bitstring as a non-negative number in the format returned by
+   *         {@link BigInteger#toByteArray()}: big-endian, with no redundant
+   *         leading zero bytes other than a sign byte where needed
+   */
+  public static byte[] toByteArray(long[] words) {
+    byte[] bytes = new byte[byteArrayLength(words)];
+    writeByteArray(words, 0, bytes.length, bytes, 0);
+    return bytes;
+  }
+
+  /**
+   * <!-- byteArrayLength -->
+   *
+   * @param words The bitstring
+   * @return The number of bytes in {@link #toByteArray(long[])} of the
+   *         bitstring, found from its highest non-zero word
+   */
+  public static int byteArrayLength(long[] words) {
+    int top = words.length - 1;
+    while(top > 0 && words[top] == 0L) {
+      top--;
+    }
+    if(top < 0) return 1;
+    return (top << 3) + ((WORD_SIZE - Long.numberOfLeadingZeros(words[top])) >>> 3) + 1;
+  }
+
+  /**
+   * <!-- writeByteArray -->
+   *
+   * Write some of the bytes of {@link #toByteArray(long[])} of a bitstring to
+   * an array, reading them from the words without creating the whole array.
+   *
+   * @param words The bitstring
+   * @param from The first byte, counting from the most significant (a sign
+   *          byte, if there is one)
+   * @param to One more than the last byte, at most
+   *          {@link #byteArrayLength(long[])}
+   * @param bytes The array to write to
+   * @param off Where in the array to write the first byte
+   */
+  public static void writeByteArray(long[] words, int from, int to, byte[] bytes, int off) {
+    int top = byteArrayLength(words) - 1;
+    int nBytes = words.length << 3;
+    for(int j = from; j < to; j++) {
+      int i = top - j;
+      bytes[off++] = i < nBytes ? (byte)byteAt(words, i) : 0;
+    }
+  }
+
+  /**
+   * <!-- toBigInteger -->
+   *
+   * @param words The bitstring
+   * @return The bitstring as a non-negative BigInteger
+   */
+  public static BigInteger toBigInteger(long[] words) {
+    return new BigInteger(toByteArray(words));
+  }
+
+  /**
+   * <!-- nBytes -->
+   *
+   * @param length Number of bits
+   * @return The number of bytes needed to store that many bits
+   */
+  public static int nBytes(int length) {
+    return (length + 7) >>> 3;
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * Write exactly {@link #nBytes(int)} bytes of a bitstring to a buffer,
+   * big-endian (i.e. the most significant byte first, as with
+   * {@link #toByteArray(long[])}, but without trimming or sign bytes). Whole
+   * words are written with {@link ByteBuffer#putLong(long)}.
+   *
+   * @param words The bitstring (any words beyond its length are ignored)
+   * @param length The number of bits in it
+   * @param buffer The buffer to write to, from its current position
+   */
+  public static void write(long[] words, int length, ByteBuffer buffer) {
+    int top = nWords(length) - 1;
+    if(top < 0) return;
+    int topBytes = nBytes(length) - (top << 3);
+    for(int i = topBytes - 1; i >= 0; i--) {
+      buffer.put((byte)(words[top] >>> (i << 3)));
+    }
+    boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+    for(int w = top - 1; w >= 0; w--) {
+      buffer.putLong(bigEndian ? words[w] : Long.reverseBytes(words[w]));
+    }
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * Write the bytes of some of the words of a bitstring to a buffer, in the
+   * order {@link #write(long[], int, ByteBuffer)} writes them. Only the bytes
+   * within the length of the bitstring are written, so if <code>to</code> is
+   * the number of words, the last word may give fewer than eight bytes.
+   *
+   * @param words The bitstring, which is read from its position onwards
+   * @param length The number of bits in it
+   * @param from The first word
+   * @param to One more than the last word
+   * @param buffer The buffer to write to
+   */
+  public static void write(LongBuffer words, int length, int from, int to, ByteBuffer buffer) {
+    int base = words.position();
+    boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+    for(int w = to - 1; w >= from; w--) {
+      long word = words.get(base + w);
+      if(w == to - 1 && nBytes(length) < (to << 3)) {
+        for(int i = nBytes(length) - (w << 3) - 1; i >= 0; i--) {
+          buffer.put((byte)(word >>> (i << 3)));
+        }
+      }
+      else {
+        buffer.putLong(bigEndian ? word : Long.reverseBytes(word));
+      }
+    }
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * Write exactly {@link #nBytes(int)} bytes of a bitstring to a stream, in
+   * the same order as {@link #write(long[], int, ByteBuffer)}. The bytes are
+   * written in chunks from a buffer kept for each thread, so no arrays are
+   * created.
+   *
+   * @param words The bitstring (any words beyond its length are ignored)
+   * @param length The number of bits in it
+   * @param out The stream to write to
+   * @throws IOException
+   */
+  public static void write(long[] words, int length, OutputStream out) throws IOException {
+    byte[] buffer = chunk.get();
+    int n = 0;
+    for(int i = nBytes(length) - 1; i >= 0; i--) {
+      buffer[n++] = (byte)byteAt(words, i);
+      if(n == buffer.length) {
+        out.write(buffer, 0, n);
+        n = 0;
+      }
+    }
+    if(n > 0) out.write(buffer, 0, n);
+  }
+
+  /**
+   * <!-- byteAt -->
+   *
+   * @param words The bitstring
+   * @param i The index of the byte, counting from the least significant
+   * @return The byte, as an unsigned value
+   */
+  public static int byteAt(long[] words, int i) {
+    return (int)(words[i >>> 3] >>> ((i & 7) << 3)) & 0xFF;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * name.polhill.gary.util: BitWordsTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- BitWordsTest -->
+ *
+ * Test for the BitWords class, against the same operations on BigIntegers
+ *
+ * @author Gary Polhill
+ */
+public class BitWordsTest extends TestCase {
+  private static final int[] LENGTHS = { 0, 1, 63, 64, 65, 127, 128, 129, 500, 1000 };
+
+  private final Random random = new Random(1);
+
+  /**
+   * @param name
+   */
+  public BitWordsTest(String name) {
+    super(name);
+  }
+
+  private long[] randomWords(int length) {
+    long[] words = new long[BitWords.nWords(length)];
+    BitWords.randomise(words, length, random);
+    return words;
+  }
+
+  private static BigInteger mask(int bits) {
+    return BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.BitWords#splice(long[], long[], int)}.
+   */
+  public void testSplice() {
+    for(int length: LENGTHS) {
+      for(int point = -1; point <= length + 1; point += 1 + length / 20) {
+        long[] to = randomWords(length);
+        long[] from = randomWords(length);
+        BigInteger below = BitWords.toBigInteger(to).and(mask(Math.max(point, 0)));
+        BigInteger above = BitWords.toBigInteger(from).andNot(mask(Math.max(point, 0)));
+        BitWords.splice(to, from, point);
+        assertEquals(below.or(above), BitWords.toBigInteger(to));
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.BitWords#shiftRight(long[], int)}.
+   */
+  public void testShiftRight() {
+    for(int length: LENGTHS) {
+      long[] words = randomWords(length);
+      for(int shift = 0; shift <= length + 64; shift += 1 + length / 30) {
+        assertEquals(BitWords.toBigInteger(words).shiftRight(shift),
+                     BitWords.toBigInteger(BitWords.shiftRight(words, shift)));
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.BitWords#fromByteArray(byte[], int)}
+   * and {@link name.polhill.gary.util.BitWords#toByteArray(long[])}.
+   */
+  public void testByteArrayRoundTrip() {
+    for(int length: LENGTHS) {
+      long[] words = randomWords(length);
+      byte[] bytes = BitWords.toByteArray(words);
+      assertTrue(Arrays.equals(BitWords.toBigInteger(words).toByteArray(), bytes));
+      assertTrue(Arrays.equals(words, BitWords.fromByteArray(bytes, length)));
+      assertTrue(Arrays.equals(words, BitWords.fromBigInteger(new BigInteger(bytes), length)));
+    }
+
+    // Negative numbers are sign-extended, then truncated to the length
+
+    assertEquals(mask(100), BitWords.toBigInteger(BitWords.fromByteArray(new byte[] { -1 }, 100)));
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.BitWords#writeByteArray(long[], int, int, byte[], int)}
+   * and {@link name.polhill.gary.util.BitWords#byteArrayLength(long[])}:
+   * writing the bytes a few at a time gives those of the BigInteger, with a
+   * sign byte when the top bit is set and none for leading zero bytes.
+   */
+  public void testWriteByteArray() {
+    for(int length: LENGTHS) {
+      for(int top = 0; top < 3; top++) {
+        long[] words = randomWords(length);
+        if(length > 8 && top == 1) BitWords.setBit(words, length - 1, true);
+        if(length > 8 && top == 2) words[words.length - 1] = 0L;
+        byte[] big = BitWords.toBigInteger(words).toByteArray();
+        assertEquals(big.length, BitWords.byteArrayLength(words));
+        byte[] bytes = new byte[big.length + 2];
+        for(int from = 0; from < big.length; from += 3) {
+          BitWords.writeByteArray(words, from, Math.min(from + 3, big.length), bytes, from + 1);
+        }
+        for(int i = 0; i < big.length; i++) {
+          assertEquals(big[i], bytes[i + 1]);
+        }
+        assertEquals(0, bytes[0]);
+        assertEquals(0, bytes[bytes.length - 1]);
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.BitWords#write(long[], int, ByteBuffer)}
+   * and {@link name.polhill.gary.util.BitWords#write(LongBuffer, int, int, int, ByteBuffer)}:
+   * genes are written in their fixed-width big-endian form, whole or in
+   * blocks of words.
+   */
+  public void testWrite() {
+    for(int length: LENGTHS) {
+      long[] words = randomWords(length);
+      ByteBuffer whole = ByteBuffer.allocate(BitWords.nBytes(length));
+      BitWords.write(words, length, whole);
+      assertEquals(0, whole.remaining());
+      byte[] expected = new byte[BitWords.nBytes(length)];
+      byte[] big = BitWords.toBigInteger(words).toByteArray();
+      int n = Math.min(big.length, expected.length);
+      System.arraycopy(big, big.length - n, expected, expected.length - n, n);
+      assertTrue(Arrays.equals(expected, whole.array()));
+
+      // Blocks of words written from the top down give the same bytes, in
+      // either byte order
+
+      ByteBuffer blocks = ByteBuffer.allocate(BitWords.nBytes(length)).order(ByteOrder.LITTLE_ENDIAN);
+      LongBuffer view = LongBuffer.wrap(words);
+      for(int to = words.length; to > 0; to -= 3) {
+        BitWords.write(view, length, Math.max(to - 3, 0), to, blocks);
+      }
+      assertTrue(Arrays.equals(expected, blocks.array()));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.BitWords#fingerprint(long, long[], long[], int)}
+   * and {@link name.polhill.gary.util.BitWords#blockFingerprints(long[])}:
+   * updating a fingerprint gives the fingerprint of the words afterwards, and
+   * the fingerprints of the blocks combine to that of the words.
+   */
+  public void testFingerprint() {
+    for(int length: LENGTHS) {
+      long[] before = randomWords(length);
+      long fingerprint = BitWords.fingerprint(before);
+      long[] blocks = BitWords.blockFingerprints(before);
+      long combined = 0L;
+      for(long block: blocks) {
+        combined ^= block;
+      }
+      assertEquals(fingerprint, combined);
+
+      for(int from = 0; from < before.length; from += 1 + before.length / 5) {
+        long[] after = before.clone();
+        for(int w = from; w < after.length; w += 2) {
+          after[w] = random.nextLong();
+        }
+        BitWords.clearUnused(after, length);
+        assertEquals(BitWords.fingerprint(after), BitWords.fingerprint(fingerprint, before, after, from));
+      }
+
+      // Moving a word changes the fingerprint
+
+      if(before.length > 1 && before[0] != before[1]) {
+        long[] swapped = before.clone();
+        swapped[0] = before[1];
+        swapped[1] = before[0];
+        assertFalse(fingerprint == BitWords.fingerprint(swapped));
+      }
+    }
+  }
+}
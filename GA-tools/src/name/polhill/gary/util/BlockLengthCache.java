@@ -0,0 +1,199 @@
+/*
+ * name.polhill.gary.util: BlockLengthCache.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * <!-- BlockLengthCache -->
+ *
+ * Compressed lengths of blocks of data, each compressed as if from the start
+ * of a stream and ended with a {@link CompressedLength#fullFlush()}, so that
+ * the length of a stream of blocks with a full flush after each is the sum of
+ * the lengths of the blocks. Lengths are remembered by a 64-bit fingerprint
+ * of the block and its position given by the caller (such as one kept up to
+ * date as the data are changed; see {@link BitWords#fingerprint(long[], int,
+ * int)}), so a block whose length is remembered need not even be read. Data
+ * that share most of their blocks with data measured before (such as the
+ * offspring of crossover, which share blocks with each parent either side of
+ * the crossover point) need only the blocks that differ to be compressed.
+ * When the cache is full, the least recently used block is forgotten.
+ *
+ * @author Gary Polhill
+ */
+public final class BlockLengthCache {
+  /**
+   * <!-- level -->
+   *
+   * The compression level
+   */
+  private final int level;
+
+  /**
+   * <!-- maxEntries -->
+   *
+   * The most blocks to remember, or 0 for no limit
+   */
+  private final int maxEntries;
+
+  /**
+   * <!-- cache -->
+   *
+   * Lengths by fingerprint and length of block, in order of access
+   */
+  private final LinkedHashMap<Block, Long> cache;
+
+  private long hits;
+  private long misses;
+
+  /**
+   * <!-- BlockLengthCache constructor -->
+   *
+   * @param level The compression level (0-9, or
+   *          {@link java.util.zip.Deflater#DEFAULT_COMPRESSION})
+   * @param maxEntries The most blocks to remember, or 0 for no limit
+   */
+  public BlockLengthCache(int level, int maxEntries) {
+    if(maxEntries < 0) throw new IllegalArgumentException("Negative number of entries: " + maxEntries);
+    this.level = level;
+    this.maxEntries = maxEntries;
+    cache = new LinkedHashMap<Block, Long>(16, 0.75f, true);
+  }
+
+  /**
+   * <!-- lookup -->
+   *
+   * @param fingerprint The fingerprint of the block
+   * @param len The length of the block
+   * @return The number of bytes of compressed data remembered for the block,
+   *         or -1 if it must be measured with
+   *         {@link #measure(long, byte[], int, int)}
+   */
+  public long lookup(long fingerprint, int len) {
+    synchronized(cache) {
+      Long length = cache.get(new Block(fingerprint, len));
+      if(length != null) {
+        hits++;
+        return length;
+      }
+      misses++;
+      return -1L;
+    }
+  }
+
+  /**
+   * <!-- measure -->
+   *
+   * Compress a block and remember its length
+   *
+   * @param fingerprint The fingerprint of the block
+   * @param data Array containing the block
+   * @param off Start of the block in the array
+   * @param len Length of the block
+   * @return The number of bytes of compressed data for the block, compressed
+   *         as if from the start of a stream and ended with a full flush
+   */
+  public long measure(long fingerprint, byte[] data, int off, int len) {
+    CompressedLength z = CompressedLength.start(level);
+    long length;
+    try {
+      z.write(data, off, len);
+      z.fullFlush();
+      length = z.getBytesWritten();
+    }
+    finally {
+      z.close();
+    }
+    synchronized(cache) {
+      cache.put(new Block(fingerprint, len), length);
+      Iterator<Block> eldest = cache.keySet().iterator();
+      while(maxEntries > 0 && cache.size() > maxEntries) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+    return length;
+  }
+
+  /**
+   * <!-- getHits -->
+   *
+   * @return The number of blocks whose length was remembered
+   */
+  public long getHits() {
+    synchronized(cache) {
+      return hits;
+    }
+  }
+
+  /**
+   * <!-- getMisses -->
+   *
+   * @return The number of blocks whose length was not remembered
+   */
+  public long getMisses() {
+    synchronized(cache) {
+      return misses;
+    }
+  }
+
+  /**
+   * <!-- size -->
+   *
+   * @return The number of blocks remembered
+   */
+  public int size() {
+    synchronized(cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * <!-- Block -->
+   *
+   * The fingerprint and length of a block
+   *
+   * @author Gary Polhill
+   */
+  private static final class Block {
+    private final long fingerprint;
+    private final int len;
+
+    Block(long fingerprint, int len) {
+      this.fingerprint = fingerprint;
+      this.len = len;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int)(fingerprint ^ (fingerprint >>> 32)) * 31 + len;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof Block)) return false;
+      Block other = (Block)obj;
+      return other.fingerprint == fingerprint && other.len == len;
+    }
+  }
+}
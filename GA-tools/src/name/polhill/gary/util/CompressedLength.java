@@ -0,0 +1,285 @@
+/*
+ * name.polhill.gary.util: CompressedLength.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * <!-- CompressedLength -->
+ *
+ * A stream that compresses what is written to it and counts the compressed
+ * bytes without keeping them. Streams are taken from a pool by
+ * {@link #start(int)} and returned to it by {@link #close()}, and their
+ * {@link Deflater}s are reset rather than created for each use, so measuring
+ * a compressed length usually creates no objects and no native compressor
+ * state. The pool holds only as many streams as have been in use at once (up
+ * to a limit), rather than one for each thread that has used one, which
+ * matters when there are many short-lived threads, such as virtual threads.
+ *
+ * The Deflater is driven exactly as {@link java.util.zip.DeflaterOutputStream}
+ * drives it (the same output buffer size, and the same calls for the same
+ * writes), so the lengths are those that {@link java.util.zip.GZIPOutputStream}
+ * and {@link java.util.zip.ZipOutputStream} would write, given the header and
+ * trailer sizes here.
+ *
+ * @author Gary Polhill
+ */
+public final class CompressedLength extends OutputStream {
+  /**
+   * <!-- GZIP_OVERHEAD -->
+   *
+   * Bytes of header (10) and trailer (8) that GZIPOutputStream writes around
+   * the compressed data
+   */
+  public static final int GZIP_OVERHEAD = 18;
+
+  /**
+   * <!-- ZIP_ENTRY_OVERHEAD -->
+   *
+   * Bytes ZipOutputStream writes for each deflated entry of unknown size with
+   * no extra fields or comment, besides the compressed data and two copies of
+   * the name: the local header (30), data descriptor (16) and central
+   * directory header (46)
+   */
+  public static final int ZIP_ENTRY_OVERHEAD = 92;
+
+  /**
+   * <!-- ZIP_END_OVERHEAD -->
+   *
+   * Bytes of the end of central directory record, with no comment
+   */
+  public static final int ZIP_END_OVERHEAD = 22;
+
+  /**
+   * <!-- FINISH_AFTER_FLUSH -->
+   *
+   * Bytes {@link #finish()} adds after a flush at any level but 0: an empty
+   * final block
+   */
+  public static final int FINISH_AFTER_FLUSH = 2;
+
+  /**
+   * <!-- BUFFER_SIZE -->
+   *
+   * Size of the output buffer DeflaterOutputStream uses by default
+   */
+  private static final int BUFFER_SIZE = 512;
+
+  /**
+   * <!-- MAX_POOLED -->
+   *
+   * Most streams kept in the pool; streams closed when it is full end their
+   * Deflaters instead
+   */
+  private static final int MAX_POOLED = 4 * Runtime.getRuntime().availableProcessors();
+
+  /**
+   * <!-- pool -->
+   *
+   * Streams not in use
+   */
+  private static final ConcurrentLinkedQueue<CompressedLength> pool = new ConcurrentLinkedQueue<CompressedLength>();
+
+  /**
+   * <!-- pooled -->
+   *
+   * Number of streams in the pool, or about to be put in it
+   */
+  private static final AtomicInteger pooled = new AtomicInteger();
+
+  private final Deflater deflater;
+  private final byte[] buffer;
+  private final byte[] single;
+
+  /**
+   * <!-- CompressedLength constructor -->
+   *
+   * Private constructor: use {@link #start(int)}
+   */
+  private CompressedLength() {
+    deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    buffer = new byte[BUFFER_SIZE];
+    single = new byte[1];
+  }
+
+  /**
+   * <!-- start -->
+   *
+   * Take a stream from the pool, or create one if the pool is empty. Call
+   * {@link #close()} to put it back when done with it.
+   *
+   * @param level The compression level (0-9, or
+   *          {@link Deflater#DEFAULT_COMPRESSION})
+   * @return A stream for the calling thread to use alone, ready to compress
+   *         data written to it as raw deflate data (without a zlib header or
+   *         checksum)
+   */
+  public static CompressedLength start(int level) {
+    CompressedLength stream = pool.poll();
+    if(stream == null) {
+      stream = new CompressedLength();
+    }
+    else {
+      pooled.decrementAndGet();
+    }
+    stream.deflater.reset();
+    stream.deflater.setLevel(level);
+    return stream;
+  }
+
+  /**
+   * <!-- close -->
+   *
+   * Put the stream back in the pool, after which it must not be used
+   *
+   * @see java.io.OutputStream#close()
+   */
+  @Override
+  public void close() {
+    if(pooled.incrementAndGet() <= MAX_POOLED) {
+      pool.offer(this);
+    }
+    else {
+      pooled.decrementAndGet();
+      deflater.end();
+    }
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * @see java.io.OutputStream#write(int)
+   */
+  @Override
+  public void write(int b) {
+    single[0] = (byte)b;
+    write(single, 0, 1);
+  }
+
+  /**
+   * <!-- write -->
+   *
+   * @see java.io.OutputStream#write(byte[], int, int)
+   */
+  @Override
+  public void write(byte[] b, int off, int len) {
+    if(deflater.finished()) throw new IllegalStateException("Write after finish");
+    if(len == 0) return;
+    deflater.setInput(b, off, len);
+    while(!deflater.needsInput()) {
+      deflater.deflate(buffer, 0, buffer.length);
+    }
+  }
+
+  /**
+   * <!-- flush -->
+   *
+   * Compress everything written so far, and end the compressed data on a
+   * byte boundary with an empty stored block, as
+   * {@link java.util.zip.DeflaterOutputStream#flush()} does when created to
+   * flush with {@link Deflater#SYNC_FLUSH}. The data after a flush are still
+   * compressed using what was written before it.
+   *
+   * @see java.io.OutputStream#flush()
+   */
+  @Override
+  public void flush() {
+    if(deflater.finished()) return;
+    int len;
+    while((len = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH)) > 0) {
+      if(len < buffer.length) break;
+    }
+  }
+
+  /**
+   * <!-- fullFlush -->
+   *
+   * Compress everything written so far, end the compressed data on a byte
+   * boundary with an empty stored block, and forget what was written, so the
+   * data after are compressed as if from the start. The length of compressed
+   * data between full flushes therefore depends only on what was written
+   * between them.
+   */
+  public void fullFlush() {
+    if(deflater.finished()) return;
+    int len;
+    while((len = deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH)) > 0) {
+      if(len < buffer.length) break;
+    }
+  }
+
+  /**
+   * <!-- getBytesWritten -->
+   *
+   * @return The number of bytes of compressed data so far. Until
+   *         {@link #flush()} or {@link #finish()} is called, the compressor may
+   *         be holding data written to it, so this is only a lower bound on
+   *         the length of the compressed data.
+   */
+  public long getBytesWritten() {
+    return deflater.getBytesWritten();
+  }
+
+  /**
+   * <!-- bound -->
+   *
+   * The bound zlib's <code>deflateBound()</code> gives for raw deflate data
+   * with the default parameters, plus the 5 bytes zlib documents for a flush.
+   *
+   * @param n A number of bytes
+   * @return The most bytes of compressed data that writing <code>n</code>
+   *         bytes and then flushing or finishing can add, at any level but 0
+   */
+  public static long bound(long n) {
+    return n + (n >> 12) + (n >> 14) + (n >> 25) + 7 + 5;
+  }
+
+  /**
+   * <!-- finish -->
+   *
+   * @return The number of bytes of compressed data for everything written
+   *         since {@link #start(int)}
+   */
+  public long finish() {
+    if(!deflater.finished()) {
+      deflater.finish();
+      while(!deflater.finished()) {
+        deflater.deflate(buffer, 0, buffer.length);
+      }
+    }
+    return deflater.getBytesWritten();
+  }
+
+  /**
+   * <!-- zipEntryOverhead -->
+   *
+   * @param nameLength The number of bytes in the (UTF-8) name of an entry
+   * @return The bytes ZipOutputStream writes for the entry besides its
+   *         compressed data
+   */
+  public static int zipEntryOverhead(int nameLength) {
+    return ZIP_ENTRY_OVERHEAD + 2 * nameLength;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * name.polhill.gary.util: CompressedLengthTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- CompressedLengthTest -->
+ *
+ * Test for the CompressedLength class, against the lengths of the files
+ * GZIPOutputStream and ZipOutputStream write
+ *
+ * @author Gary Polhill
+ */
+public class CompressedLengthTest extends TestCase {
+  private final Random random = new Random(17);
+
+  /**
+   * @param name
+   */
+  public CompressedLengthTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- data -->
+   *
+   * @param n Number of bytes
+   * @param compressible Whether to draw bytes from a few values only
+   * @return Random data
+   */
+  private byte[] data(int n, boolean compressible) {
+    byte[] data = new byte[n];
+    random.nextBytes(data);
+    if(compressible) {
+      for(int i = 0; i < n; i++) {
+        data[i] &= 0x03;
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.CompressedLength#finish()}
+   * and {@link name.polhill.gary.util.CompressedLength#GZIP_OVERHEAD}.
+   */
+  public void testGZip() throws IOException {
+    for(int n: new int[] { 0, 1, 100, 5000, 100000 }) {
+      for(boolean compressible: new boolean[] { false, true }) {
+        byte[] data = data(n, compressible);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(file);
+        gzip.write(data);
+        gzip.close();
+
+        CompressedLength length = CompressedLength.start(Deflater.DEFAULT_COMPRESSION);
+        length.write(data);
+        assertEquals(file.size(), length.finish() + CompressedLength.GZIP_OVERHEAD);
+        length.close();
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.CompressedLength#finish()},
+   * {@link name.polhill.gary.util.CompressedLength#zipEntryOverhead(int)} and
+   * {@link name.polhill.gary.util.CompressedLength#ZIP_END_OVERHEAD}, at each
+   * level of compression.
+   */
+  public void testZip() throws IOException {
+    for(int level = 0; level <= 9; level++) {
+      for(boolean compressible: new boolean[] { false, true }) {
+        byte[][] entries = new byte[12][];
+        for(int i = 0; i < entries.length; i++) {
+          entries[i] = data(random.nextInt(3000), compressible);
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(file);
+        zip.setLevel(level);
+        long expected = CompressedLength.ZIP_END_OVERHEAD;
+        for(int i = 0; i < entries.length; i++) {
+          String name = Integer.toString(i + 1);
+          zip.putNextEntry(new ZipEntry(name));
+          zip.write(entries[i]);
+          zip.closeEntry();
+
+          CompressedLength length = CompressedLength.start(level);
+          length.write(entries[i]);
+          expected += length.finish() + CompressedLength.zipEntryOverhead(name.length());
+          length.close();
+        }
+        zip.close();
+        assertEquals(file.size(), expected);
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.CompressedLength#fullFlush()}:
+   * the compressed data after a full flush depend only on what is written
+   * after it.
+   */
+  public void testFullFlush() throws IOException {
+    byte[] first = data(2000, true);
+    byte[] second = data(2000, true);
+
+    CompressedLength length = CompressedLength.start(6);
+    length.write(first);
+    length.fullFlush();
+    long flushed = length.getBytesWritten();
+    length.write(second);
+    length.fullFlush();
+    long both = length.getBytesWritten();
+    length.close();
+
+    length = CompressedLength.start(6);
+    length.write(second);
+    length.fullFlush();
+    assertEquals(both - flushed, length.getBytesWritten());
+    length.close();
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.CompressedLength#start(int)}
+   * and {@link name.polhill.gary.util.CompressedLength#close()}: streams in use
+   * at once are different, streams taken from the pool are reset, and
+   * measuring with one stream while another is in use does not change it.
+   */
+  public void testPool() throws IOException {
+    byte[] data = data(5000, true);
+    CompressedLength outer = CompressedLength.start(9);
+    outer.write(data, 0, 2500);
+    CompressedLength inner = CompressedLength.start(1);
+    assertNotSame(outer, inner);
+    inner.write(data);
+    long innerLength = inner.finish();
+    inner.close();
+    outer.write(data, 2500, 2500);
+    long outerLength = outer.finish();
+    outer.close();
+
+    CompressedLength again = CompressedLength.start(9);
+    assertEquals(0, again.getBytesWritten());
+    again.write(data);
+    assertEquals(outerLength, again.finish());
+    again.close();
+
+    again = CompressedLength.start(1);
+    again.write(data);
+    assertEquals(innerLength, again.finish());
+    again.close();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * name.polhill.gary.util: GeometricMutator.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.Random;
+
+/**
+ * <!-- GeometricMutator -->
+ *
+ * Chooses bits of a bitstring for mutation, each independently with
+ * probability <code>pMutate</code>, by drawing the number of bits skipped
+ * before the next chosen bit from a geometric distribution. This has the same
+ * distribution as drawing a random number for every bit, but needs only one
+ * random number per chosen bit, so the cost is proportional to the expected
+ * number of mutations rather than the length of the bitstring.
+ *
+ * @author Gary Polhill
+ */
+public final class GeometricMutator {
+  private final double pMutate;
+
+  /**
+   * <!-- logQ -->
+   *
+   * Natural log of the probability that a bit is not chosen
+   */
+  private final double logQ;
+
+  private final Random randomiser;
+
+  /**
+   * <!-- GeometricMutator constructor -->
+   *
+   * @param pMutate The probability that each bit is chosen
+   * @param randomiser The random number generator to use
+   */
+  public GeometricMutator(double pMutate, Random randomiser) {
+    this.pMutate = pMutate;
+    this.logQ = Math.log1p(-pMutate);
+    this.randomiser = randomiser;
+  }
+
+  /**
+   * <!-- next -->
+   *
+   * The gap to the next chosen bit is <code>floor(ln(U) / ln(1 - p))</code>
+   * for <code>U</code> uniform on (0, 1], which is the number of failures
+   * before the first success in a sequence of trials with probability
+   * <code>p</code> of success.
+   *
+   * @param bit The last chosen bit (-1 to start at the beginning)
+   * @return The next chosen bit after it, or {@link Long#MAX_VALUE} if there
+   *         is none
+   */
+  public long next(long bit) {
+    if(!(pMutate > 0.0)) return Long.MAX_VALUE;
+    if(pMutate >= 1.0) return bit + 1;
+    double gap = Math.floor(Math.log(1.0 - randomiser.nextDouble()) / logQ);
+    if(gap >= (double)(Long.MAX_VALUE - bit - 1)) return Long.MAX_VALUE;
+    return bit + 1 + (long)gap;
+  }
+
+  /**
+   * <!-- mutate -->
+   *
+   * Set the chosen bits of a bitstring to random values, in place. Chosen
+   * bits in the same word share one random long.
+   *
+   * @param words The bitstring
+   * @param length The number of bits in it
+   * @param bit The first chosen bit, as returned by {@link #next(long)}
+   * @param fingerprint The fingerprint of the bitstring (see
+   *          {@link BitWords#fingerprint(long[])}), or 0 if it is not needed
+   * @return The fingerprint of the mutated bitstring
+   */
+  public long mutate(long[] words, int length, long bit, long fingerprint) {
+    return mutate(words, length, bit, fingerprint, null);
+  }
+
+  /**
+   * <!-- mutate -->
+   *
+   * Set the chosen bits of a bitstring to random values, in place, updating
+   * the fingerprints of its blocks as well as of the whole
+   *
+   * @param words The bitstring
+   * @param length The number of bits in it
+   * @param bit The first chosen bit, as returned by {@link #next(long)}
+   * @param fingerprint The fingerprint of the bitstring, or 0 if it is not
+   *          needed
+   * @param blocks The fingerprints of its blocks (see
+   *          {@link BitWords#blockFingerprints(long[])}), updated in place, or
+   *          <code>null</code> if they are not needed
+   * @return The fingerprint of the mutated bitstring
+   */
+  public long mutate(long[] words, int length, long bit, long fingerprint, long[] blocks) {
+    while(bit < length) {
+      int w = (int)(bit >>> 6);
+      long end = Math.min((long)(w + 1) << 6, length);
+      long mask = 0L;
+      do {
+        mask |= (1L << bit);
+        bit = next(bit);
+      } while(bit < end);
+      long word = (words[w] & ~mask) | (randomiser.nextLong() & mask);
+      long change = BitWords.mix(words[w], w) ^ BitWords.mix(word, w);
+      fingerprint ^= change;
+      if(blocks != null) blocks[w / BitWords.BLOCK_WORDS] ^= change;
+      words[w] = word;
+    }
+    return fingerprint;
+  }
+}
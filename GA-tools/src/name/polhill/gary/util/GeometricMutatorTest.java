@@ -0,0 +1,118 @@
+/*
+ * name.polhill.gary.util: GeometricMutatorTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- GeometricMutatorTest -->
+ *
+ * Test for the GeometricMutator class
+ *
+ * @author Gary Polhill
+ */
+public class GeometricMutatorTest extends TestCase {
+
+  /**
+   * @param name
+   */
+  public GeometricMutatorTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.GeometricMutator#next(long)}:
+   * the number of bits chosen, and how many are chosen in each position, are
+   * binomial with the mutation probability.
+   */
+  public void testRate() {
+    int length = 1000;
+    int trials = 2000;
+    for(double p: new double[] { 0.001, 0.01, 0.1, 0.5 }) {
+      GeometricMutator mutator = new GeometricMutator(p, new Random(7));
+      int[] chosen = new int[length];
+      long total = 0;
+      for(int t = 0; t < trials; t++) {
+        long last = -1;
+        for(long bit = mutator.next(-1); bit < length; bit = mutator.next(bit)) {
+          assertTrue(bit > last);
+          chosen[(int)bit]++;
+          total++;
+          last = bit;
+        }
+      }
+      double n = (double)length * trials;
+      assertEquals(n * p, total, 5.0 * Math.sqrt(n * p * (1.0 - p)));
+
+      // The first and second halves of the bitstring are chosen alike
+
+      long first = 0;
+      for(int i = 0; i < length / 2; i++) {
+        first += chosen[i];
+      }
+      assertEquals(total / 2.0, first, 5.0 * Math.sqrt(total / 4.0) + 1.0);
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.GeometricMutator#next(long)}
+   * at the extremes of the probability.
+   */
+  public void testExtremes() {
+    GeometricMutator never = new GeometricMutator(0.0, new Random(1));
+    assertEquals(Long.MAX_VALUE, never.next(-1));
+    GeometricMutator always = new GeometricMutator(1.0, new Random(1));
+    for(long bit = -1; bit < 100; bit++) {
+      assertEquals(bit + 1, always.next(bit));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.GeometricMutator#mutate(long[], int, long, long, long[])}:
+   * only chosen bits change, and the fingerprints kept up to date are those of
+   * the result.
+   */
+  public void testMutate() {
+    Random random = new Random(3);
+    for(int length: new int[] { 1, 64, 65, 700, 5000 }) {
+      long[] words = new long[BitWords.nWords(length)];
+      BitWords.randomise(words, length, random);
+      long[] before = words.clone();
+      long[] blocks = BitWords.blockFingerprints(words);
+      GeometricMutator mutator = new GeometricMutator(0.01, random);
+      long bit = mutator.next(-1);
+      long fingerprint = mutator.mutate(words, length, bit, BitWords.fingerprint(words), blocks);
+      assertEquals(BitWords.fingerprint(words), fingerprint);
+      assertTrue(Arrays.equals(BitWords.blockFingerprints(words), blocks));
+      long[] unused = words.clone();
+      BitWords.clearUnused(unused, length);
+      assertTrue(Arrays.equals(unused, words));
+      for(int i = 0; i < length && i < bit; i++) {
+        assertEquals(BitWords.getBit(before, i), BitWords.getBit(words, i));
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * name.polhill.gary.util: GrayCode.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+/**
+ * <!-- GrayCode -->
+ *
+ * Gray coding and decoding of single words, and of bitstrings stored as in
+ * {@link BitWords}. Gray code is an encoding of binary numbers such that any two
+ * successive integers differ by one bit. Encoding XORs each bit with the one
+ * above it; decoding makes each bit the XOR of itself and all the bits above
+ * it, which is done a word at a time in six shift-and-XOR steps.
+ *
+ * @author Gary Polhill
+ */
+public final class GrayCode {
+  private GrayCode() {
+    // static methods only
+  }
+
+  /**
+   * <!-- encode -->
+   *
+   * @param binary An unsigned binary number
+   * @return Its Gray code
+   */
+  public static long encode(long binary) {
+    return binary ^ (binary >>> 1);
+  }
+
+  /**
+   * <!-- decode -->
+   *
+   * @param gray A Gray-coded number
+   * @return The unsigned binary number it encodes
+   */
+  public static long decode(long gray) {
+    gray ^= gray >>> 1;
+    gray ^= gray >>> 2;
+    gray ^= gray >>> 4;
+    gray ^= gray >>> 8;
+    gray ^= gray >>> 16;
+    gray ^= gray >>> 32;
+    return gray;
+  }
+
+  /**
+   * <!-- encode -->
+   *
+   * @param words A bitstring
+   * @return A new bitstring, the same length, containing its Gray code
+   */
+  public static long[] encode(long[] words) {
+    long[] gray = new long[words.length];
+    for(int i = 0; i < words.length; i++) {
+      long above = (i + 1 < words.length) ? (words[i + 1] << 63) : 0L;
+      gray[i] = words[i] ^ ((words[i] >>> 1) | above);
+    }
+    return gray;
+  }
+
+  /**
+   * <!-- decode -->
+   *
+   * Each word is decoded on its own, and then inverted if the parity of all
+   * the bits in the words above it is odd. That parity is the lowest bit of the
+   * decoded word above.
+   *
+   * @param words A Gray-coded bitstring
+   * @return A new bitstring, the same length, containing the number it encodes
+   */
+  public static long[] decode(long[] words) {
+    long[] binary = new long[words.length];
+    long carry = 0L;
+    for(int i = words.length - 1; i >= 0; i--) {
+      binary[i] = decode(words[i]) ^ carry;
+      carry = -(binary[i] & 1L);
+    }
+    return binary;
+  }
+}
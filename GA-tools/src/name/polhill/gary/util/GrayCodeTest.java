@@ -0,0 +1,114 @@
+/*
+ * name.polhill.gary.util: GrayCodeTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- GrayCodeTest -->
+ *
+ * Test for the GrayCode class, against Gray coding a BigInteger bit by bit
+ *
+ * @author Gary Polhill
+ */
+public class GrayCodeTest extends TestCase {
+
+  /**
+   * @param name
+   */
+  public GrayCodeTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- decodeBits -->
+   *
+   * @param gray A Gray code
+   * @param length Its length
+   * @return The number it encodes, each bit being the parity of the bits of
+   *         the code at or above it
+   */
+  private static BigInteger decodeBits(BigInteger gray, int length) {
+    BigInteger binary = BigInteger.ZERO;
+    boolean parity = false;
+    for(int i = length - 1; i >= 0; i--) {
+      parity ^= gray.testBit(i);
+      if(parity) binary = binary.setBit(i);
+    }
+    return binary;
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.GrayCode#encode(long)} and
+   * {@link name.polhill.gary.util.GrayCode#decode(long)}.
+   */
+  public void testLong() {
+    Random random = new Random(9);
+    for(int i = 0; i < 1000; i++) {
+      long binary = random.nextLong();
+      long gray = GrayCode.encode(binary);
+      assertEquals(binary ^ (binary >>> 1), gray);
+      assertEquals(binary, GrayCode.decode(gray));
+    }
+
+    // Successive numbers differ in one bit of their codes
+
+    for(long n = 0; n < 1000; n++) {
+      assertEquals(1, Long.bitCount(GrayCode.encode(n) ^ GrayCode.encode(n + 1)));
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.GrayCode#encode(long[])} and
+   * {@link name.polhill.gary.util.GrayCode#decode(long[])}: the bit shifted in
+   * from the word above, and the parity carried down from the words above.
+   */
+  public void testWords() {
+    Random random = new Random(11);
+    for(int length: new int[] { 1, 63, 64, 65, 128, 129, 1000 }) {
+      for(int t = 0; t < 20; t++) {
+        long[] words = new long[BitWords.nWords(length)];
+        BitWords.randomise(words, length, random);
+        BigInteger binary = BitWords.toBigInteger(words);
+        long[] gray = GrayCode.encode(words);
+        assertEquals(binary.xor(binary.shiftRight(1)), BitWords.toBigInteger(gray));
+        assertTrue(Arrays.equals(words, GrayCode.decode(gray)));
+        assertEquals(decodeBits(BitWords.toBigInteger(words), length),
+                     BitWords.toBigInteger(GrayCode.decode(words)));
+      }
+    }
+
+    // A single bit at the top of a word below the top decodes to ones all
+    // the way down, through every word below it
+
+    long[] top = new long[4];
+    top[2] = 1L << 63;
+    assertTrue(Arrays.equals(new long[] { -1L, -1L, -1L, 0L }, GrayCode.decode(top)));
+    assertTrue(Arrays.equals(new long[] { 0L, 0L, 1L << 63 | 1L << 62, 0L }, GrayCode.encode(top)));
+    long[] low = new long[] { 0L, 1L };
+    assertTrue(Arrays.equals(new long[] { 1L << 63, 1L }, GrayCode.encode(low)));
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * name.polhill.gary.util: Hamming.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+/**
+ * <!-- Hamming -->
+ *
+ * Hamming weights and distances of bitstrings stored as in {@link BitWords}.
+ * These work a word at a time using {@link Long#bitCount(long)}, which the JIT
+ * compiles to a population count instruction where there is one.
+ *
+ * @author Gary Polhill
+ */
+public final class Hamming {
+  private Hamming() {
+    // static methods only
+  }
+
+  /**
+   * <!-- weight -->
+   *
+   * @param words The bitstring
+   * @return The number of bits set to 1
+   */
+  public static int weight(long[] words) {
+    int weight = 0;
+    for(int i = 0; i < words.length; i++) {
+      weight += Long.bitCount(words[i]);
+    }
+    return weight;
+  }
+
+  /**
+   * <!-- distance -->
+   *
+   * @param a A bitstring
+   * @param b Another bitstring the same length
+   * @return The number of bits that differ between them
+   */
+  public static int distance(long[] a, long[] b) {
+    if(a == b) return 0;
+    int n = Math.min(a.length, b.length);
+    int distance = 0;
+    for(int i = 0; i < n; i++) {
+      distance += Long.bitCount(a[i] ^ b[i]);
+    }
+    return distance;
+  }
+
+  /**
+   * <!-- ColumnCounter -->
+   *
+   * Counts the number of 1s in each bit position (column) of a set of
+   * bitstrings (rows), so that the sum of the Hamming distances between all
+   * pairs of rows can be found without comparing each pair. If
+   * <code>c</code> rows have a 1 in a column, that column contributes
+   * <code>c(n - c)</code> to the sum. The counts are stored bit-sliced: plane
+   * <code>k</code> holds bit <code>k</code> of the count for every column, so
+   * adding a row is a ripple-carry addition a word at a time.
+   *
+   * @author Gary Polhill
+   */
+  public static final class ColumnCounter {
+    private final long[][] planes;
+    private final int nRows;
+    private int added;
+
+    /**
+     * <!-- ColumnCounter constructor -->
+     *
+     * @param nWords The number of words in each row
+     * @param nRows The number of rows that will be added
+     */
+    public ColumnCounter(int nWords, int nRows) {
+      this.nRows = nRows;
+      planes = new long[32 - Integer.numberOfLeadingZeros(Math.max(nRows, 1))][nWords];
+    }
+
+    /**
+     * <!-- add -->
+     *
+     * Add part of a row. A row may be added in several parts (for example, one
+     * gene at a time), but should be counted once, using {@link #nextRow()}.
+     *
+     * @param words Bits to add
+     * @param at The word position in the row of the first word
+     */
+    public void add(long[] words, int at) {
+      for(int w = 0; w < words.length; w++) {
+        long carry = words[w];
+        for(int k = 0; carry != 0L; k++) {
+          long c = planes[k][at + w] & carry;
+          planes[k][at + w] ^= carry;
+          carry = c;
+        }
+      }
+    }
+
+    /**
+     * <!-- nextRow -->
+     *
+     * Record that a whole row has been added
+     */
+    public void nextRow() {
+      if(++added > nRows) throw new IllegalStateException("More than " + nRows + " rows added");
+    }
+
+    /**
+     * <!-- count -->
+     *
+     * @param bit A column
+     * @return The number of rows added with a 1 in that column
+     */
+    public int count(int bit) {
+      int count = 0;
+      for(int k = 0; k < planes.length; k++) {
+        if((planes[k][bit >>> 6] & (1L << bit)) != 0L) count |= (1 << k);
+      }
+      return count;
+    }
+
+    /**
+     * <!-- pairwiseDistance -->
+     *
+     * The sum over columns of <code>c(n - c)</code> is <code>nS1 - S2</code>,
+     * where <code>S1</code> is the sum of the counts and <code>S2</code> the
+     * sum of their squares. Both can be computed from the population counts of
+     * the planes and of pairs of planes, without decoding any counts.
+     *
+     * @return The sum of the Hamming distances between all pairs of rows added
+     */
+    public long pairwiseDistance() {
+      long s1 = 0L;
+      long s2 = 0L;
+      for(int j = 0; j < planes.length; j++) {
+        long pj = 0L;
+        for(int w = 0; w < planes[j].length; w++) {
+          pj += Long.bitCount(planes[j][w]);
+        }
+        s1 += pj << j;
+        s2 += pj << (2 * j);
+        for(int k = j + 1; k < planes.length; k++) {
+          long pjk = 0L;
+          for(int w = 0; w < planes[j].length; w++) {
+            pjk += Long.bitCount(planes[j][w] & planes[k][w]);
+          }
+          s2 += pjk << (j + k + 1);
+        }
+      }
+      return (long)added * s1 - s2;
+    }
+  }
+}
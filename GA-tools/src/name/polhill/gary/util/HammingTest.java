@@ -0,0 +1,133 @@
+/*
+ * name.polhill.gary.util: HammingTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- HammingTest -->
+ *
+ * Test for the Hamming class, against counting bit by bit
+ *
+ * @author Gary Polhill
+ */
+public class HammingTest extends TestCase {
+  private final Random random = new Random(5);
+
+  /**
+   * @param name
+   */
+  public HammingTest(String name) {
+    super(name);
+  }
+
+  private long[][] randomRows(int nRows, int length) {
+    long[][] rows = new long[nRows][BitWords.nWords(length)];
+    for(long[] row: rows) {
+      BitWords.randomise(row, length, random);
+
+      // Make some columns mostly ones, so counts vary
+
+      for(int w = 0; w < row.length; w++) {
+        row[w] |= random.nextLong() & random.nextLong() & 0xFF00FF00FF00FF00L;
+      }
+      BitWords.clearUnused(row, length);
+    }
+    return rows;
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.Hamming#weight(long[])} and
+   * {@link name.polhill.gary.util.Hamming#distance(long[], long[])}.
+   */
+  public void testDistance() {
+    for(int length: new int[] { 0, 1, 64, 65, 300 }) {
+      long[][] rows = randomRows(2, length);
+      int weight = 0;
+      int distance = 0;
+      for(int i = 0; i < length; i++) {
+        if(BitWords.getBit(rows[0], i)) weight++;
+        if(BitWords.getBit(rows[0], i) != BitWords.getBit(rows[1], i)) distance++;
+      }
+      assertEquals(weight, Hamming.weight(rows[0]));
+      assertEquals(distance, Hamming.distance(rows[0], rows[1]));
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.Hamming.ColumnCounter}: the
+   * counts of each column, and the sum of the distances between all pairs of
+   * rows, for rows added in parts.
+   */
+  public void testColumnCounter() {
+    for(int nRows: new int[] { 1, 2, 3, 7, 8, 33, 100 }) {
+      int length = 1 + random.nextInt(400);
+      int nWords = BitWords.nWords(length);
+      long[][] rows = randomRows(nRows, length);
+      Hamming.ColumnCounter counter = new Hamming.ColumnCounter(nWords, nRows);
+      int split = nWords / 2;
+      for(long[] row: rows) {
+        long[] low = new long[split];
+        long[] high = new long[nWords - split];
+        System.arraycopy(row, 0, low, 0, low.length);
+        System.arraycopy(row, split, high, 0, high.length);
+        counter.add(high, split);
+        counter.add(low, 0);
+        counter.nextRow();
+      }
+
+      for(int bit = 0; bit < length; bit++) {
+        int count = 0;
+        for(long[] row: rows) {
+          if(BitWords.getBit(row, bit)) count++;
+        }
+        assertEquals(count, counter.count(bit));
+      }
+
+      long pairwise = 0L;
+      for(int i = 0; i < nRows; i++) {
+        for(int j = i + 1; j < nRows; j++) {
+          pairwise += Hamming.distance(rows[i], rows[j]);
+        }
+      }
+      assertEquals(pairwise, counter.pairwiseDistance());
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.Hamming.ColumnCounter#nextRow()}:
+   * adding more rows than the counter was made for is an error.
+   */
+  public void testTooManyRows() {
+    Hamming.ColumnCounter counter = new Hamming.ColumnCounter(1, 1);
+    counter.nextRow();
+    try {
+      counter.nextRow();
+      fail("Added more rows than the counter holds");
+    }
+    catch(IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * name.polhill.gary.util: RankSampler.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * <!-- RankSampler -->
+ *
+ * Draws ranks from <code>0</code> to <code>n - 1</code> with probability
+ * proportional to one more than the rank, as if drawing tickets from a lottery
+ * in which rank <code>i</code> has <code>i + 1</code> tickets, without
+ * creating the tickets.
+ *
+ * Drawing with replacement inverts the cumulative distribution of tickets,
+ * which is triangular, taking constant time and memory per draw. Drawing
+ * without replacement, so that each ticket is drawn at most once as when
+ * drawing from a shuffled list of all the tickets, keeps the number of tickets
+ * each rank has left in a Fenwick tree, taking time logarithmic in
+ * <code>n</code> per draw and memory linear in <code>n</code>.
+ *
+ * @author Gary Polhill
+ */
+public final class RankSampler {
+  /**
+   * <!-- n -->
+   *
+   * The number of ranks
+   */
+  private final int n;
+
+  /**
+   * <!-- random -->
+   *
+   * Source of random numbers
+   */
+  private final Random random;
+
+  /**
+   * <!-- tree -->
+   *
+   * Fenwick tree of tickets left for each rank, or <code>null</code> if
+   * drawing with replacement
+   */
+  private final long[] tree;
+
+  /**
+   * <!-- tickets -->
+   *
+   * The number of tickets left
+   */
+  private long tickets;
+
+  /**
+   * <!-- RankSampler constructor -->
+   *
+   * @param n The number of ranks
+   * @param replacement <code>true</code> to draw with replacement
+   * @param random Source of random numbers
+   */
+  public RankSampler(int n, boolean replacement, Random random) {
+    if(n < 0) throw new IllegalArgumentException("Negative number of ranks: " + n);
+    this.n = n;
+    this.random = random;
+    tickets = (long)n * (long)(n + 1) / 2L;
+    if(replacement) {
+      tree = null;
+    }
+    else {
+      tree = new long[n + 1];
+      for(int i = 1; i <= n; i++) {
+        tree[i] += i;
+        int parent = i + (i & -i);
+        if(parent <= n) tree[parent] += tree[i];
+      }
+    }
+  }
+
+  /**
+   * <!-- RankSampler constructor -->
+   *
+   * @param n The number of ranks
+   * @param replacement <code>true</code> to draw with replacement
+   */
+  public RankSampler(int n, boolean replacement) {
+    this(n, replacement, new Random());
+  }
+
+  /**
+   * <!-- next -->
+   *
+   * @return A rank
+   * @throws NoSuchElementException If drawing without replacement and all the
+   *           tickets have been drawn
+   */
+  public int next() {
+    if(tickets == 0L) throw new NoSuchElementException("No tickets left");
+    long ticket = Math.min((long)(random.nextDouble() * tickets), tickets - 1L);
+    return tree == null ? triangular(ticket) : remove(ticket);
+  }
+
+  /**
+   * <!-- triangular -->
+   *
+   * @param ticket A ticket, numbered from 0 in order of rank
+   * @return The rank <code>i</code> with
+   *         <code>i(i + 1)/2 &lt;= ticket &lt; (i + 1)(i + 2)/2</code>
+   */
+  private static int triangular(long ticket) {
+    long i = (long)((Math.sqrt(8.0 * ticket + 1.0) - 1.0) / 2.0);
+    while(i * (i + 1L) / 2L > ticket) i--;
+    while((i + 1L) * (i + 2L) / 2L <= ticket) i++;
+    return (int)i;
+  }
+
+  /**
+   * <!-- remove -->
+   *
+   * @param ticket A ticket, numbered from 0 in order of rank among those left
+   * @return The rank holding it, which has one ticket fewer afterwards
+   */
+  private int remove(long ticket) {
+    int pos = 0;
+    for(int step = Integer.highestOneBit(Math.max(n, 1)); step > 0; step >>= 1) {
+      int next = pos + step;
+      if(next <= n && tree[next] <= ticket) {
+        pos = next;
+        ticket -= tree[next];
+      }
+    }
+    for(int i = pos + 1; i <= n; i += i & -i) {
+      tree[i]--;
+    }
+    tickets--;
+    return pos;
+  }
+
+  /**
+   * <!-- size -->
+   *
+   * @return The number of ranks
+   */
+  public int size() {
+    return n;
+  }
+}
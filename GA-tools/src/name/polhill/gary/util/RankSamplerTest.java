@@ -0,0 +1,136 @@
+/*
+ * name.polhill.gary.util: RankSamplerTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- RankSamplerTest -->
+ *
+ * Test for the RankSampler class
+ *
+ * @author Gary Polhill
+ */
+public class RankSamplerTest extends TestCase {
+
+  /**
+   * @param name
+   */
+  public RankSamplerTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- assertTriangular -->
+   *
+   * Check counts of draws are within five standard deviations of rank
+   * <code>i</code> being drawn with probability proportional to
+   * <code>i + 1</code>
+   *
+   * @param counts Number of times each rank was drawn
+   * @param draws Total number of draws
+   */
+  private static void assertTriangular(int[] counts, int draws) {
+    int n = counts.length;
+    double tickets = n * (n + 1) / 2.0;
+    for(int i = 0; i < n; i++) {
+      double p = (i + 1) / tickets;
+      assertEquals(draws * p, counts[i], 5.0 * Math.sqrt(draws * p * (1.0 - p)));
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.RankSampler#next()} with
+   * replacement.
+   */
+  public void testWithReplacement() {
+    for(int n: new int[] { 1, 2, 10, 1000 }) {
+      RankSampler sampler = new RankSampler(n, true, new Random(n));
+      int draws = 200000;
+      int[] counts = new int[n];
+      for(int i = 0; i < draws; i++) {
+        int rank = sampler.next();
+        assertTrue(rank >= 0 && rank < n);
+        counts[rank]++;
+      }
+      assertTriangular(counts, draws);
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.RankSampler#next()} without
+   * replacement: every ticket is drawn exactly once, and then there are none
+   * left.
+   */
+  public void testWithoutReplacement() {
+    for(int n: new int[] { 0, 1, 2, 10, 100 }) {
+      RankSampler sampler = new RankSampler(n, false, new Random(n));
+      int[] counts = new int[n];
+      for(int i = 0; i < n * (n + 1) / 2; i++) {
+        counts[sampler.next()]++;
+      }
+      for(int i = 0; i < n; i++) {
+        assertEquals(i + 1, counts[i]);
+      }
+      try {
+        sampler.next();
+        fail("Drew more tickets than there are");
+      }
+      catch(NoSuchElementException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link name.polhill.gary.util.RankSampler#next()} without
+   * replacement: the first draws from fresh samplers follow the same
+   * distribution as draws with replacement, and later draws follow the
+   * tickets left.
+   */
+  public void testWithoutReplacementDistribution() {
+    int n = 20;
+    int samplers = 50000;
+    Random random = new Random(13);
+    int[] first = new int[n];
+    int[] second = new int[n];
+    for(int s = 0; s < samplers; s++) {
+      RankSampler sampler = new RankSampler(n, false, random);
+      int a = sampler.next();
+      first[a]++;
+      if(a == n - 1) second[sampler.next()]++;
+    }
+    assertTriangular(first, samplers);
+
+    // After the top rank has been drawn once, it has one ticket fewer
+
+    int draws = first[n - 1];
+    double tickets = n * (n + 1) / 2.0 - 1.0;
+    for(int i = 0; i < n; i++) {
+      double p = (i == n - 1 ? i : i + 1) / tickets;
+      assertEquals(draws * p, second[i], 5.0 * Math.sqrt(draws * p * (1.0 - p)) + 1.0);
+    }
+  }
+}
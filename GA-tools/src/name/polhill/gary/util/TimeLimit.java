@@ -0,0 +1,311 @@
+/*
+ * name.polhill.gary.util: TimeLimit.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <!-- TimeLimit -->
+ *
+ * Runs evaluation tasks on an executor with a limit on the time each task may
+ * take once it has started, and on the time all the tasks may take together.
+ * Tasks that overrun are cancelled by interrupting them; whether they stop
+ * depends on them responding to the interrupt. Tasks not started when the
+ * time for all of them runs out are not started. Checking the limits takes
+ * time logarithmic in the number of tasks running.
+ *
+ * @author Gary Polhill
+ */
+public final class TimeLimit {
+  /**
+   * <!-- task -->
+   *
+   * Nanoseconds each task may take, or 0 for no limit
+   */
+  private final long task;
+
+  /**
+   * <!-- all -->
+   *
+   * Nanoseconds all the tasks may take, or 0 for no limit
+   */
+  private final long all;
+
+  private int taskTimeouts;
+  private int allTimeouts;
+
+  /**
+   * <!-- overran -->
+   *
+   * Which tasks in the last call were cancelled for taking too long
+   * themselves
+   */
+  private boolean[] overran = new boolean[0];
+
+  /**
+   * <!-- TimeLimit constructor -->
+   *
+   * @param task Time each task may take once started, or 0 for no limit
+   * @param all Time all the tasks may take, or 0 for no limit
+   * @param unit The unit of time
+   */
+  public TimeLimit(long task, long all, TimeUnit unit) {
+    if(task < 0 || all < 0) throw new IllegalArgumentException("Negative time limit");
+    this.task = unit.toNanos(task);
+    this.all = unit.toNanos(all);
+  }
+
+  /**
+   * <!-- invokeAll -->
+   *
+   * Run the tasks and wait for them to finish or run out of time. If a task
+   * that has not run out of time throws an exception, the other tasks are
+   * cancelled and the exception is thrown.
+   *
+   * A task holds its permit until it stops running, even if it has been
+   * cancelled, so no more tasks than there are permits are ever running at
+   * once. Tasks waiting for the permit of a cancelled task that has not
+   * stopped wait until it does, or are not started if the time for all the
+   * tasks runs out first.
+   *
+   * @param executor The executor to run the tasks
+   * @param tasks The tasks, none of which may return <code>null</code>
+   * @param limit Permits limiting the number of tasks running at once, or
+   *          <code>null</code> for no limit
+   * @return The result of each task, or <code>null</code> for those that ran
+   *         out of time
+   * @throws InterruptedException
+   * @throws ExecutionException
+   */
+  public <T> List<T> invokeAll(ExecutorService executor, List<? extends Callable<T>> tasks, Semaphore limit)
+      throws InterruptedException, ExecutionException {
+    taskTimeouts = 0;
+    allTimeouts = 0;
+    overran = new boolean[tasks.size()];
+    long deadline = all > 0 ? System.nanoTime() + all : Long.MAX_VALUE;
+    LinkedBlockingQueue<Integer> events = new LinkedBlockingQueue<Integer>();
+    List<Timed<T>> timed = new ArrayList<Timed<T>>(tasks.size());
+    List<T> results = new ArrayList<T>(tasks.size());
+    for(int i = 0; i < tasks.size(); i++) {
+      timed.add(new Timed<T>(tasks.get(i), i, limit, events));
+      results.add(null);
+    }
+
+    // Tasks that have started and not finished, in order of when they are
+    // due to finish; tasks are left in the queue when they finish, and
+    // skipped when they reach the head
+
+    PriorityQueue<Timed<T>> due = new PriorityQueue<Timed<T>>(11, new Comparator<Timed<T>>() {
+      public int compare(Timed<T> a, Timed<T> b) {
+        return Long.signum(a.due - b.due);
+      }
+    });
+    int submitted = 0;
+    int running = 0;
+    Integer event = null;
+    try {
+      while(true) {
+        while(submitted < timed.size() && (limit == null || limit.tryAcquire())) {
+          Timed<T> t = timed.get(submitted++);
+          t.permit = limit != null;
+          t.future = executor.submit(t);
+          running++;
+        }
+
+        // Events are the index of a task that has started, or the complement
+        // of the index of a task that has finished
+
+        if(event == null) event = events.poll();
+        for(; event != null; event = events.poll()) {
+          Timed<T> t = timed.get(event >= 0 ? event : ~event);
+          if(t.resolved) continue;
+          if(event >= 0) {
+            if(task > 0) {
+              t.due = t.started + task;
+              due.add(t);
+            }
+          }
+          else {
+            t.resolved = true;
+            running--;
+            results.set(t.index, t.future.get());
+          }
+        }
+
+        long now = System.nanoTime();
+        while(!due.isEmpty() && (due.peek().resolved || now - due.peek().due >= 0)) {
+          Timed<T> t = due.poll();
+          if(t.resolved) continue;
+          t.resolved = true;
+          running--;
+          t.cancel();
+          overran[t.index] = true;
+          taskTimeouts++;
+        }
+        if(all > 0 && now - deadline >= 0) {
+          allTimeouts += timed.size() - submitted;
+          for(int i = 0; i < submitted; i++) {
+            Timed<T> t = timed.get(i);
+            if(t.resolved) continue;
+            t.resolved = true;
+            running--;
+            t.cancel();
+            allTimeouts++;
+          }
+          break;
+        }
+
+        if(running == 0 && submitted == timed.size()) break;
+        long wake = due.isEmpty() ? deadline : Math.min(deadline, due.peek().due);
+        if(wake == Long.MAX_VALUE) {
+          event = events.take();
+        }
+        else {
+          event = events.poll(Math.max(wake - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+        }
+      }
+    }
+    catch(InterruptedException e) {
+      cancel(timed);
+      throw e;
+    }
+    catch(ExecutionException e) {
+      cancel(timed);
+      throw e;
+    }
+    return results;
+  }
+
+  /**
+   * <!-- cancel -->
+   *
+   * @param timed Tasks to cancel if they have not finished
+   */
+  private static <T> void cancel(List<Timed<T>> timed) {
+    for(Timed<T> t: timed) {
+      if(t.future != null) t.cancel();
+    }
+  }
+
+  /**
+   * <!-- getTaskTimeouts -->
+   *
+   * @return The number of tasks in the last call of
+   *         {@link #invokeAll(ExecutorService, List, Semaphore)} cancelled for
+   *         taking too long themselves
+   */
+  public int getTaskTimeouts() {
+    return taskTimeouts;
+  }
+
+  /**
+   * <!-- overran -->
+   *
+   * @param i The index of a task in the last call of
+   *          {@link #invokeAll(ExecutorService, List, Semaphore)}
+   * @return <code>true</code> if the task was cancelled for taking too long
+   *         itself, rather than because all the tasks together took too long
+   */
+  public boolean overran(int i) {
+    return overran[i];
+  }
+
+  /**
+   * <!-- getAllTimeouts -->
+   *
+   * @return The number of tasks in the last call of
+   *         {@link #invokeAll(ExecutorService, List, Semaphore)} cancelled or
+   *         not started because all the tasks together took too long
+   */
+  public int getAllTimeouts() {
+    return allTimeouts;
+  }
+
+  /**
+   * <!-- Timed -->
+   *
+   * A task recording when it started, and releasing its permit when it stops
+   * running, or when it is cancelled before it starts
+   *
+   * @author Gary Polhill
+   */
+  private static final class Timed<T> implements Callable<T> {
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private final Callable<T> callable;
+    final int index;
+    private final Semaphore limit;
+    private final LinkedBlockingQueue<Integer> events;
+    private final AtomicInteger state;
+    boolean permit;
+    volatile long started;
+    long due;
+    Future<T> future;
+    boolean resolved;
+
+    Timed(Callable<T> callable, int index, Semaphore limit, LinkedBlockingQueue<Integer> events) {
+      this.callable = callable;
+      this.index = index;
+      this.limit = limit;
+      this.events = events;
+      state = new AtomicInteger(NEW);
+    }
+
+    public T call() throws Exception {
+      if(!state.compareAndSet(NEW, RUNNING)) return null;
+      started = System.nanoTime();
+      events.offer(index);
+      try {
+        return callable.call();
+      }
+      finally {
+        if(permit) limit.release();
+        events.offer(~index);
+      }
+    }
+
+    /**
+     * <!-- cancel -->
+     *
+     * Cancel the task, interrupting it if it is running. If it has not
+     * started, it never will, and its permit is released; otherwise, it keeps
+     * its permit until it stops.
+     */
+    void cancel() {
+      future.cancel(true);
+      if(state.compareAndSet(NEW, CANCELLED) && permit) limit.release();
+    }
+  }
+}
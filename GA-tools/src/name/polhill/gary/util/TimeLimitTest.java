@@ -0,0 +1,213 @@
+/*
+ * name.polhill.gary.util: TimeLimitTest.java
+ *
+ * Copyright (C) 2026 Gary Polhill
+ *
+ * This file is part of GA.
+ *
+ * GA is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * GA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GA. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package name.polhill.gary.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * <!-- TimeLimitTest -->
+ *
+ * Test for the TimeLimit class
+ *
+ * @author Gary Polhill
+ */
+public class TimeLimitTest extends TestCase {
+
+  /**
+   * @param name
+   */
+  public TimeLimitTest(String name) {
+    super(name);
+  }
+
+  /**
+   * <!-- Sleeper -->
+   *
+   * A task that sleeps, stopping if interrupted, and records how many tasks
+   * are running at once
+   *
+   * @author Gary Polhill
+   */
+  private static final class Sleeper implements Callable<Integer> {
+    private final int index;
+    private final long millis;
+    private final boolean stubborn;
+    private final AtomicInteger running;
+    private final AtomicInteger most;
+
+    Sleeper(int index, long millis, boolean stubborn, AtomicInteger running, AtomicInteger most) {
+      this.index = index;
+      this.millis = millis;
+      this.stubborn = stubborn;
+      this.running = running;
+      this.most = most;
+    }
+
+    public Integer call() throws Exception {
+      int now = running.incrementAndGet();
+      while(true) {
+        int before = most.get();
+        if(now <= before || most.compareAndSet(before, now)) break;
+      }
+      try {
+        if(stubborn) {
+
+          // Ignore interrupts until the time is up
+
+          long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+          while(System.nanoTime() - end < 0) {
+            Thread.yield();
+          }
+        }
+        else {
+          Thread.sleep(millis);
+        }
+        return index;
+      }
+      finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.TimeLimit#invokeAll(ExecutorService, List, Semaphore)}:
+   * tasks taking longer than the time each may take are cancelled, and the
+   * others finish.
+   */
+  public void testTaskLimit() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger most = new AtomicInteger();
+      List<Sleeper> tasks = new ArrayList<Sleeper>();
+      for(int i = 0; i < 6; i++) {
+        tasks.add(new Sleeper(i, i % 2 == 0 ? 10 : 10000, false, running, most));
+      }
+      TimeLimit limit = new TimeLimit(200, 0, TimeUnit.MILLISECONDS);
+      long start = System.nanoTime();
+      List<Integer> results = limit.invokeAll(executor, tasks, null);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      for(int i = 0; i < tasks.size(); i++) {
+        if(i % 2 == 0) {
+          assertEquals(Integer.valueOf(i), results.get(i));
+          assertFalse(limit.overran(i));
+        }
+        else {
+          assertEquals(null, results.get(i));
+          assertTrue(limit.overran(i));
+        }
+      }
+      assertEquals(3, limit.getTaskTimeouts());
+      assertEquals(0, limit.getAllTimeouts());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.TimeLimit#invokeAll(ExecutorService, List, Semaphore)}:
+   * when the time for all the tasks runs out, tasks running are cancelled,
+   * and tasks waiting for a permit are not started.
+   */
+  public void testAllLimit() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger most = new AtomicInteger();
+      List<Sleeper> tasks = new ArrayList<Sleeper>();
+      for(int i = 0; i < 4; i++) {
+        tasks.add(new Sleeper(i, 10000, false, running, most));
+      }
+      TimeLimit limit = new TimeLimit(0, 200, TimeUnit.MILLISECONDS);
+      List<Integer> results = limit.invokeAll(executor, tasks, new Semaphore(1));
+      for(int i = 0; i < tasks.size(); i++) {
+        assertEquals(null, results.get(i));
+        assertFalse(limit.overran(i));
+      }
+      assertEquals(0, limit.getTaskTimeouts());
+      assertEquals(4, limit.getAllTimeouts());
+      assertEquals(1, most.get());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.TimeLimit#invokeAll(ExecutorService, List, Semaphore)}:
+   * a task that has overrun keeps its permit until it stops, even if it
+   * ignores being interrupted, so no more tasks run at once than there are
+   * permits.
+   */
+  public void testPermits() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger most = new AtomicInteger();
+      List<Sleeper> tasks = new ArrayList<Sleeper>();
+      tasks.add(new Sleeper(0, 300, true, running, most));
+      for(int i = 1; i < 4; i++) {
+        tasks.add(new Sleeper(i, 10, false, running, most));
+      }
+      TimeLimit limit = new TimeLimit(100, 0, TimeUnit.MILLISECONDS);
+      List<Integer> results = limit.invokeAll(executor, tasks, new Semaphore(1));
+      assertEquals(null, results.get(0));
+      assertTrue(limit.overran(0));
+      for(int i = 1; i < tasks.size(); i++) {
+        assertEquals(Integer.valueOf(i), results.get(i));
+      }
+      assertEquals(1, limit.getTaskTimeouts());
+      assertEquals(1, most.get());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link name.polhill.gary.util.TimeLimit#TimeLimit(long, long, TimeUnit)}.
+   */
+  public void testNegative() {
+    try {
+      new TimeLimit(-1, 0, TimeUnit.SECONDS);
+      fail("Negative time limit accepted");
+    }
+    catch(IllegalArgumentException e) {
+      // expected
+    }
+  }
+}